@@ -0,0 +1,43 @@
+import json
+import sys
+
+# Compares two JMH result files of run.sh, e.g. of two commits.
+# Usage: python3 compare.py baseline.json current.json [tolerance, default 0.1]
+# Prints the score of every benchmark (with its parameters) in both files and marks results that are slower by more
+# than the tolerance (relative to the baseline) with REGRESSION.
+
+
+def load(path):
+    with open(path, mode='r') as file:
+        results = dict()
+        for result in json.load(file):
+            params = ",".join(f"{k}={v}" for k, v in sorted(result.get("params", {}).items()))
+            name = result["benchmark"].rsplit(".", 2)[-2] + "." + result["benchmark"].rsplit(".", 1)[-1]
+            results[f"{name}({params})"] = (result["primaryMetric"]["score"], result["primaryMetric"]["scoreUnit"])
+        return results
+
+
+if __name__ == "__main__":
+    if len(sys.argv) < 3:
+        print("Usage: python3 compare.py baseline.json current.json [tolerance]")
+        sys.exit(1)
+
+    baseline = load(sys.argv[1])
+    current = load(sys.argv[2])
+    tolerance = float(sys.argv[3]) if len(sys.argv) > 3 else 0.1
+
+    regressions = 0
+    for key in sorted(baseline.keys() | current.keys()):
+        if key not in baseline or key not in current:
+            print(f"{key}: only in {'baseline' if key in baseline else 'current'}")
+            continue
+        (old, unit), (new, _) = baseline[key], current[key]
+        ratio = new / old if old > 0 else float("inf")
+        flag = ""
+        # all benchmarks measure the average time, so larger is slower
+        if ratio > 1 + tolerance:
+            flag = " REGRESSION"
+            regressions += 1
+        print(f"{key}: {old:.3f} -> {new:.3f} {unit} ({ratio:.2f}x){flag}")
+
+    sys.exit(1 if regressions > 0 else 0)
@@ -0,0 +1,296 @@
+package federatedSim;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.cloudbus.cloudsim.File;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.SimulationSnapshot;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.workflowsim.Job;
+import org.workflowsim.Task;
+import org.workflowsim.WorkflowEngine;
+import org.workflowsim.WorkflowParser;
+import org.workflowsim.WorkflowScheduler;
+import org.workflowsim.WorkflowSimTags;
+import org.workflowsim.utils.ClusteringParameters;
+import org.workflowsim.utils.OverheadParameters;
+import org.workflowsim.utils.Parameters;
+import org.workflowsim.utils.ReplicaCatalog;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// Fixtures that are shared by the benchmarks:
+// - configurations with the sites of the grid search (gridSearch.py) for any workflow
+// - synthetic fan-out workflows, whose middle layer arrives at the scheduler as one batch of a given width
+// - simulations that are checkpointed right before a scheduling round, so that every invocation of a benchmark can
+//   restore the same state and measure only the round itself
+// All files are written to a temporary directory that is deleted when the JVM exits.
+public class BenchmarkFixtures {
+
+	// workflows of the thesis, relative to the repository root, can be overwritten with -Dbench.daxDir=...
+	public static final String DAX_DIR = System.getProperty("bench.daxDir", "config/dax");
+
+	private static Path tempDir;
+
+	public static String daxPath(String name) {
+		return new java.io.File(DAX_DIR, name).getAbsolutePath();
+	}
+
+	// configuration of a workload that partitions on every scheduling round (task threshold 1):
+	// "fanout_<width>" is a synthetic fan-out workflow, everything else a file in the dax directory
+	// the abstract DAG overestimates the subtrees of a wide fan-out by far, the greedy strategy would find no site with
+	// enough predicted storage for the middle layer, so synthetic workflows get much more storage than the grid search
+	public static String workloadConfig(String workload, int numSites, String strategy) {
+		if (workload.startsWith("fanout_")) {
+			String daxPath = writeFanOutDax(Integer.parseInt(workload.substring("fanout_".length())));
+			return writeConfig(daxPath, numSites, strategy, 1, 0, 10.0);
+		}
+		return writeConfig(daxPath(workload), numSites, strategy, 1, 0, 1.5);
+	}
+
+	// initializes the static parameters and the kernel like FederatedTwoSites, without creating any entities
+	// (files take their creation time from the simulation calendar)
+	public static void initParameters(String daxPath, int numSites) {
+		OverheadParameters op = new OverheadParameters(0, null, null, null, null, 0);
+		ClusteringParameters cp = new ClusteringParameters(0, 0, ClusteringParameters.ClusteringMethod.NONE, null);
+		Parameters.init(numSites, daxPath, null, null, op, cp, Parameters.SchedulingAlgorithm.DYNAMIC_PART,
+				Parameters.PlanningAlgorithm.INVALID, null, 0);
+		ReplicaCatalog.init(ReplicaCatalog.FileSystem.SHARED);
+		CloudSim.init(1, Calendar.getInstance(), false);
+	}
+
+	// tasks of a workflow, parsed like the workflow planner does
+	public static List<Task> parseTasks(String daxPath, int numSites) {
+		initParameters(daxPath, numSites);
+		WorkflowParser parser = new WorkflowParser(0, null, null, daxPath);
+		parser.parse();
+		return parser.getTaskList();
+	}
+
+	// writes a configuration for a workflow with the first numSites sites of site_conf_4_site (2 sites = site_conf_2_site,
+	// 3 sites = site_conf_3_site_large), storages and the initial data distribution are computed like in the grid
+	// search (storageFactor 1.5), with a fixed seed
+	public static String writeConfig(String daxPath, int numSites, String strategy, int taskThreshold, int secThreshold,
+									 double storageFactor) {
+		String[] types = {"small", "large", "large", "small"};
+		if (numSites < 2 || numSites > types.length) {
+			throw new IllegalArgumentException("Only 2 to " + types.length + " sites are supported");
+		}
+
+		// initial files are read, but not written by any task
+		Map<String, Long> inputs = new TreeMap<>();
+		Set<String> outputs = new HashSet<>();
+		long totalSize = 0;
+		for (Task task : parseTasks(daxPath, numSites)) {
+			for (Object o : task.getFileList()) {
+				File file = (File) o;
+				if (file.getType() == Parameters.FileType.INPUT.value) {
+					if (inputs.putIfAbsent(file.getName(), (long) file.getSize()) == null) {
+						totalSize += file.getSize();
+					}
+				} else if (file.getType() == Parameters.FileType.OUTPUT.value && outputs.add(file.getName())) {
+					totalSize += file.getSize();
+				}
+			}
+		}
+		inputs.keySet().removeAll(outputs);
+
+		JsonObject config = new JsonObject();
+		config.addProperty("name", "bench_" + numSites + "_site");
+		config.addProperty("numSites", numSites);
+		config.addProperty("strategy", strategy);
+		config.addProperty("workflowPath", daxPath);
+		config.addProperty("taskThreshold", taskThreshold);
+		config.addProperty("secThreshold", secThreshold);
+
+		// more storage than the workflow's files for duplicated files, large sites get twice the storage of small sites
+		int shares = 0;
+		for (int i = 0; i < numSites; i++) {
+			shares += types[i].equals("large") ? 2 : 1;
+		}
+		double fraction = storageFactor * totalSize / shares;
+
+		JsonArray sites = new JsonArray();
+		double[] freeStorage = new double[numSites];
+		for (int i = 0; i < numSites; i++) {
+			boolean large = types[i].equals("large");
+			JsonObject site = new JsonObject();
+			site.addProperty("id", i);
+			site.addProperty("type", types[i]);
+			site.addProperty("ram", large ? 10 * 2048 : 2048);
+			site.addProperty("mips", 100);
+			site.addProperty("pes", large ? 10 * 4 : 4);
+			site.addProperty("intraBw", large ? 2 * 1.2e7 : 1.2e7);
+			freeStorage[i] = large ? 2 * fraction : fraction;
+			site.addProperty("storage", freeStorage[i]);
+			sites.add(site);
+		}
+		config.add("sites", sites);
+
+		JsonArray connections = new JsonArray();
+		for (int i = 0; i < numSites; i++) {
+			for (int j = i + 1; j < numSites; j++) {
+				JsonObject connection = new JsonObject();
+				connection.addProperty("site1Id", i);
+				connection.addProperty("site2Id", j);
+				connection.addProperty("bandwidth", i == 0 && j == 1 ? 1.2e7 : 6e6);
+				connections.add(connection);
+			}
+		}
+		config.add("connections", connections);
+
+		// every input file goes to a random site where it fits
+		Random random = new Random(42);
+		JsonArray files = new JsonArray();
+		for (Map.Entry<String, Long> input : inputs.entrySet()) {
+			List<Integer> ids = new ArrayList<>();
+			for (int i = 0; i < numSites; i++) {
+				if (freeStorage[i] > input.getValue()) {
+					ids.add(i);
+				}
+			}
+			int targetId = ids.get(random.nextInt(ids.size()));
+			freeStorage[targetId] -= input.getValue();
+
+			JsonObject file = new JsonObject();
+			file.addProperty("name", input.getKey());
+			file.addProperty("siteId", targetId);
+			file.addProperty("size", input.getValue());
+			files.add(file);
+		}
+		config.add("files", files);
+
+		return write("config_" + new java.io.File(daxPath).getName() + "_" + numSites + "_" + strategy + ".json",
+				new GsonBuilder().setPrettyPrinting().create().toJson(config));
+	}
+
+	// writes a synthetic workflow: a split job, width jobs that each read one part of its output and a shared reference
+	// file, and a merge job that reads all their outputs
+	public static String writeFanOutDax(int width) {
+		StringBuilder dax = new StringBuilder();
+		dax.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		dax.append("<adag xmlns=\"http://pegasus.isi.edu/schema/DAX\" version=\"2.1\" name=\"fanout\" jobCount=\"")
+				.append(width + 2).append("\">\n");
+
+		dax.append("  <job id=\"split\" namespace=\"bench\" name=\"split\" version=\"1.0\" runtime=\"10.0\">\n");
+		dax.append("    <uses file=\"input.dat\" link=\"input\" size=\"1000000\"/>\n");
+		for (int i = 0; i < width; i++) {
+			dax.append("    <uses file=\"part_").append(i).append(".dat\" link=\"output\" size=\"1000000\"/>\n");
+		}
+		dax.append("  </job>\n");
+
+		for (int i = 0; i < width; i++) {
+			dax.append("  <job id=\"process_").append(i)
+					.append("\" namespace=\"bench\" name=\"process\" version=\"1.0\" runtime=\"").append(10 + i % 7).append(".0\">\n");
+			dax.append("    <uses file=\"part_").append(i).append(".dat\" link=\"input\" size=\"1000000\"/>\n");
+			dax.append("    <uses file=\"reference.dat\" link=\"input\" size=\"5000000\"/>\n");
+			dax.append("    <uses file=\"out_").append(i).append(".dat\" link=\"output\" size=\"").append(100_000 + 100 * i).append("\"/>\n");
+			dax.append("  </job>\n");
+		}
+
+		dax.append("  <job id=\"merge\" namespace=\"bench\" name=\"merge\" version=\"1.0\" runtime=\"10.0\">\n");
+		for (int i = 0; i < width; i++) {
+			dax.append("    <uses file=\"out_").append(i).append(".dat\" link=\"input\" size=\"").append(100_000 + 100 * i).append("\"/>\n");
+		}
+		dax.append("    <uses file=\"result.dat\" link=\"output\" size=\"100000\"/>\n");
+		dax.append("  </job>\n");
+
+		for (int i = 0; i < width; i++) {
+			dax.append("  <child ref=\"process_").append(i).append("\">\n");
+			dax.append("    <parent ref=\"split\"/>\n");
+			dax.append("  </child>\n");
+		}
+		dax.append("  <child ref=\"merge\">\n");
+		for (int i = 0; i < width; i++) {
+			dax.append("    <parent ref=\"process_").append(i).append("\"/>\n");
+		}
+		dax.append("  </child>\n");
+		dax.append("</adag>\n");
+
+		return write("fanout_" + width + ".xml", dax.toString());
+	}
+
+	// a simulation that is checkpointed right before a scheduling round
+	public static class Checkpoint {
+		private final SimulationSnapshot snapshot;
+		private final int engineId;
+		private final int schedulerId;
+
+		private Checkpoint(SimulationSnapshot snapshot, int engineId, int schedulerId) {
+			this.snapshot    = snapshot;
+			this.engineId    = engineId;
+			this.schedulerId = schedulerId;
+		}
+
+		// restores an independent copy of the simulation, including the static state outside of the kernel
+		public void restore() {
+			FederatedTwoSites.setStaticState((Object[]) CloudSim.restoreSnapshot(snapshot));
+		}
+
+		// entities of the restored copy
+		public WorkflowEngine getEngine() { return (WorkflowEngine) CloudSim.getEntity(engineId); }
+		public WorkflowScheduler getScheduler() { return (WorkflowScheduler) CloudSim.getEntity(schedulerId); }
+
+		public int size() { return snapshot.size(); }
+	}
+
+	// runs the simulation of a configuration up to the first scheduling round that has a batch of jobs with parents,
+	// i.e., the first round after the initial partitioning, and checkpoints it like ThresholdSweep
+	public static Checkpoint checkpointAtFirstBatch(String configPath) throws Exception {
+		Log.disable();
+
+		ConfigParser configParser = new ConfigParser();
+		configParser.parse(configPath);
+		WorkflowEngine wfEngine = FederatedTwoSites.setupSimulation(configParser);
+		if (wfEngine == null) {
+			throw new IllegalStateException("Workflow of " + configPath + " not found");
+		}
+		int engineId    = wfEngine.getId();
+		int schedulerId = wfEngine.getSchedulerId(0);
+		WorkflowScheduler scheduler = wfEngine.getScheduler(0);
+
+		Predicate firstBatch = new Predicate() {
+			@Override
+			public boolean match(SimEvent ev) {
+				if (ev.getTag() != WorkflowSimTags.CLOUDLET_UPDATE) {
+					return false;
+				}
+				for (Object o : scheduler.getCloudletList()) {
+					if (!((Job) o).getParentList().isEmpty()) {
+						return true;
+					}
+				}
+				return false;
+			}
+		};
+		if (!CloudSim.runUntil(schedulerId, firstBatch)) {
+			throw new IllegalStateException("Simulation of " + configPath + " finished before its first batch");
+		}
+
+		return new Checkpoint(CloudSim.createSnapshot(FederatedTwoSites.getStaticState()), engineId, schedulerId);
+	}
+
+	private static synchronized String write(String name, String content) {
+		try {
+			if (tempDir == null) {
+				tempDir = Files.createTempDirectory("federatedSim-bench");
+				tempDir.toFile().deleteOnExit();
+			}
+			Path path = tempDir.resolve(name);
+			try (PrintWriter writer = new PrintWriter(path.toFile())) {
+				writer.print(content);
+			}
+			path.toFile().deleteOnExit();
+			return path.toString();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package federatedSim;
+
+import org.openjdk.jmh.annotations.*;
+import org.workflowsim.Job;
+import org.workflowsim.WorkflowScheduler;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// DynamicAbstractDag.updateDynamicInformation for the first batch of jobs with parents, on the same checkpoints as
+// PartitioningRoundBenchmark: the returned start jobs are processed and the new jobs are added to the abstract DAG.
+// Checkpoints of large workflows are serialized recursively, hence the larger stack.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class DynamicDagUpdateBenchmark {
+
+	@Param({"fanout_10", "fanout_100", "fanout_1000", "Montage_1000.xml", "CyberShake_1000.xml", "Epigenomics_997.xml"})
+	public String workload;
+
+	private BenchmarkFixtures.Checkpoint checkpoint;
+	private List<Job> receivedJobs;
+	private List<Job> newJobs;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		String config = BenchmarkFixtures.workloadConfig(workload, 2, "PART");
+		checkpoint = BenchmarkFixtures.checkpointAtFirstBatch(config);
+	}
+
+	@Setup(Level.Invocation)
+	public void restore() {
+		checkpoint.restore();
+		WorkflowScheduler scheduler = checkpoint.getScheduler();
+		receivedJobs = scheduler.getCloudletReceivedList();
+		newJobs      = scheduler.getCloudletList();
+	}
+
+	@Benchmark
+	public double[] update() {
+		DynamicAbstractDag.updateDynamicInformation(receivedJobs, newJobs);
+		return DynamicAbstractDag.getTotalSizeEstimates();
+	}
+}
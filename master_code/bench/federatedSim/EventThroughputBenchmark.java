@@ -0,0 +1,97 @@
+package federatedSim;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Calendar;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Event throughput of the simulation kernel: two entities send a given number of events back and forth with random
+// delays, so that the future queue always holds a fixed number of pending events. One operation is a complete
+// simulation, from CloudSim.init to the empty queue.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventThroughputBenchmark {
+
+	// events that are pending at any time
+	private static final int QUEUE_DEPTH = 1000;
+
+	private static final int PING = 900001;
+
+	@Param({"10000", "100000", "1000000"})
+	public int events;
+
+	@Param({"false", "true"})
+	public boolean eventPooling;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Log.disable();
+	}
+
+	@Benchmark
+	public long dispatch() {
+		CloudSim.init(1, Calendar.getInstance(), false);
+		CloudSim.setEventPooling(eventPooling);
+
+		int[] budget = {events};
+		Pinger first  = new Pinger("pinger_0", budget, new Random(42));
+		Pinger second = new Pinger("pinger_1", budget, new Random(43));
+		first.peerId  = second.getId();
+		second.peerId = first.getId();
+
+		CloudSim.startSimulation();
+		CloudSim.stopSimulation();
+		return first.received + second.received;
+	}
+
+	// answers every event with an event to its peer, until the shared budget of events is used up
+	public static class Pinger extends SimEntity {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] budget;
+		private final Random random;
+		private int peerId;
+		private long received = 0;
+
+		public Pinger(String name, int[] budget, Random random) {
+			super(name);
+			this.budget = budget;
+			this.random = random;
+		}
+
+		// both pingers fill the queue
+		@Override
+		public void startEntity() {
+			for (int i = 0; i < QUEUE_DEPTH / 2; i++) {
+				send();
+			}
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			received++;
+			send();
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+		private void send() {
+			if (budget[0] > 0) {
+				budget[0]--;
+				schedule(peerId, random.nextDouble(), PING);
+			}
+		}
+	}
+}
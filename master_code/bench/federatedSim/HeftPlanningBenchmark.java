@@ -0,0 +1,55 @@
+package federatedSim;
+
+import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
+import org.cloudbus.cloudsim.Log;
+import org.openjdk.jmh.annotations.*;
+import org.workflowsim.CondorVM;
+import org.workflowsim.Task;
+import org.workflowsim.planning.HEFTPlanningAlgorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// HEFTPlanningAlgorithm.run on the parsed tasks of a workflow, with one vm per site of site_conf_4_site.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeftPlanningBenchmark {
+
+	@Param({"Montage_100.xml", "Montage_1000.xml", "CyberShake_1000.xml", "Epigenomics_997.xml", "Inspiral_1000.xml"})
+	public String dax;
+
+	@Param({"2", "4"})
+	public int sites;
+
+	private List<Task> tasks;
+	private List<CondorVM> vms;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Log.disable();
+		tasks = BenchmarkFixtures.parseTasks(BenchmarkFixtures.daxPath(dax), sites);
+
+		boolean[] large = {false, true, true, false};
+		vms = new ArrayList<>();
+		for (int i = 0; i < sites; i++) {
+			int pes = large[i] ? 10 * 4 : 4;
+			int ram = large[i] ? 10 * 2048 : 2048;
+			long bw = (long) (large[i] ? 2 * 1.2e7 : 1.2e7);
+			vms.add(new CondorVM(i, 0, 100, pes, ram, bw, 100000000, "Xen", new CloudletSchedulerTimeShared()));
+		}
+	}
+
+	@Benchmark
+	public List<Task> run() {
+		HEFTPlanningAlgorithm heft = new HEFTPlanningAlgorithm();
+		heft.setTaskList(tasks);
+		heft.setVmList(vms);
+		heft.run();
+		return tasks;
+	}
+}
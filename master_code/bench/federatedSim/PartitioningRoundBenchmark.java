@@ -0,0 +1,68 @@
+package federatedSim;
+
+import org.openjdk.jmh.annotations.*;
+import org.workflowsim.WorkflowScheduler;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+// One scheduling round of the partitioning strategies: the simulation is checkpointed right before its first batch of
+// jobs with parents (for the synthetic fan-out workflows, all jobs of the middle layer) and every invocation restores
+// the checkpoint and runs a new scheduler on the batch, like WorkflowScheduler.processCloudletUpdate does. The round
+// includes the update of the dynamic abstract DAG.
+// Checkpoints of large workflows are serialized recursively, hence the larger stack.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class PartitioningRoundBenchmark {
+
+	@Param({"fanout_10", "fanout_100", "fanout_1000", "CyberShake_1000.xml", "Epigenomics_997.xml"})
+	public String workload;
+
+	@Param({"PART", "MCF", "CP"})
+	public String strategy;
+
+	@Param({"2", "4"})
+	public int sites;
+
+	private BenchmarkFixtures.Checkpoint checkpoint;
+	private PartitioningScheduler scheduler;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		String config = BenchmarkFixtures.workloadConfig(workload, sites, strategy);
+		checkpoint = BenchmarkFixtures.checkpointAtFirstBatch(config);
+	}
+
+	@Setup(Level.Invocation)
+	public void restore() {
+		checkpoint.restore();
+		WorkflowScheduler workflowScheduler = checkpoint.getScheduler();
+
+		switch (strategy) {
+			case "MCF":
+				scheduler = new MinCostFlowPartitioningScheduler();
+				break;
+			case "CP":
+				scheduler = new CriticalPathPartitioningScheduler();
+				break;
+			default:
+				scheduler = new PartitioningScheduler();
+				break;
+		}
+		scheduler.setCloudletList(workflowScheduler.getCloudletList());
+		scheduler.setVmList(workflowScheduler.getVmsCreatedList());
+		scheduler.setReceivedList(workflowScheduler.getCloudletReceivedList());
+		scheduler.addExceededMap(new HashMap<>());
+		scheduler.addRetriedJobsSetUnion(checkpoint.getEngine().getRetriedJobsSetUnion());
+	}
+
+	@Benchmark
+	public int round() throws Exception {
+		scheduler.run();
+		return scheduler.getScheduledList().size();
+	}
+}
@@ -0,0 +1,78 @@
+package federatedSim;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.openjdk.jmh.annotations.*;
+import org.workflowsim.Job;
+import org.workflowsim.WorkflowEngine;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// WorkflowEngine.submitJobs with a growing number of jobs: half of the jobs have returned, every pending job has one
+// of them as parent (ready) or one pending job as parent (not ready), so one call scans all pending jobs against the
+// returned jobs.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubmitJobsBenchmark {
+
+	@Param({"100", "1000", "10000"})
+	public int jobs;
+
+	private List<Job> returnedJobs;
+	private List<Job> pendingJobs;
+	private WorkflowEngine engine;
+	private Method submitJobs;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		Log.disable();
+		BenchmarkFixtures.initParameters(null, 2);
+
+		submitJobs = WorkflowEngine.class.getDeclaredMethod("submitJobs");
+		submitJobs.setAccessible(true);
+
+		returnedJobs = new ArrayList<>();
+		pendingJobs  = new ArrayList<>();
+		for (int i = 0; i < jobs / 2; i++) {
+			returnedJobs.add(new Job(i, 1000));
+		}
+		for (int i = jobs / 2; i < jobs; i++) {
+			Job job = new Job(i, 1000);
+			if (i % 2 == 0 || pendingJobs.isEmpty()) {
+				job.addParent(returnedJobs.get(i - jobs / 2));
+			} else {
+				job.addParent(pendingJobs.get(pendingJobs.size() - 1));
+			}
+			pendingJobs.add(job);
+		}
+	}
+
+	// a fresh engine, submitJobs moves the ready jobs out of the job list
+	@Setup(Level.Invocation)
+	public void reset() throws Exception {
+		CloudSim.init(1, Calendar.getInstance(), false);
+		engine = new WorkflowEngine("engine");
+		for (Job job : returnedJobs) {
+			job.setUserId(engine.getSchedulerId(0));
+		}
+		for (Job job : pendingJobs) {
+			job.setUserId(engine.getSchedulerId(0));
+		}
+		engine.submitCloudletList(new ArrayList<>(pendingJobs));
+		engine.getJobsReceivedList().addAll(returnedJobs);
+	}
+
+	@Benchmark
+	public int submitJobs() throws Exception {
+		submitJobs.invoke(engine);
+		return engine.getJobsSubmittedList().size();
+	}
+}
@@ -0,0 +1,53 @@
+package federatedSim;
+
+import org.openjdk.jmh.annotations.*;
+import org.workflowsim.Task;
+import org.workflowsim.WorkflowParser;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Parsing of every workflow in config/dax, including the initialization of the dynamic abstract DAG.
+// With cache, the tasks are created from the cached structure of the workflow, like in later runs of a batch.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkflowParserBenchmark {
+
+	@Param({
+			"CyberShake_30.xml", "CyberShake_50.xml", "CyberShake_100.xml", "CyberShake_1000.xml",
+			"Epigenomics_24.xml", "Epigenomics_46.xml", "Epigenomics_100.xml", "Epigenomics_997.xml",
+			"Inspiral_30.xml", "Inspiral_50.xml", "Inspiral_100.xml", "Inspiral_1000.xml",
+			"Montage_25.xml", "Montage_50.xml", "Montage_100.xml", "Montage_1000.xml",
+			"Sipht_30.xml", "Sipht_60.xml", "Sipht_100.xml",
+			"HEFT_paper.xml", "floodplain.xml"
+	})
+	public String dax;
+
+	@Param({"false", "true"})
+	public boolean cache;
+
+	private String daxPath;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		daxPath = BenchmarkFixtures.daxPath(dax);
+		WorkflowParser.setCacheCapacity(cache ? WorkflowParser.DEFAULT_CACHE_CAPACITY : 0);
+	}
+
+	// the replica catalog remembers the files of the previous parse
+	@Setup(Level.Invocation)
+	public void reset() {
+		BenchmarkFixtures.initParameters(daxPath, 2);
+	}
+
+	@Benchmark
+	public List<Task> parse() {
+		WorkflowParser parser = new WorkflowParser(0, null, null, daxPath);
+		parser.parse();
+		return parser.getTaskList();
+	}
+}
@@ -0,0 +1,24 @@
+#!/bin/sh
+# Builds the simulator with the benchmarks and runs them with JMH.
+# Usage (from the repository root): sh master_code/bench/run.sh [JMH options, e.g. a benchmark regex or -p workload=fanout_100]
+# JMH_LIB must point to a directory with the jars of jmh-core, jmh-generator-annprocess, jopt-simple and commons-math3.
+# The results are written to master_code/bench/results/<commit>.json, compare two of them with compare.py.
+
+set -e
+
+if [ -z "$JMH_LIB" ]; then
+	echo "Set JMH_LIB to the directory with the JMH jars" >&2
+	exit 1
+fi
+
+BUILD=master_code/bench/build
+RESULTS=master_code/bench/results
+CP="lib/*:master_code/lib/*:$JMH_LIB/*"
+
+rm -rf "$BUILD"
+mkdir -p "$BUILD" "$RESULTS"
+find sources master_code/src master_code/bench -name '*.java' > "$BUILD/sources.txt"
+javac -encoding UTF-8 -nowarn -d "$BUILD/classes" -cp "$CP" @"$BUILD/sources.txt"
+
+COMMIT=$(git rev-parse --short HEAD 2>/dev/null || echo local)
+java -cp "$BUILD/classes:$CP" org.openjdk.jmh.Main -rf json -rff "$RESULTS/$COMMIT.json" "$@"
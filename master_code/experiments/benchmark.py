@@ -0,0 +1,198 @@
+import copy
+import csv
+import json
+import os
+import random
+import statistics
+import subprocess
+import sys
+
+import gridSearch
+
+# End-to-end performance regression suite: runs FederatedTwoSites for every workflow in config/dax with every site
+# configuration of the grid search and records the resource usage of the simulator (telemetry) next to its results.
+#
+# Usage:
+#   python3 benchmark.py run results.csv [repetitions]
+#   python3 benchmark.py compare baseline.csv current.csv [tolerance]
+#
+# The runs are executed one after another, so that they do not compete for CPU and memory bandwidth. With several
+# repetitions, every repetition is a row of the CSV, compare uses the median of the repetitions of a scenario.
+# compare flags
+# - REGRESSION: wall-clock time, peak heap, allocated bytes or GC time grew by more than the tolerance (default 0.1)
+# - CHANGED: the simulation itself differs (events, scheduler invocations, makespan, transferred data, transfer time
+#   or the status), these are deterministic and must be equal unless the change is intended
+# and exits with 1 if anything was flagged.
+
+DAX_DIR = '../../config/dax'
+
+# thresholds of all runs
+N = 10
+T = 10
+
+# seed of the initial data distribution, every workflow gets the same distribution in every run of the suite
+SEED = 0
+
+# wall-clock and gc differences below this many seconds are noise of short runs
+MIN_TIME_DELTA = 0.1
+
+java_cp = os.environ.get('JAVA_CP', "../lib/*:../bin:../../lib/*")
+
+PERFORMANCE_COLUMNS = ['WALL_CLOCK', 'PEAK_HEAP', 'ALLOCATED_BYTES', 'GC_TIME']
+SIMULATION_COLUMNS = ['EVENTS', 'SCHEDULER_INVOCATIONS', 'MAKESPAN', 'TRANSFERRED_DATA', 'TRANSFER_TIME']
+
+# rows of the results and the telemetry of FederatedTwoSites
+RESULT_ROWS = {
+    'TransferredData': 'TRANSFERRED_DATA',
+    'TransferTime': 'TRANSFER_TIME',
+    'Makespan': 'MAKESPAN',
+    'WallClockTime': 'WALL_CLOCK',
+    'EventsProcessed': 'EVENTS',
+    'PeakHeap': 'PEAK_HEAP',
+    'AllocatedBytes': 'ALLOCATED_BYTES',
+    'GcTime': 'GC_TIME',
+    'SchedulerInvocations': 'SCHEDULER_INVOCATIONS',
+}
+
+HEADER = ['NAME', 'CONFIG', 'REP', 'STATUS'] + PERFORMANCE_COLUMNS + SIMULATION_COLUMNS
+
+
+def get_workflows():
+    wfs = list()
+    for file in sorted(os.listdir(DAX_DIR)):
+        if file.endswith('.xml'):
+            wfs.append({'name': file[:-len('.xml')], 'path': f'{DAX_DIR}/{file}'})
+    return wfs
+
+
+def read_rows(path):
+    values = dict()
+    if not os.path.exists(path):
+        return values
+    with open(path, mode='r') as file:
+        for row in csv.reader(file):
+            if row and row[0] in RESULT_ROWS:
+                values[RESULT_ROWS[row[0]]] = float(row[1])
+    return values
+
+
+def run(results_path, repetitions):
+    for directory in ['grid_search_inputs', 'benchmark_run_configs', 'benchmark_logs', 'benchmark_results']:
+        os.makedirs(directory, exist_ok=True)
+
+    gridSearch.java_cp = java_cp
+    gridSearch.env = os.environ.copy()
+
+    with open(results_path, mode='w', newline='') as results_file:
+        writer = csv.writer(results_file)
+        writer.writerow(HEADER)
+
+        for wf in get_workflows():
+            total_size, input_size, file_map = gridSearch.get_files_and_size(wf)
+
+            for site_config in gridSearch.site_configs:
+                name = f"{wf['name']}_{site_config['name']}"
+
+                run_config = copy.deepcopy(site_config)
+                run_config['workflowPath'] = wf['path']
+                run_config['taskThreshold'] = N
+                run_config['secThreshold'] = T
+                id2storage = gridSearch.setup_sites(run_config, total_size)
+                random.seed(SEED)
+                gridSearch.distribute_input_files(run_config, id2storage, file_map)
+
+                run_config_path = f'./benchmark_run_configs/{name}.json'
+                with open(run_config_path, 'w') as jsonfile:
+                    json.dump(run_config, jsonfile, indent=4)
+
+                for rep in range(repetitions):
+                    print(f"[BENCHMARK] {name} ({rep + 1}/{repetitions})")
+
+                    log_path = f'{os.getcwd()}/benchmark_logs/{name}.log'
+                    result_path = f'{os.getcwd()}/benchmark_results/{name}.csv'
+                    telemetry_path = f'{os.getcwd()}/benchmark_results/{name}.telemetry.csv'
+                    for path in [result_path, telemetry_path]:
+                        if os.path.exists(path):
+                            os.remove(path)
+
+                    subprocess.run(
+                        ['java', '-cp', java_cp, 'federatedSim.FederatedTwoSites', run_config_path, log_path,
+                         result_path, telemetry_path],
+                        capture_output=True,
+                        text=True,
+                        env=gridSearch.env
+                    )
+
+                    values = read_rows(result_path)
+                    values.update(read_rows(telemetry_path))
+                    status = "SUCCESS" if os.path.exists(result_path) and os.path.exists(telemetry_path) else "FAILURE"
+
+                    writer.writerow([wf['name'], site_config['name'], rep, status]
+                                    + [values.get(column, '') for column in PERFORMANCE_COLUMNS + SIMULATION_COLUMNS])
+                    results_file.flush()
+
+
+# median of every column of the repetitions of every scenario
+def load(path):
+    scenarios = dict()
+    with open(path, mode='r') as file:
+        for row in csv.DictReader(file):
+            scenarios.setdefault((row['NAME'], row['CONFIG']), []).append(row)
+
+    medians = dict()
+    for key, rows in scenarios.items():
+        median = {'STATUS': rows[0]['STATUS']}
+        for column in PERFORMANCE_COLUMNS + SIMULATION_COLUMNS:
+            values = [float(row[column]) for row in rows if row[column] != '']
+            median[column] = statistics.median(values) if values else None
+        medians[key] = median
+    return medians
+
+
+def compare(baseline_path, current_path, tolerance):
+    baseline = load(baseline_path)
+    current = load(current_path)
+
+    flagged = 0
+    for key in sorted(baseline.keys() | current.keys()):
+        name = f"{key[0]} {key[1]}"
+        if key not in baseline or key not in current:
+            print(f"{name}: only in {'baseline' if key in baseline else 'current'}")
+            continue
+        old, new = baseline[key], current[key]
+
+        if old['STATUS'] != new['STATUS']:
+            print(f"{name}: CHANGED STATUS {old['STATUS']} -> {new['STATUS']}")
+            flagged += 1
+            continue
+
+        for column in SIMULATION_COLUMNS:
+            if old[column] is None or new[column] is None:
+                continue
+            if abs(new[column] - old[column]) > 1e-9 * max(abs(old[column]), 1.0):
+                print(f"{name}: CHANGED {column} {old[column]} -> {new[column]}")
+                flagged += 1
+
+        for column in PERFORMANCE_COLUMNS:
+            if old[column] is None or new[column] is None or old[column] < 0 or new[column] < 0:
+                continue
+            if column in ['WALL_CLOCK', 'GC_TIME'] and new[column] - old[column] < MIN_TIME_DELTA:
+                continue
+            if new[column] > old[column] * (1 + tolerance):
+                ratio = new[column] / old[column] if old[column] > 0 else float('inf')
+                print(f"{name}: REGRESSION {column} {old[column]} -> {new[column]} ({ratio:.2f}x)")
+                flagged += 1
+
+    print(f"{flagged} flagged")
+    return flagged
+
+
+if __name__ == "__main__":
+    if len(sys.argv) >= 3 and sys.argv[1] == 'run':
+        run(sys.argv[2], int(sys.argv[3]) if len(sys.argv) > 3 else 1)
+    elif len(sys.argv) >= 4 and sys.argv[1] == 'compare':
+        sys.exit(1 if compare(sys.argv[2], sys.argv[3], float(sys.argv[4]) if len(sys.argv) > 4 else 0.1) > 0 else 0)
+    else:
+        print("Usage: python3 benchmark.py run results.csv [repetitions]")
+        print("       python3 benchmark.py compare baseline.csv current.csv [tolerance]")
+        sys.exit(1)
@@ -5,10 +5,29 @@ import sys
 import subprocess
 import csv
 import json
+import threading
+from collections import deque
+from concurrent.futures import ThreadPoolExecutor
 
 SYNTHETIC_WFS = 5
 NUM_DISTRIBUTIONS = 5
 
+# number of simulations that run concurrently, can be overwritten by the first command line argument
+WORKERS = os.cpu_count() or 1
+
+# with "batch" as second command line argument, every worker keeps one JVM that runs its trials one after another
+# (federatedSim.FederatedBatch), so the JVM starts once per worker and every workflow is parsed once per worker
+BATCH = False
+
+# with "prune" as third command line argument, a trial ends as soon as it has transferred more data than the best
+# finished trial of the same workflow, site config and distribution (config key maxTransferredData); it is reported as
+# PRUNED with the transfer factor up to that point, a lower bound of its real one
+# a trial that lost jobs on the way is reported as INCOMPLETE, it never counts as the best finished trial
+PRUNE = False
+
+# the least transferred data of the finished trials, by (workflow, site config, distribution)
+best_transferred = {}
+
 
 def generate_synthetic_workflows():
     wfs = list()
@@ -282,8 +301,110 @@ site_configs = [site_conf_2_site, site_conf_3_site_small, site_conf_3_site_large
 
 java_cp = '../bin'
 
+def run_trial(run_config_path, log_path, result_path):
+    return subprocess.run(
+        ['java', '-cp', java_cp, 'federatedSim.FederatedTwoSites' , run_config_path, log_path, result_path ],
+        capture_output=True,
+        text=True,
+        env=env
+    )
+
+
+# the JVM of the current worker thread, and all JVMs to close them at the end
+batch_local = threading.local()
+batch_processes = []
+batch_lock = threading.Lock()
+
+def run_trial_batch(run_config_path, log_path, result_path):
+    process = getattr(batch_local, 'process', None)
+    if process is None or process.poll() is not None:
+        with batch_lock:
+            err_path = os.getcwd() + f"/grid_search_logs/batch_worker{len(batch_processes)}.err"
+            process = subprocess.Popen(
+                ['java', '-cp', java_cp, 'federatedSim.FederatedBatch'],
+                stdin=subprocess.PIPE,
+                stdout=subprocess.PIPE,
+                stderr=open(err_path, mode='a'),
+                text=True,
+                env=env
+            )
+            batch_processes.append(process)
+        batch_local.process  = process
+        batch_local.err_path = err_path
+
+    args = f"{run_config_path} {log_path} {result_path}"
+    process.stdin.write(args + "\n")
+    process.stdin.flush()
+
+    # wait for the run to finish, the JVM only prints the DONE lines
+    for line in process.stdout:
+        if line.startswith("DONE "):
+            return subprocess.CompletedProcess(args, 0, "", f"see {batch_local.err_path}\n")
+
+    # the JVM died, the next trial of this worker starts a new one
+    return subprocess.CompletedProcess(args, 1, "", f"JVM exited, see {batch_local.err_path}\n")
+
+
+def close_batch_processes():
+    for process in batch_processes:
+        process.stdin.close()
+        process.wait()
+
+
+def read_trial_result(result_path):
+    transferred_size = 0
+    status = "SUCCESS"
+
+    with open(result_path, mode='r') as file:
+        reader = csv.reader(file)
+        for row in reader:
+            if not row:
+                continue
+            measure, value = row
+            if measure == ("TransferredData"):
+                transferred_size = float(value)
+            elif measure == "Status":
+                status = value
+
+    return transferred_size, status
+
+
+def update_best_transferred(key, transferred_size, status):
+    if status == "SUCCESS":
+        best_transferred[key] = min(transferred_size, best_transferred.get(key, transferred_size))
+
+
+def write_trial_result(final_result_writer, future, name, input_size, n, t, site_config_name, i, log_path, result_path):
+    result = future.result()
+
+    # check if a result was written, else it's a failure (which is acceptable under some circumstances)
+    if not os.path.exists(result_path):
+        with open(log_path, mode='a') as log_file:
+            log_file.write("ERROR: \n")
+            log_file.write(result.stderr)
+
+        final_result_writer.writerow([name, 0, n, t, "FAILURE", site_config_name, i])
+        return
+
+    # regular trail behaviour
+    transferred_size, status = read_trial_result(result_path)
+
+    transfer_factor = transferred_size / input_size
+
+    update_best_transferred((name, site_config_name, i), transferred_size, status)
+
+    final_result_writer.writerow([name, transfer_factor, n, t, status, site_config_name, i])
+
+
 if __name__ == "__main__":
 
+    if len(sys.argv) > 1:
+        WORKERS = int(sys.argv[1])
+    if len(sys.argv) > 2:
+        BATCH = sys.argv[2] == "batch"
+    if len(sys.argv) > 3:
+        PRUNE = sys.argv[3] == "prune"
+
     sys.path.append(os.path.join(os.getcwd(), 'synthetic_wf_scripts'))
 
     import distribution
@@ -317,6 +438,10 @@ if __name__ == "__main__":
         final_result_writer = csv.writer(result_file)
         final_result_writer.writerow(['NAME', 'TRANSFER-FACTOR', 'N', 'T', 'STATUS', 'CONFIG', 'DISTRIBUTION'])
 
+        # trials run concurrently, inputs and configs are still generated in order (same random choices as a sequential run)
+        executor = ThreadPoolExecutor(max_workers=WORKERS)
+        pending = deque()
+
         run_counter = 0
         for wf in wfs:
 
@@ -348,6 +473,12 @@ if __name__ == "__main__":
                             run_config['taskThreshold'] = n
                             run_config['secThreshold']  = t
 
+                            # bound by the best trial of this distribution that has finished so far
+                            key = (wf.get('name'), site_config['name'], i)
+                            best = best_transferred.get(key)
+                            if PRUNE and best:
+                                run_config['maxTransferredData'] = best
+
                             run_config_path = f'./grid_search_run_configs/{name}.json'
 
                             # write run config
@@ -360,37 +491,27 @@ if __name__ == "__main__":
                             log_path = os.getcwd() + "/grid_search_logs/" + name + ".log"
                             result_path = os.getcwd() + "/grid_search_results/" + name + ".csv"
 
-                            result = subprocess.run(
-                                ['java', '-cp', java_cp, 'federatedSim.FederatedTwoSites' , run_config_path, log_path, result_path ],
-                                capture_output=True,
-                                text=True,
-                                env=env
-                            )
-
-                            # check if a result was written, else it's a failure (which is acceptable under some circumstances)
-                            if not os.path.exists(result_path):
-                                with open(log_path, mode='a') as log_file:
-                                    log_file.write("ERROR: \n")
-                                    log_file.write(result.stderr)
-
-                                final_result_writer.writerow([wf.get('name'), 0, n, t, "FAILURE", site_config['name'], i])
-                                continue
-
-                            # regular trail behaviour
-                            transferred_size = 0
+                            # a result file of an earlier grid search would be taken for the result of a failed trial
+                            if os.path.exists(result_path):
+                                os.remove(result_path)
 
-                            # read results
-                            with open(result_path, mode='r') as file:
-                                reader = csv.reader(file)
-                                for row in reader:
-                                    if not row:
-                                        continue
-                                    measure, value = row
-                                    if measure == ("TransferredData"):
-                                        transferred_size = float(value)
+                            future = executor.submit(run_trial_batch if BATCH else run_trial, run_config_path, log_path, result_path)
+                            pending.append((future, wf.get('name'), input_size, n, t, site_config['name'], i, log_path, result_path))
 
-                            transfer_factor = transferred_size / input_size
+                            # the trials of a distribution are submitted at once, without a finished trial none of
+                            # them would be bounded: wait for the first one, the other trials get its result as bound
+                            if PRUNE and key not in best_transferred:
+                                future.result()
+                                if os.path.exists(result_path):
+                                    update_best_transferred(key, *read_trial_result(result_path))
 
-                            final_result_writer.writerow([wf.get('name'), transfer_factor, n, t, "SUCCESS", site_config['name'], i])
+                            # write finished trials, keep the order of submission
+                            while pending and pending[0][0].done():
+                                write_trial_result(final_result_writer, *pending.popleft())
 
+        # wait for the remaining trials
+        while pending:
+            write_trial_result(final_result_writer, *pending.popleft())
 
+        executor.shutdown()
+        close_batch_processes()
@@ -0,0 +1,150 @@
+package federatedSim;
+
+import java.io.Serializable;
+
+import org.cloudbus.cloudsim.Log;
+
+// Adapts the task threshold N and the time threshold T of a scheduler during the simulation, so that one run can
+// replace a sweep over (N, T). The thresholds start at the configured values and stay within the configured bounds.
+//
+// After every scheduling round (except the first, which has no history), the thresholds are adjusted from what happened
+// since the previous round (a round at the same simulated time is carried over to the next one):
+// - retry rate: storage overflows (see WorkflowScheduler.exceededStorageMap) per job of the previous round
+// - prediction error: mean relative error of the output sizes that DynamicAbstractDag predicted for the finished jobs
+// - queue growth: jobs that were added to the queue per second of simulated time
+// If the retry rate or the prediction error is above its limit, batches were placed on a wrong view of the storages,
+// N and T are halved so that smaller batches are placed more often with fresher information. Otherwise the batches are
+// allowed to grow: N if the queue grows fast enough to reach N within T (batches are bound by N), else T, unless no
+// jobs were added at all.
+//
+// Every change is logged, summary() gives the values the run settled on.
+public class AdaptiveThresholds implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int minTaskThreshold;
+	private final int maxTaskThreshold;
+	private final int minSecThreshold;
+	private final int maxSecThreshold;
+	private final double maxRetryRate;
+	private final double maxPredictionError;
+
+	// additive steps when a threshold grows, a tenth of its range
+	private final int taskStep;
+	private final int secStep;
+
+	private int taskThreshold;
+	private int secThreshold;
+
+	// state at the previous round
+	private int rounds = 0;
+	private int lastWaiting = 0;
+	private int lastScheduled = 0;
+
+	// state at the previous adaptation, rounds at the same simulated time are carried over to the next adaptation
+	private double lastAdaptationTime = 0.0;
+	private int addedSinceAdaptation = 0;
+	private int scheduledSinceAdaptation = 0;
+	private long lastRetries = 0;
+	private double lastPredictionErrorSum = 0.0;
+	private long lastPredictions = 0;
+
+	// sums over the rounds for the means of the summary
+	private long taskThresholdSum = 0;
+	private long secThresholdSum = 0;
+
+	public AdaptiveThresholds(int taskThreshold, int minTaskThreshold, int maxTaskThreshold,
+							  int secThreshold, int minSecThreshold, int maxSecThreshold,
+							  double maxRetryRate, double maxPredictionError) {
+		if (minTaskThreshold < 0 || minTaskThreshold > maxTaskThreshold || minSecThreshold < 0
+				|| minSecThreshold > maxSecThreshold) {
+			throw new IllegalArgumentException("Adaptive thresholds need 0 <= min <= max for N and T");
+		}
+		this.minTaskThreshold   = minTaskThreshold;
+		this.maxTaskThreshold   = maxTaskThreshold;
+		this.minSecThreshold    = minSecThreshold;
+		this.maxSecThreshold    = maxSecThreshold;
+		this.maxRetryRate       = maxRetryRate;
+		this.maxPredictionError = maxPredictionError;
+
+		this.taskStep = Math.max(1, (maxTaskThreshold - minTaskThreshold) / 10);
+		this.secStep  = Math.max(1, (maxSecThreshold - minSecThreshold) / 10);
+
+		this.taskThreshold = Math.min(maxTaskThreshold, Math.max(minTaskThreshold, taskThreshold));
+		this.secThreshold  = Math.min(maxSecThreshold, Math.max(minSecThreshold, secThreshold));
+	}
+
+	public int getTaskThreshold() { return taskThreshold; }
+	public int getSecThreshold() { return secThreshold; }
+
+	// called after a scheduling round with the jobs that waited for it, the jobs it scheduled and the storage overflows
+	// of the simulation so far
+	public void roundFinished(double time, int waiting, int scheduled, long retries) {
+		double predictionErrorSum = DynamicAbstractDag.getPredictionErrorSum();
+		long predictions          = DynamicAbstractDag.getPredictions();
+
+		boolean adapted = false;
+		if (rounds > 0) {
+			// jobs that were added to the queue since the previous round
+			addedSinceAdaptation     += waiting - (lastWaiting - lastScheduled);
+			scheduledSinceAdaptation += lastScheduled;
+
+			// without elapsed time there is no queue growth, the counts wait for the next round
+			double elapsed = time - lastAdaptationTime;
+			if (elapsed > 0) {
+				double queueGrowth = addedSinceAdaptation / elapsed;
+				double retryRate = (double) (retries - lastRetries) / Math.max(1, scheduledSinceAdaptation);
+				double predictionError = predictions > lastPredictions
+						? (predictionErrorSum - lastPredictionErrorSum) / (predictions - lastPredictions) : 0.0;
+
+				adapt(time, queueGrowth, retryRate, predictionError);
+				adapted = true;
+			}
+		}
+
+		rounds++;
+		taskThresholdSum += taskThreshold;
+		secThresholdSum  += secThreshold;
+
+		lastWaiting   = waiting;
+		lastScheduled = scheduled;
+
+		if (rounds == 1 || adapted) {
+			lastAdaptationTime       = time;
+			addedSinceAdaptation     = 0;
+			scheduledSinceAdaptation = 0;
+			lastRetries              = retries;
+			lastPredictionErrorSum   = predictionErrorSum;
+			lastPredictions          = predictions;
+		}
+	}
+
+	private void adapt(double time, double queueGrowth, double retryRate, double predictionError) {
+		int newTaskThreshold = taskThreshold;
+		int newSecThreshold  = secThreshold;
+
+		if (retryRate > maxRetryRate || predictionError > maxPredictionError) {
+			newTaskThreshold = Math.max(minTaskThreshold, taskThreshold / 2);
+			newSecThreshold  = Math.max(minSecThreshold, secThreshold / 2);
+		} else if (queueGrowth * secThreshold >= taskThreshold) {
+			newTaskThreshold = Math.min(maxTaskThreshold, taskThreshold + taskStep);
+		} else if (queueGrowth > 0) {
+			newSecThreshold = Math.min(maxSecThreshold, secThreshold + secStep);
+		}
+
+		if (newTaskThreshold != taskThreshold || newSecThreshold != secThreshold) {
+			taskThreshold = newTaskThreshold;
+			secThreshold  = newSecThreshold;
+			Log.printLine(time + ": Adaptive thresholds: N = " + taskThreshold + ", T = " + secThreshold
+					+ " (queue growth " + queueGrowth + " jobs/s, retry rate " + retryRate + ", prediction error "
+					+ predictionError + ")");
+		}
+	}
+
+	// the final thresholds and their means over the scheduling rounds
+	public String summary() {
+		return "Adaptive thresholds after " + rounds + " rounds: N = " + taskThreshold + ", T = " + secThreshold
+				+ ", mean N = " + (rounds > 0 ? (double) taskThresholdSum / rounds : taskThreshold)
+				+ ", mean T = " + (rounds > 0 ? (double) secThresholdSum / rounds : secThreshold);
+	}
+}
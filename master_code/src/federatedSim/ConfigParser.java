@@ -17,6 +17,81 @@ public class ConfigParser {
     private int taskThreshold;
     private int secThreshold;
 
+    // optional, recycle simulation events (see CloudSim.setEventPooling)
+    private boolean eventPooling = false;
+
+    // optional, threads of the parallel kernel with one logical process per site (see CloudSim.setParallelism),
+    // 1 = sequential kernel
+    private int parallelKernel = 1;
+
+    // optional, prefetch outputs to the predicted sites of children
+    private boolean prefetching = false;
+
+    // optional, split stage-in transfers across all replica holders
+    private boolean striping = false;
+
+    // optional, bytes from which a file is striped, smaller files come from their best holder
+    private double stripingMinSize = 64.0 * 1024 * 1024;
+
+    // optional, share inter-site links among concurrent transfers
+    private boolean networkModel = false;
+
+    // optional, coalesce the files of a scheduling round from the same site into one transfer
+    private boolean batching = false;
+
+    // optional, route transfers over the widest paths between sites
+    private boolean relayRouting = false;
+
+    // optional, BRITE file that replaces the connections, implies relay routing
+    private String topologyFile = null;
+
+    // optional, place jobs of a batch that share input files on the same site
+    private boolean colocation = false;
+
+    // optional, bytes per site for replicas of hot files, 0 = no replication
+    private double replicationBudget = 0.0;
+
+    // optional, a file is hot and replicated if at least this many jobs read it
+    private int hotFanOut = 3;
+
+    // optional, weight of the estimated finish time against the transferred bytes for strategy CP (0 to 1)
+    private double makespanWeight = 0.5;
+
+    // optional, file for the summary of the simulation metrics (JSON if it ends with .json, CSV otherwise)
+    private String metricsPath = null;
+
+    // optional, file for time series of storage, running jobs and link throughput, sampled every timeSeriesInterval
+    // seconds of simulated time, timeSeriesDownsample samples are aggregated into one row
+    private String timeSeriesPath = null;
+    private double timeSeriesInterval = 10.0;
+    private int timeSeriesDownsample = 1;
+
+    // optional, file for the trace of the scheduling rounds (gzipped), to replay them offline with SchedulerReplay
+    private String schedulerTracePath = null;
+
+    // optional, adapt N and T during the run within [min, max] (see AdaptiveThresholds), by default from 1 to 4 * N
+    // and from 0 to 4 * T; N and T are halved when more than maxRetryRate of the jobs of a round exceed their storage
+    // or the output sizes are mispredicted by more than maxPredictionError
+    private boolean adaptiveThresholds = false;
+    private int taskThresholdMin;
+    private int taskThresholdMax;
+    private int secThresholdMin;
+    private int secThresholdMax;
+    private double maxRetryRate = 0.05;
+    private double maxPredictionError = 0.5;
+
+    // optional, cutoffs that end the run early with status PRUNED (see RunBudget): simulated seconds, bytes
+    // transferred between sites, jobs that exceeded their storage and wall-clock seconds, 0 = no cutoff
+    private double maxSimulatedTime = 0.0;
+    private double maxTransferredData = 0.0;
+    private long maxStorageRetries = 0;
+    private double maxWallTime = 0.0;
+
+    // optional, binary log of the status changes of all jobs and tasks (see CloudletLifecycleLog)
+    private String lifecycleLogPath = null;
+
+    // optional, record the text history of every job and task (see Cloudlet.getCloudletHistory)
+    private boolean cloudletHistory = false;
 
     private HashMap<Integer, Site> id2site = new HashMap<>();
 
@@ -40,6 +115,92 @@ public class ConfigParser {
         taskThreshold = jsonObject.get("taskThreshold").getAsInt();
         secThreshold  = jsonObject.get("secThreshold").getAsInt();
 
+        if (jsonObject.has("eventPooling")) {
+            eventPooling = jsonObject.get("eventPooling").getAsBoolean();
+        }
+        if (jsonObject.has("parallelKernel")) {
+            parallelKernel = jsonObject.get("parallelKernel").getAsInt();
+        }
+        if (jsonObject.has("prefetching")) {
+            prefetching = jsonObject.get("prefetching").getAsBoolean();
+        }
+        if (jsonObject.has("striping")) {
+            striping = jsonObject.get("striping").getAsBoolean();
+        }
+        if (jsonObject.has("stripingMinSize")) {
+            stripingMinSize = jsonObject.get("stripingMinSize").getAsDouble();
+        }
+        if (jsonObject.has("networkModel")) {
+            networkModel = jsonObject.get("networkModel").getAsBoolean();
+        }
+        if (jsonObject.has("batching")) {
+            batching = jsonObject.get("batching").getAsBoolean();
+        }
+        if (jsonObject.has("relayRouting")) {
+            relayRouting = jsonObject.get("relayRouting").getAsBoolean();
+        }
+        if (jsonObject.has("topologyFile")) {
+            topologyFile = jsonObject.get("topologyFile").getAsString();
+        }
+        if (jsonObject.has("colocation")) {
+            colocation = jsonObject.get("colocation").getAsBoolean();
+        }
+        if (jsonObject.has("replicationBudget")) {
+            replicationBudget = jsonObject.get("replicationBudget").getAsDouble();
+        }
+        if (jsonObject.has("hotFanOut")) {
+            hotFanOut = jsonObject.get("hotFanOut").getAsInt();
+        }
+        if (jsonObject.has("makespanWeight")) {
+            makespanWeight = jsonObject.get("makespanWeight").getAsDouble();
+        }
+        if (jsonObject.has("metricsPath")) {
+            metricsPath = jsonObject.get("metricsPath").getAsString();
+        }
+        if (jsonObject.has("timeSeriesPath")) {
+            timeSeriesPath = jsonObject.get("timeSeriesPath").getAsString();
+        }
+        if (jsonObject.has("timeSeriesInterval")) {
+            timeSeriesInterval = jsonObject.get("timeSeriesInterval").getAsDouble();
+        }
+        if (jsonObject.has("timeSeriesDownsample")) {
+            timeSeriesDownsample = jsonObject.get("timeSeriesDownsample").getAsInt();
+        }
+        if (jsonObject.has("schedulerTracePath")) {
+            schedulerTracePath = jsonObject.get("schedulerTracePath").getAsString();
+        }
+        if (jsonObject.has("adaptiveThresholds")) {
+            adaptiveThresholds = jsonObject.get("adaptiveThresholds").getAsBoolean();
+        }
+        taskThresholdMin = jsonObject.has("taskThresholdMin") ? jsonObject.get("taskThresholdMin").getAsInt() : 1;
+        taskThresholdMax = jsonObject.has("taskThresholdMax") ? jsonObject.get("taskThresholdMax").getAsInt() : Math.max(1, 4 * taskThreshold);
+        secThresholdMin  = jsonObject.has("secThresholdMin") ? jsonObject.get("secThresholdMin").getAsInt() : 0;
+        secThresholdMax  = jsonObject.has("secThresholdMax") ? jsonObject.get("secThresholdMax").getAsInt() : Math.max(1, 4 * secThreshold);
+        if (jsonObject.has("maxRetryRate")) {
+            maxRetryRate = jsonObject.get("maxRetryRate").getAsDouble();
+        }
+        if (jsonObject.has("maxPredictionError")) {
+            maxPredictionError = jsonObject.get("maxPredictionError").getAsDouble();
+        }
+        if (jsonObject.has("maxSimulatedTime")) {
+            maxSimulatedTime = jsonObject.get("maxSimulatedTime").getAsDouble();
+        }
+        if (jsonObject.has("maxTransferredData")) {
+            maxTransferredData = jsonObject.get("maxTransferredData").getAsDouble();
+        }
+        if (jsonObject.has("maxStorageRetries")) {
+            maxStorageRetries = jsonObject.get("maxStorageRetries").getAsLong();
+        }
+        if (jsonObject.has("maxWallTime")) {
+            maxWallTime = jsonObject.get("maxWallTime").getAsDouble();
+        }
+        if (jsonObject.has("lifecycleLogPath")) {
+            lifecycleLogPath = jsonObject.get("lifecycleLogPath").getAsString();
+        }
+        if (jsonObject.has("cloudletHistory")) {
+            cloudletHistory = jsonObject.get("cloudletHistory").getAsBoolean();
+        }
+
 
         // ### PARSE SITES ###
         JsonArray jsonArraySites = jsonObject.getAsJsonArray("sites");
@@ -61,18 +222,24 @@ public class ConfigParser {
         }
 
         // ### PARSE CONNECTIONS ###
+        // a topology file replaces the connections
+        if (topologyFile != null && !jsonObject.has("connections")) {
+            return;
+        }
         JsonArray jsonArrayConnections = jsonObject.getAsJsonArray("connections");
         for (JsonElement connElement : jsonArrayConnections) {
             JsonObject connObj = connElement.getAsJsonObject();
             int site1Id      = connObj.get("site1Id").getAsInt();
             int site2Id      = connObj.get("site2Id").getAsInt();
             double bandwidth = connObj.get("bandwidth").getAsDouble();
+            // optional, latency of a transfer in seconds
+            double latency   = connObj.has("latency") ? connObj.get("latency").getAsDouble() : 0.0;
 
             Site site1 = id2site.get(site1Id);
             Site site2 = id2site.get(site2Id);
 
-            site1.addConnection(site2Id, bandwidth);
-            site2.addConnection(site1Id, bandwidth);
+            site1.addConnection(site2Id, bandwidth, latency);
+            site2.addConnection(site1Id, bandwidth, latency);
         }
 
     }
@@ -86,6 +253,37 @@ public class ConfigParser {
     public Map<Integer, Site> getDatacentersSpecs() { return id2site; }
     public int getSecThreshold() { return secThreshold; }
     public int getTaskThreshold() { return taskThreshold; }
+    public boolean isEventPooling() { return eventPooling; }
+    public int getParallelKernel() { return parallelKernel; }
+    public boolean isPrefetching() { return prefetching; }
+    public boolean isStriping() { return striping; }
+    public double getStripingMinSize() { return stripingMinSize; }
+    public boolean isNetworkModel() { return networkModel; }
+    public boolean isBatching() { return batching; }
+    public boolean isRelayRouting() { return relayRouting || topologyFile != null; }
+    public String getTopologyFile() { return topologyFile; }
+    public boolean isColocation() { return colocation; }
+    public double getReplicationBudget() { return replicationBudget; }
+    public int getHotFanOut() { return hotFanOut; }
+    public double getMakespanWeight() { return makespanWeight; }
+    public String getMetricsPath() { return metricsPath; }
+    public String getTimeSeriesPath() { return timeSeriesPath; }
+    public double getTimeSeriesInterval() { return timeSeriesInterval; }
+    public int getTimeSeriesDownsample() { return timeSeriesDownsample; }
+    public String getSchedulerTracePath() { return schedulerTracePath; }
+    public boolean isAdaptiveThresholds() { return adaptiveThresholds; }
+    public int getTaskThresholdMin() { return taskThresholdMin; }
+    public int getTaskThresholdMax() { return taskThresholdMax; }
+    public int getSecThresholdMin() { return secThresholdMin; }
+    public int getSecThresholdMax() { return secThresholdMax; }
+    public double getMaxRetryRate() { return maxRetryRate; }
+    public double getMaxPredictionError() { return maxPredictionError; }
+    public double getMaxSimulatedTime() { return maxSimulatedTime; }
+    public double getMaxTransferredData() { return maxTransferredData; }
+    public long getMaxStorageRetries() { return maxStorageRetries; }
+    public double getMaxWallTime() { return maxWallTime; }
+    public String getLifecycleLogPath() { return lifecycleLogPath; }
+    public boolean isCloudletHistory() { return cloudletHistory; }
 
     public class Site {
         private Integer id;
@@ -98,6 +296,9 @@ public class ConfigParser {
         // maps other siteId to bandwidth with this site
         private Map<Integer, Double> otherId2Bandwidth = new HashMap<>();
 
+        // maps other siteId to latency with this site
+        private Map<Integer, Double> otherId2Latency = new HashMap<>();
+
         private ArrayList<File> files = new ArrayList<File>();
 
         public Site(JsonObject site) {
@@ -115,12 +316,13 @@ public class ConfigParser {
             files.add(file);
         }
 
-        protected void addConnection(int otherId, double bandwidth) {
+        protected void addConnection(int otherId, double bandwidth, double latency) {
             if (otherId2Bandwidth.containsKey(otherId)) {
                 throw new RuntimeException("ConfigParser tried to configure same bandwidth more than once");
             }
 
             otherId2Bandwidth.put(otherId, bandwidth);
+            otherId2Latency.put(otherId, latency);
         }
 
         // getters
@@ -132,6 +334,7 @@ public class ConfigParser {
         public int getMips() { return mips; }
         public int getPes() { return pes; }
         public Map<Integer, Double> getConnectionMap() { return otherId2Bandwidth; }
+        public Map<Integer, Double> getLatencyMap() { return otherId2Latency; }
         public double getIntraBw() { return intraBw; }
     }
 
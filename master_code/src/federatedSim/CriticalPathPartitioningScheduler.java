@@ -0,0 +1,207 @@
+package federatedSim;
+
+import org.cloudbus.cloudsim.File;
+import org.workflowsim.CondorVM;
+import org.workflowsim.Job;
+import org.workflowsim.Task;
+import org.workflowsim.planning.HEFTPlanningAlgorithm;
+import org.workflowsim.utils.Parameters;
+
+import java.util.*;
+
+// Partitioning strategy "CP": the greedy strategy only counts transferred bytes and ignores how busy a site is, so work
+// piles up on small sites. This strategy places every job on the site with the lowest combination of
+// - the bytes of its inputs that would have to be moved to the site, and
+// - its estimated finish time on the site: the time until its inputs arrive over the links or until the site has a free
+//   PE (from the work that is still queued on the site), whichever is later, plus its runtime on the site
+// Both are normalized by their maximum over the candidate sites. The weight of the finish time is the makespan weight of
+// the config, scaled with the job's criticality: its HEFT upward rank relative to the rank of the entry of the critical
+// path. So jobs on the critical path go where they finish first, jobs with much slack stay where their data is.
+// Jobs of a batch are placed in HEFT order (descending rank). Sites that are predicted to run out of storage for the
+// job's subtree are only used if no other site can fit it. Start jobs and retried start jobs are handled like in the
+// greedy strategy.
+public class CriticalPathPartitioningScheduler extends PartitioningScheduler {
+
+	// HEFT upward rank of every job by cloudlet id, and the largest rank (length of the critical path)
+	// static, because a new scheduler is created for every batch
+	private static Map<Integer, Double> ranks = new HashMap<>();
+	private static double maxRank = 0.0;
+
+	// jobs that were scheduled and have not been returned yet, by cloudlet id
+	private static Map<Integer, Job> outstandingJobs = new HashMap<>();
+
+	// length of the outstanding jobs and their number per site
+	private double[] outstandingLength;
+	private int[] outstandingCount;
+
+	@Override
+	protected void initialPartitioning(List<Job> startJobs) {
+		ranks = computeRanks(startJobs);
+		maxRank = 0.0;
+		for (double rank : ranks.values()) {
+			maxRank = Math.max(maxRank, rank);
+		}
+		outstandingJobs = new HashMap<>();
+
+		super.initialPartitioning(startJobs);
+	}
+
+	@Override
+	protected void scheduleJob(Job job, int id) {
+		super.scheduleJob(job, id);
+		outstandingJobs.put(job.getCloudletId(), job);
+		if (outstandingLength != null) {
+			outstandingLength[id] += job.getCloudletTotalLength();
+			outstandingCount[id]++;
+		}
+	}
+
+	@Override
+	protected void partitionBatch(List<Job> jobList) {
+
+		// queued work per site, from the jobs that have not returned yet
+		for (Object o : getReceivedList()) {
+			outstandingJobs.remove(((Job) o).getCloudletId());
+		}
+		outstandingLength = new double[vmNum];
+		outstandingCount  = new int[vmNum];
+		for (Job job : outstandingJobs.values()) {
+			outstandingLength[job.getVmId()] += job.getCloudletTotalLength();
+			outstandingCount[job.getVmId()]++;
+		}
+
+		// HEFT order
+		List<Job> jobs = new ArrayList<>(jobList);
+		jobs.sort(Comparator.comparingDouble((Job job) -> -getRank(job)).thenComparingInt(Job::getCloudletId));
+
+		double makespanWeight = Parameters.getMakespanWeight();
+		for (Job job : jobs) {
+
+			// retried start jobs are handled like in the greedy strategy
+			if (job.getParentList().size() == 0) {
+				handleRetriedStartJob(job);
+				continue;
+			}
+
+			Set<Integer> exceededDatacenterIds = getExceededDatacenterIds(job);
+			Set<Integer> eligibleSites = getSitesThatCanFitInputs(job, exceededDatacenterIds);
+			eligibleSites.removeIf(i -> exceededDatacenterIds.contains(datacenterIds[i]));
+			if (eligibleSites.isEmpty()) {
+				throw new RuntimeException("Job " + job.getTaskList().get(0).getType() + " has exceeded all sides storages and cannot be scheduled, or input files fit into no storage halting simulation");
+			}
+
+			// prefer sites that are predicted to fit the job's subtree
+			double jobSize = DynamicAbstractDag.getEstimatedSize4SubDAG(job);
+			Set<Integer> candidates = new TreeSet<>();
+			for (int i : eligibleSites) {
+				if (predictedAvailableStorage[i] >= jobSize) {
+					candidates.add(i);
+				}
+			}
+			if (candidates.isEmpty()) {
+				candidates.addAll(eligibleSites);
+			}
+
+			double[] bytes = getMissingInputBytes(job);
+			double[] finishTimes = getFinishTimes(job);
+			double maxBytes = 0.0;
+			double maxFinishTime = 0.0;
+			for (int i : candidates) {
+				maxBytes      = Math.max(maxBytes, bytes[i]);
+				maxFinishTime = Math.max(maxFinishTime, finishTimes[i]);
+			}
+
+			double weight = maxRank > 0 ? makespanWeight * getRank(job) / maxRank : makespanWeight;
+			int siteId = -1;
+			double bestScore = Double.MAX_VALUE;
+			for (int i : candidates) {
+				double score = (1 - weight) * (maxBytes > 0 ? bytes[i] / maxBytes : 0.0)
+						+ weight * (maxFinishTime > 0 ? finishTimes[i] / maxFinishTime : 0.0);
+				if (score < bestScore) {
+					bestScore = score;
+					siteId = i;
+				}
+			}
+
+			scheduleJob(job, siteId);
+
+			// same bookkeeping as moveJob
+			int continuationSiteId = deriveBestSiteContinuation(job);
+			if (siteId != continuationSiteId) {
+				predictedAvailableStorage[continuationSiteId] += jobSize;
+				predictedAvailableStorage[siteId]             -= jobSize;
+				DynamicAbstractDag.updateShiftArray(job, siteId, continuationSiteId);
+			}
+		}
+	}
+
+	// rank of a job, retried jobs have the rank of their original job
+	private double getRank(Job job) {
+		int id = job.getCloudletId();
+		if (retriedJobsSetUnion.contains(id)) {
+			id = retriedJobsSetUnion.find(id);
+		}
+		return ranks.getOrDefault(id, 0.0);
+	}
+
+	// HEFT upward ranks of all jobs reachable from the start jobs, on the sites' vms
+	private Map<Integer, Double> computeRanks(List<Job> startJobs) {
+		Map<Integer, Job> id2job = new TreeMap<>();
+		Deque<Job> queue = new ArrayDeque<>(startJobs);
+		while (!queue.isEmpty()) {
+			Job job = queue.poll();
+			if (id2job.putIfAbsent(job.getCloudletId(), job) != null) {
+				continue;
+			}
+			for (Task child : job.getChildList()) {
+				queue.add((Job) child);
+			}
+		}
+
+		List<CondorVM> siteVms = new ArrayList<>();
+		for (int i = 0; i < vmNum; i++) {
+			siteVms.add((CondorVM) datacenters[i].getVmList().get(0));
+		}
+
+		HEFTPlanningAlgorithm heft = new HEFTPlanningAlgorithm();
+		heft.setTaskList(new ArrayList<>(id2job.values()));
+		heft.setVmList(siteVms);
+
+		Map<Integer, Double> jobRanks = new HashMap<>();
+		for (Map.Entry<Task, Double> entry : heft.computeRanks().entrySet()) {
+			jobRanks.put(entry.getKey().getCloudletId(), entry.getValue());
+		}
+		return jobRanks;
+	}
+
+	// bytes of the job's inputs that are not stored on a site, for every site
+	private double[] getMissingInputBytes(Job job) {
+		double[] bytes = new double[vmNum];
+		for (Object o : job.getFileList()) {
+			File file = (File) o;
+			if (file.getType() != Parameters.FileType.INPUT.value) {
+				continue;
+			}
+			for (int i = 0; i < vmNum; i++) {
+				if (!storages[i].contains(file.getName())) {
+					bytes[i] += file.getSize();
+				}
+			}
+		}
+		return bytes;
+	}
+
+	// estimated finish time of the job on every site, relative to now
+	// a site with a free PE starts the job when its inputs arrive, otherwise when the queued work has drained
+	private double[] getFinishTimes(Job job) {
+		double[] transferTimes = getTransferTimes(job);
+		double[] finishTimes = new double[vmNum];
+		for (int i = 0; i < vmNum; i++) {
+			CondorVM vm = (CondorVM) datacenters[i].getVmList().get(0);
+			double readyTime = outstandingCount[i] < vm.getNumberOfPes() ? 0.0
+					: outstandingLength[i] / (vm.getNumberOfPes() * vm.getMips());
+			finishTimes[i] = Math.max(readyTime, transferTimes[i]) + job.getCloudletTotalLength() / vm.getMips();
+		}
+		return finishTimes;
+	}
+}
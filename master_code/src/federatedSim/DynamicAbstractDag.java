@@ -1,5 +1,6 @@
 package federatedSim;
 
+import java.io.Serializable;
 import java.util.*;
 import java.util.Arrays;
 
@@ -15,6 +16,12 @@ public class DynamicAbstractDag {
 
 	public static void init(List<Task> tasks) {
 		name2node = new HashMap<>();
+
+		// state of a previous simulation in the same JVM
+		startNodes         = new ArrayList<>();
+		numReceivedTasks   = 0;
+		predictionErrorSum = 0.0;
+		predictions        = 0;
 		
 		
 		for (Task task : tasks) {
@@ -102,6 +109,14 @@ public class DynamicAbstractDag {
 	// update of dynamic information
 	private static int numReceivedTasks = 0;
 
+	// sum of the relative errors |predicted - actual| / max(predicted, actual) of the output sizes of finished jobs,
+	// and the number of finished jobs, see AdaptiveThresholds
+	private static double predictionErrorSum = 0.0;
+	private static long predictions = 0;
+
+	public static double getPredictionErrorSum() { return predictionErrorSum; }
+	public static long getPredictions() { return predictions; }
+
 	// update dynamic output size of finished tasks
 	// also updated the dependency structure from finished jobs to their children
 	// we can derive the children here, because these jobs have been processed by the WfEngine and we therefore now know which children it has
@@ -131,6 +146,12 @@ public class DynamicAbstractDag {
 				}
 			}
 
+			// error of the output size the partitioner assumed for this job
+			double predicted = node.getAssumedOrPredictedOutputSize();
+			double larger    = Math.max(predicted, outputSize);
+			predictionErrorSum += larger > 0 ? Math.abs(predicted - outputSize) / larger : 0.0;
+			predictions++;
+
 			// update average output size
 			node.updateAverageOutputSize(outputSize);
 
@@ -282,6 +303,26 @@ public class DynamicAbstractDag {
 		return name2node.get(job.getTaskList().get(0).getType()).getAssumedOrPredictedInputSize();
 	}
 
+	// returns the predicted number of jobs per site for the given job's type
+	public static int[] getTaskEstimates(Job job) {
+		return name2node.get(job.getTaskList().get(0).getType()).getTaskEstimates();
+	}
+
+	// returns the complete dynamic DAG, used to store it in simulation snapshots
+	public static Object[] getState() {
+		return new Object[]{name2node, startNodes, numReceivedTasks, predictionErrorSum, predictions};
+	}
+
+	// replaces the dynamic DAG with a state returned by getState()
+	@SuppressWarnings("unchecked")
+	public static void setState(Object[] state) {
+		name2node          = (HashMap<String, DynamicAbstractNode>) state[0];
+		startNodes         = (List<DynamicAbstractNode>) state[1];
+		numReceivedTasks   = (Integer) state[2];
+		predictionErrorSum = (Double) state[3];
+		predictions        = (Long) state[4];
+	}
+
 	// update shift array for node of job's type where increaseId site will get +1 and decreaseId will get -1
 	// this is used in the partitioner to signal job assignments that a contrary to the best node assignment
 	public static void updateShiftArray(Job job, int increaseId, int decreaseId) {
@@ -293,8 +334,10 @@ public class DynamicAbstractDag {
 	}
 
 
-	private static class DynamicAbstractNode {
+	private static class DynamicAbstractNode implements Serializable {
 		
+		private static final long serialVersionUID = 1L;
+
 		private HashMap<String, DynamicAbstractEdge> parentsEdges  = new HashMap<>();
 		private HashMap<String, DynamicAbstractEdge> childrenEdges = new HashMap<>();
 
@@ -643,8 +686,10 @@ public class DynamicAbstractDag {
 
 	}
 
-	private static class DynamicAbstractEdge {
+	private static class DynamicAbstractEdge implements Serializable {
 		
+		private static final long serialVersionUID = 1L;
+
 		// node1 -> node 2
 		private DynamicAbstractNode node1;
 		private DynamicAbstractNode node2;
@@ -0,0 +1,47 @@
+package federatedSim;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Runs several simulations in one JVM, e.g. the trials of a grid search. Besides the start-up and warm-up of the JVM,
+ * every workflow is parsed only once: the parser keeps the structure of recently parsed workflows (see
+ * WorkflowParser.setCacheCapacity) and creates the tasks of later runs from it.
+ *
+ * Usage: FederatedBatch [runs.txt]
+ * Every line holds the arguments of one FederatedTwoSites run (config.json [out.log [out.csv [telemetry.csv]]]),
+ * separated by whitespace. Without a file, the lines are read from stdin, so that a driver can keep the JVM and feed it
+ * runs one after another. After each run, "DONE <line>" is printed to stdout.
+ */
+public class FederatedBatch {
+
+	public static final String DONE = "DONE ";
+
+	public static void main(String[] args) throws IOException {
+
+		BufferedReader reader = args.length >= 1
+				? new BufferedReader(new FileReader(args[0]))
+				: new BufferedReader(new InputStreamReader(System.in));
+
+		String line;
+		while ((line = reader.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty()) {
+				continue;
+			}
+
+			try {
+				FederatedTwoSites.run(line.split("\\s+"));
+			} catch (RuntimeException e) {
+				// a failed run has no results file, the batch continues like a grid search with one JVM per run
+				e.printStackTrace();
+			}
+
+			System.out.println(DONE + line);
+			System.out.flush();
+		}
+		reader.close();
+	}
+}
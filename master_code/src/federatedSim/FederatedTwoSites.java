@@ -3,12 +3,19 @@ package federatedSim;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.*;
 
 import org.cloudbus.cloudsim.*;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.EventPool;
+import org.cloudbus.cloudsim.core.RunBudget;
+import org.cloudbus.cloudsim.core.metrics.Metrics;
+import org.cloudbus.cloudsim.core.metrics.PhaseEvent;
 import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
 import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
 import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
@@ -34,15 +41,25 @@ public class FederatedTwoSites {
 
 
 	public static void main(String[] args) {
+		run(args);
+	}
+
+	// one simulation, args are the config file and optionally the log, results and telemetry files
+	// every run initializes the static state again, so several runs can share a JVM (see FederatedBatch)
+	static void run(String[] args) {
+
+		RunTelemetry telemetry = new RunTelemetry();
+		telemetry.start();
 
 		// parse config File
 		if (args.length < 1) {
 			throw new RuntimeException("Need a parameter config file");
 		}
 
+		FileOutputStream logfile = null;
 		if (args.length >= 2) {
 			try {
-				FileOutputStream logfile = new FileOutputStream(args[1]);
+				logfile = new FileOutputStream(args[1]);
 				Log.setOutput(logfile);
 			} catch (FileNotFoundException e) {
 				throw new RuntimeException(e);
@@ -54,117 +71,139 @@ public class FederatedTwoSites {
 			resultsPath = args[2];
 		}
 
+		// optional, resource usage of the run (wall-clock time, events, heap, allocations, gc, scheduling rounds)
+		String telemetryPath = null;
+		if (args.length >= 4) {
+			telemetryPath = args[3];
+		}
 
 
 
+
+		PhaseEvent setup = Metrics.beginPhase("setup");
+		configParser = new ConfigParser();
 		configParser.parse(args[0]);
 
 		try {
-			
-			// Load workflow
-			String daxPath = configParser.getWorkflowPath();
-			if(daxPath == null){
-				Log.printLine("[DONE]  Warning: Please replace daxPath with the physical path in your working environment!");
-				return;
+
+			// the setup phase ends on every way out of the setup, including a failed one
+			WorkflowEngine wfEngine;
+			try {
+				wfEngine = setupSimulation(configParser);
+			} finally {
+				Metrics.endPhase(setup, -1);
 			}
-			File daxFile = new File(daxPath);
-			if(!daxFile.exists()){
-				Log.printLine("Warning: Please replace daxPath with the physical path in your working environment!");
+			if (wfEngine == null) {
 				return;
 			}
 
-			NUM_SITES      = configParser.getNumSites();
-			TASK_THRESHOLD = configParser.getTaskThreshold();
-			SEC_THRESHOLD  = configParser.getSecThreshold();
-			
-
-			// set strategy, PART = new approach, RND = random
-			Parameters.SchedulingAlgorithm sch_method;
-			if (configParser.getStrategy().equals("PART")) {
-				sch_method = Parameters.SchedulingAlgorithm.DYNAMIC_PART;
-			} else if (configParser.getStrategy().equals("RND")) {
-				sch_method = Parameters.SchedulingAlgorithm.DYNAMIC_RND;
-			} else {
-				throw new RuntimeException("Named invalid strategy in config file, use RND or PART");
+			// the kernel drops its entities when the simulation stops
+			List<WorkflowDatacenter> datacenters = new ArrayList<>();
+			for (int i = 0; i < NUM_SITES; i++) {
+				datacenters.add((WorkflowDatacenter) CloudSim.getEntity("Datacenter_" + i));
 			}
 
-			// we dynamically schedule, thus no planner
-			Parameters.PlanningAlgorithm pln_method = Parameters.PlanningAlgorithm.INVALID; 
-			
-
-			ReplicaCatalog.FileSystem file_system = ReplicaCatalog.FileSystem.SHARED; 
-			
+			// sample storage, running jobs and link throughput over simulated time
+			TimeSeriesRecorder timeSeries = null;
+			if (configParser.getTimeSeriesPath() != null) {
+				timeSeries = new TimeSeriesRecorder(configParser.getTimeSeriesPath(), configParser.getTimeSeriesInterval(),
+						configParser.getTimeSeriesDownsample());
+				timeSeries.addFederatedSeries(datacenters, wfEngine.getAllVmList(), wfEngine.getScheduler(0));
+				CloudSim.setClockListener(timeSeries);
+			}
 
-			// No overheads
-			OverheadParameters op = new OverheadParameters(0, null, null, null, null, 0);;
-			
-			// No Clustering
-			ClusteringParameters.ClusteringMethod method = ClusteringParameters.ClusteringMethod.NONE;
-			ClusteringParameters cp = new ClusteringParameters(0, 0, method, null);
-			
+			// record the scheduling rounds for SchedulerReplay
+			SchedulerTrace trace = null;
+			if (configParser.getSchedulerTracePath() != null) {
+				trace = new SchedulerTrace(configParser.getSchedulerTracePath());
+				WorkflowScheduler.setTrace(trace);
+			}
 
-			// Initialize static parameters
-			Parameters.init(NUM_SITES, daxPath, null,
-					null, op, cp, sch_method, pln_method,
-					null, 0);
-			ReplicaCatalog.init(file_system);
+			// adapt N and T during the run instead of sweeping them
+			AdaptiveThresholds thresholds = null;
+			if (configParser.isAdaptiveThresholds()) {
+				thresholds = new AdaptiveThresholds(TASK_THRESHOLD, configParser.getTaskThresholdMin(),
+						configParser.getTaskThresholdMax(), SEC_THRESHOLD, configParser.getSecThresholdMin(),
+						configParser.getSecThresholdMax(), configParser.getMaxRetryRate(),
+						configParser.getMaxPredictionError());
+				wfEngine.getScheduler(0).setAdaptiveThresholds(thresholds);
+			}
 
-			
-			
-			// enable thresholds for scheduling
-			Parameters.enable_thresholds(); 
-			Parameters.setTASK_THRESHOLD(TASK_THRESHOLD);
-			Parameters.setSEC_THRESHOLD(SEC_THRESHOLD);
-			Parameters.setTHRESHOLD_CHECKING_INTERVAL(THRESHOLD_CHECKING_INTERVAL);
-			
-			// before creating any entities.
-			int num_user = 1;   // number of grid users
-			Calendar calendar = Calendar.getInstance(); 
-			boolean trace_flag = false;  // mean trace events 
-			
-			// Initialize the CloudSim library
-			CloudSim.init(num_user, calendar, trace_flag);
+			// record the status changes of all jobs and tasks
+			if (configParser.getLifecycleLogPath() != null) {
+				CloudletLifecycleLog.open(configParser.getLifecycleLogPath());
+			}
 
-			// Create a WorkflowPlanner with one scheduler.
-			WorkflowPlanner wfPlanner = new WorkflowPlanner("planner_0", 1);
+			// end the run early once it exceeds a cutoff of the config, e.g. the best result of a search so far
+			RunBudget budget = createRunBudget(configParser, wfEngine.getScheduler(0));
+			CloudSim.setRunBudget(budget);
 
-			// Create a WorkflowEngine
-			WorkflowEngine wfEngine = wfPlanner.getWorkflowEngine();
+			// one logical process per site, the planner, engine and scheduler stay in process 0
+			if (configParser.getParallelKernel() > 1) {
+				for (int i = 0; i < datacenters.size(); i++) {
+					datacenters.get(i).setLogicalProcess(i + 1);
+				}
+				// jobs and completions travel between the scheduler and the sites as zero-delay events and stage-ins
+				// read the storages of other sites directly, so there is no lookahead and the kernel runs sequentially
+				CloudSim.setLookahead(0.0);
+				CloudSim.setParallelism(configParser.getParallelKernel());
+				String sequentialReason = CloudSim.getSequentialReason();
+				Log.printLine("Parallel kernel: " + (sequentialReason == null
+						? configParser.getParallelKernel() + " threads" : "running sequentially, " + sequentialReason));
+			}
 
-			// create sites
-			List<WorkflowDatacenter> workflowDatacenters = new LinkedList<>();
-			List<CondorVM> vmList = new LinkedList<>();
-			createDatacenter(vmList, workflowDatacenters, wfEngine.getSchedulerId(0));
+			PhaseEvent simulation = Metrics.beginPhase("simulation");
+			CloudSim.startSimulation();
+			Metrics.endPhase(simulation, -1);
 
-			// verify site creation
-			if (vmList.size() != workflowDatacenters.size() || vmList.size() != NUM_SITES) {
-				throw new Exception("An inconsistent amount of sites and vms was created");
+			if (timeSeries != null) {
+				timeSeries.close(CloudSim.clock());
 			}
-
-			/**
-			 * Submits this list of vms to this WorkflowEngine.
-			 */
-			wfEngine.submitVmList(vmList);
-			
-			/**
-			 * Binds the data centers with the scheduler.
-			 */
-			for (int i=0; i<NUM_SITES; i++) {
-				wfEngine.bindSchedulerDatacenter(workflowDatacenters.get(i).getId(),0);
+			if (trace != null) {
+				WorkflowScheduler.setTrace(null);
+				trace.close();
 			}
-
-
-			CloudSim.startSimulation();
+			CloudletLifecycleLog.close();
 
 
 			List<Job> outputList0 = wfEngine.getJobsReceivedList();
 
 
 			CloudSim.stopSimulation();
+
+			telemetry.stop();
 			
 			printJobList(outputList0);
 
-			writeResults(resultsPath, outputList0);
+			if (budget != null && budget.isExceeded()) {
+				Log.printLine("Run pruned: " + budget.describeExceeded());
+			} else if (wfEngine.getUnfinishedJobs() > 0) {
+				Log.printLine("Run incomplete: " + wfEngine.getUnfinishedJobs() + " jobs never finished");
+			}
+
+			if (thresholds != null) {
+				Log.printLine(thresholds.summary());
+			}
+
+			if (configParser.isStriping()) {
+				printLinkTransfers(datacenters);
+			}
+
+			if (configParser.isEventPooling()) {
+				EventPool pool = CloudSim.getEventPool();
+				Log.printLine("Events allocated: " + pool.getAllocated() + ", reused: " + pool.getReused()
+						+ ", retained: " + pool.getRetained());
+			}
+
+			writeResults(resultsPath, outputList0, budget, wfEngine.getUnfinishedJobs());
+
+			if (telemetryPath != null) {
+				telemetry.write(telemetryPath);
+			}
+
+			if (configParser.getMetricsPath() != null) {
+				Metrics.write(configParser.getMetricsPath());
+			}
 
 
 			Log.printLine("END");
@@ -172,7 +211,173 @@ public class FederatedTwoSites {
 		} catch (Exception e) {
 			e.printStackTrace();
             Log.printLine("The simulation has been terminated due to an unexpected error");
-        }
+        } finally {
+			// a failed run must not record into the next run of the JVM
+			WorkflowScheduler.setTrace(null);
+			try {
+				CloudletLifecycleLog.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			if (logfile != null) {
+				Log.setOutput(System.out);
+				try {
+					logfile.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	// initializes all static parameters and creates all entities for the configuration of parser
+	// returns the workflow engine, or null if the workflow cannot be found
+	static WorkflowEngine setupSimulation(ConfigParser parser) throws Exception {
+
+		configParser = parser;
+
+		// Load workflow
+		String daxPath = configParser.getWorkflowPath();
+		if(daxPath == null){
+			Log.printLine("[DONE]  Warning: Please replace daxPath with the physical path in your working environment!");
+			return null;
+		}
+		File daxFile = new File(daxPath);
+		if(!daxFile.exists()){
+			Log.printLine("Warning: Please replace daxPath with the physical path in your working environment!");
+			return null;
+		}
+
+		NUM_SITES      = configParser.getNumSites();
+		TASK_THRESHOLD = configParser.getTaskThreshold();
+		SEC_THRESHOLD  = configParser.getSecThreshold();
+		
+
+		// set strategy
+		Parameters.SchedulingAlgorithm sch_method = parseStrategy(configParser.getStrategy());
+
+		// we dynamically schedule, thus no planner
+		Parameters.PlanningAlgorithm pln_method = Parameters.PlanningAlgorithm.INVALID; 
+		
+
+		ReplicaCatalog.FileSystem file_system = ReplicaCatalog.FileSystem.SHARED; 
+		
+
+		// No overheads
+		OverheadParameters op = new OverheadParameters(0, null, null, null, null, 0);;
+		
+		// No Clustering
+		ClusteringParameters.ClusteringMethod method = ClusteringParameters.ClusteringMethod.NONE;
+		ClusteringParameters cp = new ClusteringParameters(0, 0, method, null);
+		
+
+		// Initialize static parameters
+		Parameters.init(NUM_SITES, daxPath, null,
+				null, op, cp, sch_method, pln_method,
+				null, 0);
+		ReplicaCatalog.init(file_system);
+
+		
+		
+		// enable thresholds for scheduling
+		Parameters.enable_thresholds(); 
+		Parameters.setTASK_THRESHOLD(TASK_THRESHOLD);
+		Parameters.setSEC_THRESHOLD(SEC_THRESHOLD);
+		Parameters.setTHRESHOLD_CHECKING_INTERVAL(THRESHOLD_CHECKING_INTERVAL);
+
+		// stream outputs to the predicted sites of their children
+		Parameters.setPrefetching(configParser.isPrefetching());
+
+		// split stage-in transfers across all sites that hold a replica
+		Parameters.setStriping(configParser.isStriping());
+		Parameters.setStripingMinSize(configParser.getStripingMinSize());
+
+		// send the files a scheduling round needs from the same site as one transfer
+		Parameters.setBatching(configParser.isBatching());
+
+		// place jobs that share input files together
+		Parameters.setColocation(configParser.isColocation());
+
+		// replicate hot files ahead of their consumers
+		Parameters.setReplicationBudget(configParser.getReplicationBudget());
+		Parameters.setHotFanOut(configParser.getHotFanOut());
+
+		// trade-off between transferred bytes and finish time of the critical-path strategy
+		Parameters.setMakespanWeight(configParser.getMakespanWeight());
+		
+		// before creating any entities.
+		int num_user = 1;   // number of grid users
+		Calendar calendar = Calendar.getInstance(); 
+		boolean trace_flag = false;  // mean trace events 
+		
+		// Initialize the CloudSim library
+		CloudSim.init(num_user, calendar, trace_flag);
+		CloudSim.setEventPooling(configParser.isEventPooling());
+
+		// counters, histograms and the events per tag and entity, written at the end of the run
+		Metrics.reset();
+		Metrics.setEnabled(configParser.getMetricsPath() != null);
+		Metrics.registerTagNames(CloudSimTags.class);
+		Metrics.registerTagNames(WorkflowSimTags.class);
+
+		// the text history of the jobs and tasks is only formatted on request
+		Cloudlet.setRecordHistory(configParser.isCloudletHistory());
+
+		// Create a WorkflowPlanner with one scheduler.
+		WorkflowPlanner wfPlanner = new WorkflowPlanner("planner_0", 1);
+
+		// Create a WorkflowEngine
+		WorkflowEngine wfEngine = wfPlanner.getWorkflowEngine();
+
+		// create sites
+		List<WorkflowDatacenter> workflowDatacenters = new LinkedList<>();
+		List<CondorVM> vmList = new LinkedList<>();
+		createDatacenter(vmList, workflowDatacenters, wfEngine.getSchedulerId(0));
+
+		// route transfers between sites over the widest paths of the topology
+		if (configParser.isRelayRouting()) {
+			SiteTopology topology = configParser.getTopologyFile() != null
+					? SiteTopology.fromBrite(configParser.getTopologyFile(), NUM_SITES)
+					: SiteTopology.fromSites(configParser.getDatacentersSpecs());
+			topology.installRoutes(workflowDatacenters);
+		} else {
+			// without relays every pair of sites needs a direct connection
+			for (WorkflowDatacenter from : workflowDatacenters) {
+				ClusterStorage storage = (ClusterStorage) from.getStorageList().get(0);
+				for (WorkflowDatacenter to : workflowDatacenters) {
+					if (from != to && storage.getMaxTransferRate(to.getName()) <= 0) {
+						throw new RuntimeException(from.getName() + " has no connection to " + to.getName() + ", set relayRouting to route over other sites");
+					}
+				}
+			}
+		}
+
+		// concurrent transfers share the links between sites
+		if (configParser.isNetworkModel()) {
+			FlowNetwork network = new FlowNetwork("network");
+			for (WorkflowDatacenter datacenter : workflowDatacenters) {
+				datacenter.setNetwork(network);
+			}
+		}
+
+		// verify site creation
+		if (vmList.size() != workflowDatacenters.size() || vmList.size() != NUM_SITES) {
+			throw new Exception("An inconsistent amount of sites and vms was created");
+		}
+
+		/**
+		 * Submits this list of vms to this WorkflowEngine.
+		 */
+		wfEngine.submitVmList(vmList);
+		
+		/**
+		 * Binds the data centers with the scheduler.
+		 */
+		for (int i=0; i<NUM_SITES; i++) {
+			wfEngine.bindSchedulerDatacenter(workflowDatacenters.get(i).getId(),0);
+		}
+
+		return wfEngine;
 	}
 
 	protected static void createDatacenter(List<CondorVM> vmList, List<WorkflowDatacenter> datacenterList, int userId) {
@@ -263,6 +468,11 @@ public class FederatedTwoSites {
 				s1.setBandwidth(otherSite, bandwidth);
 			}
 
+			// add latencies of the connections
+			for (Map.Entry<Integer, Double> connection : site.getLatencyMap().entrySet()) {
+				s1.setLatency("Datacenter_" + connection.getKey(), connection.getValue());
+			}
+
 			// The bandwidth within a data center
 			s1.setBandwidth("local", intraBandwidth);
 			// The bandwidth to the source site
@@ -304,6 +514,61 @@ public class FederatedTwoSites {
 	}
 
 	
+	// PART = new approach, MCF = new approach with min-cost flow batches, OFFLINE = oracle baseline, CP = critical-path aware, RND = random
+	static Parameters.SchedulingAlgorithm parseStrategy(String strategy) {
+		if (strategy.equals("PART")) {
+			return Parameters.SchedulingAlgorithm.DYNAMIC_PART;
+		} else if (strategy.equals("MCF")) {
+			return Parameters.SchedulingAlgorithm.DYNAMIC_MCF;
+		} else if (strategy.equals("OFFLINE")) {
+			return Parameters.SchedulingAlgorithm.DYNAMIC_OFFLINE;
+		} else if (strategy.equals("CP")) {
+			return Parameters.SchedulingAlgorithm.DYNAMIC_CP;
+		} else if (strategy.equals("RND")) {
+			return Parameters.SchedulingAlgorithm.DYNAMIC_RND;
+		}
+		throw new RuntimeException("Named invalid strategy in config file, use RND, PART, MCF, OFFLINE or CP");
+	}
+
+	// the cutoffs of the config, null if there are none, the wall-clock time counts from now on
+	static RunBudget createRunBudget(ConfigParser parser, WorkflowScheduler scheduler) {
+		RunBudget budget = new RunBudget();
+		boolean cutoffs = false;
+		if (parser.getMaxSimulatedTime() > 0) {
+			budget.addSimulatedTimeCutoff(parser.getMaxSimulatedTime());
+			cutoffs = true;
+		}
+		if (parser.getMaxTransferredData() > 0) {
+			budget.addCutoff("transferredData", Parameters::getTotalTransferredData, parser.getMaxTransferredData());
+			cutoffs = true;
+		}
+		if (parser.getMaxStorageRetries() > 0) {
+			budget.addCutoff("storageRetries", scheduler::getStorageRetries, parser.getMaxStorageRetries());
+			cutoffs = true;
+		}
+		if (parser.getMaxWallTime() > 0) {
+			budget.addWallTimeCutoff(parser.getMaxWallTime());
+			cutoffs = true;
+		}
+		return cutoffs ? budget : null;
+	}
+
+	// state of a run that lives outside of the simulation kernel, to be attached to a snapshot (see CloudSim.createSnapshot)
+	static Serializable getStaticState() {
+		return new Object[]{
+				Parameters.getRunState(),
+				ReplicaCatalog.getState(),
+				DynamicAbstractDag.getState()
+		};
+	}
+
+	// replaces the static state with the restored attachment of a snapshot
+	static void setStaticState(Object[] state) {
+		Parameters.setRunState((double[]) state[0]);
+		ReplicaCatalog.setState((Object[]) state[1]);
+		DynamicAbstractDag.setState((Object[]) state[2]);
+	}
+
 	/**
      * Prints the job objects
      *
@@ -349,22 +614,82 @@ public class FederatedTwoSites {
 
     }
 
-	private static void writeResults(String resultsPath, List<Job> jobs){
-		double startTime = jobs.get(0).getExecStartTime();
-		double finishTime = jobs.get(jobs.size() - 1).getFinishTime();
-		double makespan = finishTime-startTime;
+	// prints the bytes transferred over each link between sites
+	protected static void printLinkTransfers(List<WorkflowDatacenter> datacenters) {
+		Log.printLine("========== TRANSFERS PER LINK ==========");
+		for (WorkflowDatacenter source : datacenters) {
+			ClusterStorage storage = (ClusterStorage) source.getStorageList().get(0);
+			for (WorkflowDatacenter destination : datacenters) {
+				double bytes = storage.getTransferredBytes(destination.getName());
+				if (source != destination && bytes > 0) {
+					Log.printLine(source.getName() + " -> " + destination.getName() + ": " + bytes);
+				}
+			}
+		}
+	}
+
+	static void writeResults(String resultsPath, List<Job> jobs, RunBudget budget, int unfinishedJobs){
+		boolean pruned = budget != null && budget.isExceeded();
+		// jobs lost on the way (e.g., dropped on a storage overflow) never return, the simulation still ends
+		boolean incomplete = !pruned && unfinishedJobs > 0;
+
+		// a pruned or incomplete run may end before any job has finished, any other run without finished jobs failed
+		// and has no results
+		double makespan = 0.0;
+		if (!(pruned || incomplete) || !jobs.isEmpty()) {
+			double startTime = jobs.get(0).getExecStartTime();
+			double finishTime = jobs.get(jobs.size() - 1).getFinishTime();
+			makespan = finishTime-startTime;
+		}
 
 		if (resultsPath == null) {
 			Log.printLine("Results:");
 			Log.printLine("Data transferred between sites:" + Parameters.getTotalTransferredData());
 			Log.printLine("Time for transferring data between sites:" + Parameters.getTotalDataTransferTime());
 			Log.printLine("Makespan:" + makespan);
+			if (Parameters.colocation_enabled()) {
+				Log.printLine("Duplicate transfers avoided by co-location:" + Parameters.getColocationSavedBytes());
+			}
+			if (Parameters.replication_enabled()) {
+				Log.printLine("Data replicated ahead of consumers:" + Parameters.getReplicatedBytes());
+				Log.printLine("Stage-in time saved by replicas:" + Parameters.getReplicationSavedTime());
+			}
+			if (Parameters.getSchedulingAlgorithm() == Parameters.SchedulingAlgorithm.DYNAMIC_CP) {
+				Log.printLine("Makespan weight:" + Parameters.getMakespanWeight());
+			}
+			if (pruned) {
+				Log.printLine("Status:PRUNED (" + budget.describeExceeded() + "), the results are partial");
+			}
+			if (incomplete) {
+				Log.printLine("Status:INCOMPLETE (" + unfinishedJobs + " jobs never finished), the results are partial");
+			}
 		}
 		else {
 			try (PrintWriter writer = new PrintWriter(resultsPath)) {
 				writer.println("TransferredData," + Parameters.getTotalTransferredData());
 				writer.println("TransferTime," + Parameters.getTotalDataTransferTime());
 				writer.println("Makespan," + makespan);
+				if (Parameters.colocation_enabled()) {
+					writer.println("ColocationSavedBytes," + Parameters.getColocationSavedBytes());
+				}
+				if (Parameters.replication_enabled()) {
+					writer.println("ReplicatedBytes," + Parameters.getReplicatedBytes());
+					writer.println("ReplicationSavedTime," + Parameters.getReplicationSavedTime());
+				}
+				// the point on the trade-off between bytes and makespan this run was configured for
+				if (Parameters.getSchedulingAlgorithm() == Parameters.SchedulingAlgorithm.DYNAMIC_CP) {
+					writer.println("MakespanWeight," + Parameters.getMakespanWeight());
+				}
+				// the metrics of a pruned run are the ones up to the cutoff
+				if (pruned) {
+					writer.println("Status,PRUNED");
+					writer.println("PrunedBy," + budget.getExceeded());
+				}
+				// the metrics of an incomplete run leave out the lost jobs and are no valid result
+				if (incomplete) {
+					writer.println("Status,INCOMPLETE");
+					writer.println("UnfinishedJobs," + unfinishedJobs);
+				}
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
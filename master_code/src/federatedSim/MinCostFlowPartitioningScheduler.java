@@ -0,0 +1,126 @@
+package federatedSim;
+
+import federatedSim.utils.MinCostFlow;
+import org.workflowsim.Job;
+
+import java.util.*;
+
+// Partitioning strategy "MCF": instead of assigning the jobs of a batch one after another, the whole batch is
+// assigned at once as a min-cost flow problem (transportation problem):
+// - every job is a source whose supply is its estimated subtree size (the size moveJob charges to a site)
+// - every site is a sink with the predicted available storage as capacity (plus the sizes of the batch's jobs that
+//   are already predicted on the site), additional flow into a site is possible, but with a penalty that is larger
+//   than any transfer cost
+// - the cost of a job's edge to a site is the time to transfer the job's missing inputs from their holders to the site,
+//   per unit of supply
+// The flow may split a job over several sites, the job is assigned to the site that receives most of its flow.
+// The initial partitioning and retried start jobs are handled like in the greedy strategy.
+public class MinCostFlowPartitioningScheduler extends PartitioningScheduler {
+
+	@Override
+	protected void partitionBatch(List<Job> jobList) {
+
+		// retried start jobs are handled like in the greedy strategy
+		List<Job> jobs = new ArrayList<>();
+		for (Job job : jobList) {
+			if (job.getParentList().size() == 0) {
+				handleRetriedStartJob(job);
+			} else {
+				jobs.add(job);
+			}
+		}
+		if (jobs.isEmpty()) {
+			return;
+		}
+
+		int numJobs = jobs.size();
+
+		// nodes: source, jobs, sites, sink
+		int source = 0;
+		int sink   = numJobs + vmNum + 1;
+		MinCostFlow minCostFlow = new MinCostFlow(numJobs + vmNum + 2);
+
+		int[] continuationSiteIds = new int[numJobs];
+		double[] jobSizes         = new double[numJobs];
+		double[] supplies         = new double[numJobs];
+		double[][] transferTimes  = new double[numJobs][];
+		int[][] edges             = new int[numJobs][vmNum];
+
+		// sizes of the batch's jobs that the prediction already places on their continuation
+		double[] predictedBatchSizes = new double[vmNum];
+
+		double maxUnitCost = 0.0;
+		double totalSupply = 0.0;
+		for (int j = 0; j < numJobs; j++) {
+			Job job = jobs.get(j);
+			Arrays.fill(edges[j], -1);
+
+			continuationSiteIds[j] = deriveBestSiteContinuation(job);
+			jobSizes[j] = DynamicAbstractDag.getEstimatedSize4SubDAG(job);
+			predictedBatchSizes[continuationSiteIds[j]] += jobSizes[j];
+
+			// jobs without a size estimate still need one unit to be assigned
+			supplies[j] = Math.max(jobSizes[j], 1.0);
+			totalSupply += supplies[j];
+			minCostFlow.addEdge(source, j + 1, supplies[j], 0.0);
+
+			// sites the job may use
+			Set<Integer> exceededDatacenterIds = getExceededDatacenterIds(job);
+			Set<Integer> eligibleSites = getSitesThatCanFitInputs(job, exceededDatacenterIds);
+			eligibleSites.removeIf(i -> exceededDatacenterIds.contains(datacenterIds[i]));
+			if (eligibleSites.isEmpty()) {
+				throw new RuntimeException("Job " + job.getTaskList().get(0).getType() + " has exceeded all sides storages and cannot be scheduled, or input files fit into no storage halting simulation");
+			}
+
+			// sites that no holder of an input can reach are not eligible
+			double[] jobTransferTimes = getTransferTimes(job);
+			transferTimes[j] = jobTransferTimes;
+			eligibleSites.removeIf(i -> Double.isInfinite(jobTransferTimes[i]));
+			if (eligibleSites.isEmpty()) {
+				throw new RuntimeException("Job " + job.getTaskList().get(0).getType() + " has inputs that no eligible site can reach");
+			}
+			for (int i : eligibleSites) {
+				double unitCost = transferTimes[j][i] / supplies[j];
+				maxUnitCost = Math.max(maxUnitCost, unitCost);
+				edges[j][i] = minCostFlow.addEdge(j + 1, numJobs + 1 + i, Double.POSITIVE_INFINITY, unitCost);
+			}
+		}
+
+		// an augmenting path crosses at most every job and site once, so this penalty dominates any transfer costs
+		double overusePenalty = 2 * (numJobs + vmNum) * maxUnitCost + 1.0;
+		for (int i = 0; i < vmNum; i++) {
+			double capacity = Math.max(0.0, predictedAvailableStorage[i] + predictedBatchSizes[i]);
+			minCostFlow.addEdge(numJobs + 1 + i, sink, capacity, 0.0);
+			minCostFlow.addEdge(numJobs + 1 + i, sink, Double.POSITIVE_INFINITY, overusePenalty);
+		}
+
+		minCostFlow.solve(source, sink, totalSupply);
+
+		// assign every job to the site that received most of its flow, ties are broken by transfer time
+		for (int j = 0; j < numJobs; j++) {
+			Job job = jobs.get(j);
+			int siteId = -1;
+			double bestFlow = -1.0;
+			for (int i = 0; i < vmNum; i++) {
+				if (edges[j][i] == -1) {
+					continue;
+				}
+				double flow = minCostFlow.getFlow(edges[j][i]);
+				if (flow > bestFlow || (flow == bestFlow && transferTimes[j][i] < transferTimes[j][siteId])) {
+					bestFlow = flow;
+					siteId = i;
+				}
+			}
+
+			scheduleJob(job, siteId);
+
+			// same bookkeeping as moveJob
+			int continuationSiteId = continuationSiteIds[j];
+			if (siteId != continuationSiteId) {
+				predictedAvailableStorage[continuationSiteId] += jobSizes[j];
+				predictedAvailableStorage[siteId]             -= jobSizes[j];
+				DynamicAbstractDag.updateShiftArray(job, siteId, continuationSiteId);
+			}
+		}
+	}
+}
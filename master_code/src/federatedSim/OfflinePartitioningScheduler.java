@@ -0,0 +1,184 @@
+package federatedSim;
+
+import federatedSim.utils.MultilevelPartitioner;
+import org.cloudbus.cloudsim.File;
+import org.cloudbus.cloudsim.Log;
+import org.workflowsim.Job;
+import org.workflowsim.Task;
+import org.workflowsim.utils.Parameters;
+import org.workflowsim.utils.ReplicaCatalog;
+
+import java.util.*;
+
+// Partitioning strategy "OFFLINE": an oracle baseline that knows the full DAG with exact file sizes in advance.
+// When the start jobs arrive, the whole workflow (reachable over the child lists) is partitioned at once by the
+// multilevel partitioner:
+// - every job is a vertex weighted with the bytes of its outputs, which it writes to its site's storage
+// - every file that a job reads from a parent is an edge between the two jobs weighted with the file size
+// - every site is a fixed vertex, a job that reads input data of the initial placement is connected to every site that
+//   holds the data
+// - the capacity of a site is its available storage after the initial placement, the inputs staged into a site (cut
+//   intermediate files and initial data from other sites) are charged to it once per file
+// So the staged-in copies are the bytes that have to be transferred between sites, the edges pull the readers of a file
+// towards its holders. The assignment is then replayed in the normal simulation: every batch schedules its jobs to their
+// planned sites. Retried jobs (the plan exceeded a storage) and jobs whose planned site can no longer fit their inputs
+// are handled like in the greedy strategy.
+public class OfflinePartitioningScheduler extends PartitioningScheduler {
+
+	// independent multilevel runs, computed in parallel
+	private static final int RUNS = 8;
+
+	// planned site of every job by cloudlet id, computed with the start jobs
+	// static, because a new scheduler is created for every batch
+	private static Map<Integer, Integer> plan = new HashMap<>();
+
+	@Override
+	protected void initialPartitioning(List<Job> startJobs) {
+		plan = computePlan(startJobs);
+		List<Job> unplanned = new ArrayList<>();
+		for (Job startJob : startJobs) {
+			int siteId = plan.get(startJob.getCloudletId());
+			if (!canFollowPlan(startJob, siteId)) {
+				unplanned.add(startJob);
+				continue;
+			}
+			scheduleJob(startJob, siteId);
+		}
+
+		if (!unplanned.isEmpty()) {
+			super.initialPartitioning(unplanned);
+		}
+	}
+
+	@Override
+	protected void partitionBatch(List<Job> jobList) {
+		List<Job> unplanned = new ArrayList<>();
+		for (Job job : jobList) {
+			Integer siteId = plan.get(job.getCloudletId());
+			if (siteId == null || retriedJobsSetUnion.contains(job.getCloudletId()) || !canFollowPlan(job, siteId)) {
+				unplanned.add(job);
+				continue;
+			}
+
+			scheduleJob(job, siteId);
+
+			// same bookkeeping as moveJob, so that the greedy fallback sees the planned deviations
+			int continuationSiteId = deriveBestSiteContinuation(job);
+			if (siteId != continuationSiteId) {
+				double jobSize = DynamicAbstractDag.getEstimatedSize4SubDAG(job);
+				predictedAvailableStorage[continuationSiteId] += jobSize;
+				predictedAvailableStorage[siteId]             -= jobSize;
+				DynamicAbstractDag.updateShiftArray(job, siteId, continuationSiteId);
+			}
+		}
+
+		if (!unplanned.isEmpty()) {
+			super.partitionBatch(unplanned);
+		}
+	}
+
+	// the planned site is only used if the job has not exceeded it before and it can still fit the job's inputs, the
+	// simulation deviates from the plan (e.g., by retries), so the plan alone does not guarantee this
+	private boolean canFollowPlan(Job job, int siteId) {
+		Set<Integer> exceededDatacenterIds = getExceededDatacenterIds(job);
+		return !exceededDatacenterIds.contains(datacenterIds[siteId])
+				&& getSitesThatCanFitInputs(job, exceededDatacenterIds).contains(siteId);
+	}
+
+	// partitions all jobs reachable from the start jobs
+	private Map<Integer, Integer> computePlan(List<Job> startJobs) {
+
+		// collect the DAG, ordered by id so that the vertices do not depend on the batch order
+		Map<Integer, Job> id2job = new TreeMap<>();
+		Deque<Job> queue = new ArrayDeque<>(startJobs);
+		while (!queue.isEmpty()) {
+			Job job = queue.poll();
+			if (id2job.putIfAbsent(job.getCloudletId(), job) != null) {
+				continue;
+			}
+			for (Task child : job.getChildList()) {
+				queue.add((Job) child);
+			}
+		}
+		List<Job> jobs = new ArrayList<>(id2job.values());
+		int numJobs = jobs.size();
+
+		// vertices: jobs, then sites
+		MultilevelPartitioner partitioner = new MultilevelPartitioner(numJobs + vmNum, vmNum);
+		for (int i = 0; i < vmNum; i++) {
+			partitioner.fix(numJobs + i, i);
+			partitioner.setCapacity(i, availableStorage[i]);
+		}
+
+		// producers of the intermediate files
+		Map<String, Integer> producers = new HashMap<>();
+		for (int j = 0; j < numJobs; j++) {
+			double outputSize = 0.0;
+			for (Object o : jobs.get(j).getFileList()) {
+				File file = (File) o;
+				if (file.getType() == Parameters.FileType.OUTPUT.value) {
+					producers.put(file.getName(), j);
+					outputSize += file.getSize();
+				}
+			}
+			partitioner.setVertexWeight(j, outputSize);
+		}
+
+		// readers of every input file, a file read by several jobs is copied at most once into a site
+		Map<String, Set<Integer>> readers = new LinkedHashMap<>();
+		Map<String, Double> sizes = new HashMap<>();
+		for (int j = 0; j < numJobs; j++) {
+			for (Object o : jobs.get(j).getFileList()) {
+				File file = (File) o;
+				if (file.getType() != Parameters.FileType.INPUT.value) {
+					continue;
+				}
+				readers.computeIfAbsent(file.getName(), name -> new TreeSet<>()).add(j);
+				sizes.put(file.getName(), (double) file.getSize());
+			}
+		}
+
+		for (Map.Entry<String, Set<Integer>> entry : readers.entrySet()) {
+			String fileName = entry.getKey();
+			double size = sizes.get(fileName);
+			int[] holderVertices;
+			Integer producer = producers.get(fileName);
+			if (producer != null) {
+				holderVertices = new int[]{producer};
+			} else {
+				// initial data, held by the sites of the initial placement (and possibly other storages)
+				List<String> holders = ReplicaCatalog.getStorageList(fileName);
+				List<Integer> holderSites = new ArrayList<>();
+				if (holders != null) {
+					for (String holder : holders) {
+						if (holder.startsWith("Datacenter_")) {
+							holderSites.add(numJobs + Integer.parseInt(holder.substring("Datacenter_".length())));
+						}
+					}
+				}
+				holderVertices = holderSites.stream().mapToInt(Integer::intValue).toArray();
+			}
+
+			int[] readerVertices = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+			partitioner.addFile(size, holderVertices, readerVertices);
+
+			// a reader next to any holder reads the file locally
+			for (int reader : readerVertices) {
+				for (int holder : holderVertices) {
+					partitioner.addEdge(holder, reader, size);
+				}
+			}
+		}
+
+		int[] parts = partitioner.partition(RUNS);
+
+		Log.printLine("Offline partitioning of " + numJobs + " jobs: staged-in copies " + partitioner.getCopies(parts)
+				+ " bytes, storage overload " + partitioner.getOverload(parts) + " bytes");
+
+		Map<Integer, Integer> newPlan = new HashMap<>();
+		for (int j = 0; j < numJobs; j++) {
+			newPlan.put(jobs.get(j).getCloudletId(), parts[j]);
+		}
+		return newPlan;
+	}
+}
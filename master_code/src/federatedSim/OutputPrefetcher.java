@@ -0,0 +1,66 @@
+package federatedSim;
+
+import org.cloudbus.cloudsim.File;
+import org.workflowsim.Job;
+import org.workflowsim.Task;
+import org.workflowsim.utils.Parameters;
+
+import java.util.*;
+
+// Decides which outputs of a finished job should be streamed to other sites before its children are scheduled.
+// A child is predicted to run on its best site continuation (see PartitioningScheduler), if the dynamic DAG also
+// expects jobs of the child's type on that site. Outputs that the child consumes are then prefetched to that site,
+// so that the child's stage-in only has to wait for the remaining bytes.
+public class OutputPrefetcher {
+
+	// returns the output files of finishedJob that should be prefetched, mapped to the vm id (= site) they should be prefetched to
+	public static Map<Integer, List<File>> getPrefetches(Job finishedJob) {
+		Map<Integer, List<File>> site2files = new TreeMap<>();
+
+		int sourceSiteId = finishedJob.getVmId();
+
+		// output files of the finished job by name
+		Map<String, File> outputs = new HashMap<>();
+		for (Object o : finishedJob.getFileList()) {
+			File file = (File) o;
+			if (file.getType() == Parameters.FileType.OUTPUT.value) {
+				outputs.put(file.getName(), file);
+			}
+		}
+		if (outputs.isEmpty()) {
+			return site2files;
+		}
+
+		// files per site, avoids prefetching a file twice if several children need it
+		Map<Integer, Set<String>> site2names = new HashMap<>();
+
+		for (Task childTask : finishedJob.getChildList()) {
+			Job child = (Job) childTask;
+
+			// predict the child's site
+			int predictedSiteId = PartitioningScheduler.deriveBestSiteContinuation(child);
+			if (predictedSiteId == -1 || predictedSiteId == sourceSiteId) {
+				continue;
+			}
+
+			// the dynamic DAG does not expect jobs of this type there -> prediction is too uncertain
+			if (DynamicAbstractDag.getTaskEstimates(child)[predictedSiteId] <= 0) {
+				continue;
+			}
+
+			// collect the outputs that are inputs of the child
+			for (Object o : child.getFileList()) {
+				File inputFile = (File) o;
+				if (inputFile.getType() != Parameters.FileType.INPUT.value) {
+					continue;
+				}
+				File output = outputs.get(inputFile.getName());
+				if (output != null && site2names.computeIfAbsent(predictedSiteId, id -> new HashSet<>()).add(output.getName())) {
+					site2files.computeIfAbsent(predictedSiteId, id -> new ArrayList<>()).add(output);
+				}
+			}
+		}
+
+		return site2files;
+	}
+}
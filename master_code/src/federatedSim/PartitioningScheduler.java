@@ -3,6 +3,7 @@ package federatedSim;
 import federatedSim.utils.DisjointSetUnion;
 import org.cloudbus.cloudsim.File;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.metrics.Metrics;
 import org.workflowsim.*;
 import org.workflowsim.scheduling.BaseSchedulingAlgorithm;
 import org.workflowsim.utils.Parameters;
@@ -12,39 +13,39 @@ import java.util.*;
 
 public class PartitioningScheduler extends BaseSchedulingAlgorithm {
 
-	private Map<Integer, Set<Integer>> exceededMap = new HashMap<>();
+	protected Map<Integer, Set<Integer>> exceededMap = new HashMap<>();
 	public void addExceededMap(Map<Integer, Set<Integer>> map) {
 		exceededMap = map;
 	}
 
 	// retried job id bookkeeping
-	private DisjointSetUnion retriedJobsSetUnion;
+	protected DisjointSetUnion retriedJobsSetUnion;
 
 	public void addRetriedJobsSetUnion (DisjointSetUnion dsu) {
 		retriedJobsSetUnion = dsu;
 	}
 
-	private final int vmNum = Parameters.getVmNum();
+	protected final int vmNum = Parameters.getVmNum();
 
 
 	// available vms
 	private List<CondorVM> vms;
 
 	// datacenters of VMs
-	private WorkflowDatacenter[] datacenters;
+	protected WorkflowDatacenter[] datacenters;
 
 	// ids of datacenters
-	private int[] datacenterIds;
+	protected int[] datacenterIds;
 
 	// storages of datacenters
-	private ClusterStorage[] storages;
+	protected ClusterStorage[] storages;
 
 	// available storage capacity;
-	private double[] availableStorage;
+	protected double[] availableStorage;
 
 
 	// differences between available storage and predicted site assignment
-	private double[] predictedAvailableStorage;
+	protected double[] predictedAvailableStorage;
 
 
 
@@ -138,11 +139,23 @@ public class PartitioningScheduler extends BaseSchedulingAlgorithm {
 
 		// determine which sites are predicted to overuse their storage, available storage - estimated size
 		// negative: storage overuse predicted
+		// files that are still being prefetched to a site are charged against its storage as well
 		predictedAvailableStorage = new double[vmNum];
 		for (int i = 0; i < vmNum; i++){
-			predictedAvailableStorage[i] = availableStorage[i] - currentTotalSizeEstimates[i];
+			predictedAvailableStorage[i] = availableStorage[i] - currentTotalSizeEstimates[i] - datacenters[i].getPrefetchBytesInFlight();
 		}
 
+		partitionBatch(jobList);
+	}
+
+	// assigns the jobs of a threshold-triggered batch to sites
+	// greedy: jobs stay on their best continuation, unless the continuation is predicted to overuse its storage
+	protected void partitionBatch(List<Job> jobList) {
+
+		// place groups of jobs that share inputs first, the remaining jobs are placed one by one
+		if (Parameters.colocation_enabled()) {
+			jobList = colocateSharedInputs(jobList);
+		}
 
 		// iterate new jobs that should be scheduled
 		for (Job job : jobList) {
@@ -230,14 +243,196 @@ public class PartitioningScheduler extends BaseSchedulingAlgorithm {
 				scheduleJob(job, continuationSiteId);
 			}
 		}
+	}
+
+
+	// co-location pass: jobs of the batch that read the same input files form groups (connected components of the
+	// bipartite job-file graph), placing a group on one site transfers every shared file at most once
+	// only files that the jobs would transfer to several sites on their continuations connect jobs, so groups stay as
+	// small as the duplicate transfers allow
+	// groups are placed in the order of their duplicate bytes, on the site with the fewest missing input bytes that is
+	// predicted to fit the group's missing inputs and estimated outputs, if that site needs fewer transfers than the
+	// continuations
+	// returns the jobs that were not placed
+	private List<Job> colocateSharedInputs(List<Job> jobList) {
+
+		// bipartite job-file graph, start jobs and retried jobs keep their special handling
+		// also remember to which continuations every file would be transferred
+		Map<String, List<Job>> file2jobs = new LinkedHashMap<>();
+		Map<String, Set<Integer>> file2sites = new HashMap<>();
+		for (Job job : jobList) {
+			if (job.getParentList().size() == 0 || retriedJobsSetUnion.contains(job.getCloudletId())) {
+				continue;
+			}
+			int continuationSiteId = deriveBestSiteContinuation(job);
+			for (Object o : job.getFileList()) {
+				File file = (File) o;
+				if (file.getType() == Parameters.FileType.INPUT.value) {
+					file2jobs.computeIfAbsent(file.getName(), name -> new ArrayList<>()).add(job);
+					if (!storages[continuationSiteId].contains(file.getName())) {
+						file2sites.computeIfAbsent(file.getName(), name -> new HashSet<>()).add(continuationSiteId);
+					}
+				}
+			}
+		}
+
+		// connected components over the duplicated files
+		DisjointSetUnion components = new DisjointSetUnion();
+		for (Map.Entry<String, List<Job>> entry : file2jobs.entrySet()) {
+			List<Job> readers = entry.getValue();
+			if (file2sites.getOrDefault(entry.getKey(), Collections.emptySet()).size() < 2) {
+				continue;
+			}
+			components.add(readers.get(0).getCloudletId());
+			for (Job reader : readers) {
+				components.add(reader.getCloudletId());
+				components.union(readers.get(0).getCloudletId(), reader.getCloudletId());
+			}
+		}
+		Map<Integer, List<Job>> groups = new LinkedHashMap<>();
+		for (Job job : jobList) {
+			if (components.contains(job.getCloudletId())) {
+				groups.computeIfAbsent(components.find(job.getCloudletId()), id -> new ArrayList<>()).add(job);
+			}
+		}
+
+		// score groups by their duplicate transfers
+		List<List<Job>> scoredGroups = new ArrayList<>(groups.values());
+		Map<List<Job>, Double> scores = new IdentityHashMap<>();
+		for (List<Job> group : scoredGroups) {
+			scores.put(group, getDuplicateTransferBytes(group));
+		}
+		scoredGroups.sort(Comparator.comparingDouble((List<Job> group) -> -scores.get(group)));
+
+		// place groups, now with the storage that is left
+		Set<Job> placed = new HashSet<>();
+		for (List<Job> group : scoredGroups) {
+			if (scores.get(group) <= 0) {
+				break;
+			}
+
+			int[] continuationSiteIds = new int[group.size()];
+			double[] jobSizes = new double[group.size()];
+			double[] predictedGroupSizes = new double[vmNum];
+			double outputSize = 0;
+			for (int j = 0; j < group.size(); j++) {
+				continuationSiteIds[j] = deriveBestSiteContinuation(group.get(j));
+				jobSizes[j] = DynamicAbstractDag.getEstimatedSize4SubDAG(group.get(j));
+				predictedGroupSizes[continuationSiteIds[j]] += jobSizes[j];
+				outputSize += DynamicAbstractDag.getEstimatedOutputSize(group.get(j));
+			}
+
+			int siteId = -1;
+			double bestMissingBytes = Double.MAX_VALUE;
+			for (int i : getSitesThatCanFitGroup(group)) {
+				double missingBytes = getMissingInputBytes(group, i);
+				// the group's jobs that are predicted on the site are already charged against its storage
+				if (predictedAvailableStorage[i] + predictedGroupSizes[i] >= missingBytes + outputSize && missingBytes < bestMissingBytes) {
+					bestMissingBytes = missingBytes;
+					siteId = i;
+				}
+			}
+			double separateBytes = getSeparateTransferBytes(group);
+			if (siteId == -1 || bestMissingBytes >= separateBytes) {
+				continue;
+			}
+
+			for (int j = 0; j < group.size(); j++) {
+				scheduleJob(group.get(j), siteId);
+				placed.add(group.get(j));
+
+				// same bookkeeping as moveJob
+				if (siteId != continuationSiteIds[j]) {
+					predictedAvailableStorage[continuationSiteIds[j]] += jobSizes[j];
+					predictedAvailableStorage[siteId]                 -= jobSizes[j];
+					DynamicAbstractDag.updateShiftArray(group.get(j), siteId, continuationSiteIds[j]);
+				}
+			}
+			// the saving is what the group's jobs would have transferred on their continuations minus what the shared site misses
+			Parameters.setColocationSavedBytes(Parameters.getColocationSavedBytes() + separateBytes - bestMissingBytes);
+		}
 
+		List<Job> remaining = new ArrayList<>();
+		for (Job job : jobList) {
+			if (!placed.contains(job)) {
+				remaining.add(job);
+			}
+		}
+		return remaining;
 	}
 
+	// bytes that the jobs of a group would transfer more than once if every job ran on its continuation, i.e., the
+	// copies of a file to the second, third, ... site that misses it
+	private double getDuplicateTransferBytes(List<Job> group) {
+		Map<String, Set<Integer>> file2sites = new HashMap<>();
+		Map<String, Integer> file2size = new HashMap<>();
+		for (Job job : group) {
+			int siteId = deriveBestSiteContinuation(job);
+			for (Object o : job.getFileList()) {
+				File file = (File) o;
+				if (file.getType() == Parameters.FileType.INPUT.value && !storages[siteId].contains(file.getName())) {
+					file2sites.computeIfAbsent(file.getName(), name -> new HashSet<>()).add(siteId);
+					file2size.put(file.getName(), file.getSize());
+				}
+			}
+		}
+		double bytes = 0;
+		for (Map.Entry<String, Set<Integer>> entry : file2sites.entrySet()) {
+			bytes += (entry.getValue().size() - 1) * (double) file2size.get(entry.getKey());
+		}
+		return bytes;
+	}
+
+	// sites that can fit the inputs of every job of a group
+	private Set<Integer> getSitesThatCanFitGroup(List<Job> group) {
+		Set<Integer> sites = new TreeSet<>();
+		for (int i = 0; i < vmNum; i++) {
+			sites.add(i);
+		}
+		for (Job job : group) {
+			sites.retainAll(getSitesThatCanFitInputs(job, new HashSet<>()));
+		}
+		return sites;
+	}
+
+	// bytes of the group's inputs that are missing on a site, every file counted once
+	private double getMissingInputBytes(List<Job> group, int siteId) {
+		Set<String> missing = new HashSet<>();
+		double bytes = 0;
+		for (Job job : group) {
+			for (Object o : job.getFileList()) {
+				File file = (File) o;
+				if (file.getType() == Parameters.FileType.INPUT.value && !storages[siteId].contains(file.getName()) && missing.add(file.getName())) {
+					bytes += file.getSize();
+				}
+			}
+		}
+		return bytes;
+	}
+
+	// bytes transferred if every job of a group ran on its continuation, a file is transferred once per site that misses it
+	private double getSeparateTransferBytes(List<Job> group) {
+		Set<String> transfers = new HashSet<>();
+		double bytes = 0;
+		for (Job job : group) {
+			int siteId = deriveBestSiteContinuation(job);
+			for (Object o : job.getFileList()) {
+				File file = (File) o;
+				if (file.getType() == Parameters.FileType.INPUT.value && !storages[siteId].contains(file.getName()) && transfers.add(file.getName() + "@" + siteId)) {
+					bytes += file.getSize();
+				}
+			}
+		}
+		return bytes;
+	}
 
 	// computes the best continuation of partitioning
 	// this is the site where the smallest amount of data needs to be transferred based on parents
 	// returns the vmID of the best site
-	private int deriveBestSiteContinuation(Job job) {
+	// static, because the output prefetcher uses the same continuation to predict where children will run
+	public static int deriveBestSiteContinuation(Job job) {
+		int vmNum = Parameters.getVmNum();
+
 		// store the amount of data that would be transferred for each site
 		long[] requiredTransfers = new long[vmNum];
 
@@ -292,7 +487,7 @@ public class PartitioningScheduler extends BaseSchedulingAlgorithm {
 	}
 
 	// schedule job to vm with vmId id
-	private void scheduleJob(Job job, int id) {
+	protected void scheduleJob(Job job, int id) {
 		vms.get(id).setState(WorkflowSimTags.VM_STATUS_BUSY);
 		job.setVmId(id);
 		getScheduledList().add(job);
@@ -302,6 +497,8 @@ public class PartitioningScheduler extends BaseSchedulingAlgorithm {
 	// best site = has enough space for the predicted subtree and highest bandwidth from continuation site
 	// exceededDatacenterIds contains the Ids of datacenter that prior repetitions of this job have exceeded
 	private void moveJob(Job job, int continuationSiteId, Set<Integer> exceededDatacenterIds ) {
+		Metrics.increment("scheduler.moves");
+
 		// get sites that would have the capacity to store the inputs of the job that are on other sites
 		Set<Integer> sitesThatFitInputs = getSitesThatCanFitInputs(job, exceededDatacenterIds);
 
@@ -323,8 +520,10 @@ public class PartitioningScheduler extends BaseSchedulingAlgorithm {
 				// we need the name of the datacenter because that's how cluster storage remembers bandwidth
 				String targetSiteName = datacenters[i].getName();
 
-				// get bandwidth from continuation site to target site
-				double bandwidth = storages[continuationSiteId].getMaxTransferRate(targetSiteName);
+				// get bandwidth from continuation site to target site, with the network model this is the share of a new transfer
+				FlowNetwork network = datacenters[continuationSiteId].getNetwork();
+				double bandwidth = network == null ? storages[continuationSiteId].getMaxTransferRate(targetSiteName)
+						: network.getExpectedRate(storages[continuationSiteId], targetSiteName);
 
 				// compare bandwidth with current best
 				if (bandwidth > bestBandwidth) {
@@ -370,7 +569,7 @@ public class PartitioningScheduler extends BaseSchedulingAlgorithm {
 		DynamicAbstractDag.updateShiftArray(job, siteId, continuationSiteId);
 	}
 
-	private void initialPartitioning(List<Job> startJobs) {
+	protected void initialPartitioning(List<Job> startJobs) {
 		for (Job startJob : startJobs) {
 			int siteId = computeInitPartitioningSiteId(startJob);
 			scheduleJob(startJob, siteId);
@@ -446,7 +645,7 @@ public class PartitioningScheduler extends BaseSchedulingAlgorithm {
 	}
 
 	// derive a site Id for an retried start job
-	private void handleRetriedStartJob(Job startJob) {
+	protected void handleRetriedStartJob(Job startJob) {
 
 		// this should be a retried job
 		if (!retriedJobsSetUnion.contains(startJob.getCloudletId())) {
@@ -510,10 +709,60 @@ public class PartitioningScheduler extends BaseSchedulingAlgorithm {
 
 	}
 
+	// ids of the datacenters whose storage a retried job has exceeded before
+	protected Set<Integer> getExceededDatacenterIds(Job job) {
+		if (retriedJobsSetUnion.contains(job.getCloudletId())) {
+			Set<Integer> exceeded = exceededMap.get(retriedJobsSetUnion.find(job.getCloudletId()));
+			if (exceeded != null) {
+				return exceeded;
+			}
+		}
+		return new HashSet<>();
+	}
+
+	// time to transfer the job's inputs that are missing on a site from their fastest holder, for every site
+	protected double[] getTransferTimes(Job job) {
+		double[] times = new double[vmNum];
+		for (Object o : job.getFileList()) {
+			File file = (File) o;
+			if (file.getType() != Parameters.FileType.INPUT.value) {
+				continue;
+			}
+			List<String> holders = ReplicaCatalog.getStorageList(file.getName());
+			for (int i = 0; i < vmNum; i++) {
+				String siteName = datacenters[i].getName();
+				if (holders.contains(siteName)) {
+					continue;
+				}
+				double bestRate = 0.0;
+				boolean siteHolder = false;
+				for (String holder : holders) {
+					// storages are named like their datacenters, Datacenter_k is site k
+					if (!holder.startsWith("Datacenter_")) {
+						continue;
+					}
+					siteHolder = true;
+					int holderId = Integer.parseInt(holder.substring("Datacenter_".length()));
+					FlowNetwork network = datacenters[holderId].getNetwork();
+					double rate = network == null ? storages[holderId].getMaxTransferRate(siteName)
+							: network.getExpectedRate(storages[holderId], siteName);
+					bestRate = Math.max(bestRate, rate);
+				}
+				if (bestRate > 0) {
+					times[i] += file.getSize() / bestRate;
+				} else if (siteHolder) {
+					// no holder has a link to this site
+					times[i] = Double.POSITIVE_INFINITY;
+				}
+			}
+		}
+		return times;
+	}
+
 	// this helper function returns the sites which could store all the input data of job that would be required to be moved there
 	// this is important to avoid scheduling tasks to sites where the inputs would already exceed the available storage
 	// sites that have already been exceeded by this job (exceededDatacenterIds) can be ignored
-	private Set<Integer> getSitesThatCanFitInputs(Job job, Set<Integer> exceededDatacenterIds ) {
+	protected Set<Integer> getSitesThatCanFitInputs(Job job, Set<Integer> exceededDatacenterIds ) {
 		// store how much data we would need to transfer to sites
 		double[] siteTransfers = new double[vmNum];
 
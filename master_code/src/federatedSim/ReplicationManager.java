@@ -0,0 +1,162 @@
+package federatedSim;
+
+import org.cloudbus.cloudsim.File;
+import org.workflowsim.Job;
+import org.workflowsim.Task;
+import org.workflowsim.utils.Parameters;
+import org.workflowsim.utils.ReplicaCatalog;
+
+import java.util.*;
+
+// Decides which hot files should be replicated to other sites before their consumers are scheduled, so that the first
+// consumer on a site does not have to wait for the file in its stage-in.
+// A file is hot if many jobs of the workflow read it. It is replicated to every site where at least one of its pending
+// consumers is expected: a consumer counts for a site with the share of the jobs of its type that the dynamic DAG
+// predicts there. Initial files are replicated once the start jobs are scheduled, outputs as soon as they are produced.
+// Every site accepts replicas up to the replication budget, the most expected consumers are served first. A replica is
+// charged against the budget of its site when the site stores it, replicas that are dropped on the way cost nothing.
+public class ReplicationManager {
+
+	// consumers of every file of the workflow
+	// static, like the dynamic DAG the consumers are known for the whole simulation
+	private static Map<String, List<Job>> file2consumers = new HashMap<>();
+
+	// bytes of the replicas stored on every site so far
+	private static double[] replicatedBytes = new double[0];
+
+	// collects the consumers of all files reachable from the start jobs and returns the replicas of the hot initial files,
+	// mapped from the source vm id (= site) to the target vm id to the files
+	public static Map<Integer, Map<Integer, List<File>>> init(List<Job> startJobs) {
+		file2consumers = new HashMap<>();
+		replicatedBytes = new double[Parameters.getVmNum()];
+
+		Set<Job> visited = new HashSet<>();
+		Deque<Job> queue = new ArrayDeque<>(startJobs);
+		Set<String> outputs = new HashSet<>();
+		Map<String, File> inputs = new TreeMap<>();
+		while (!queue.isEmpty()) {
+			Job job = queue.poll();
+			if (!visited.add(job)) {
+				continue;
+			}
+			for (Object o : job.getFileList()) {
+				File file = (File) o;
+				if (file.getType() == Parameters.FileType.INPUT.value) {
+					file2consumers.computeIfAbsent(file.getName(), name -> new ArrayList<>()).add(job);
+					inputs.putIfAbsent(file.getName(), file);
+				} else if (file.getType() == Parameters.FileType.OUTPUT.value) {
+					outputs.add(file.getName());
+				}
+			}
+			for (Task child : job.getChildList()) {
+				queue.add((Job) child);
+			}
+		}
+
+		// initial files are read, but not written by any job
+		List<File> initialFiles = new ArrayList<>();
+		for (File file : inputs.values()) {
+			if (!outputs.contains(file.getName())) {
+				initialFiles.add(file);
+			}
+		}
+
+		// the start jobs are scheduled already
+		return getReplicas(initialFiles, new HashSet<>(startJobs));
+	}
+
+	// returns the replicas of the hot outputs of a finished job, mapped from the source vm id to the target vm id to the files
+	public static Map<Integer, Map<Integer, List<File>>> getReplicas(Job finishedJob) {
+		List<File> outputs = new ArrayList<>();
+		for (Object o : finishedJob.getFileList()) {
+			File file = (File) o;
+			if (file.getType() == Parameters.FileType.OUTPUT.value) {
+				outputs.add(file);
+			}
+		}
+		return getReplicas(outputs, Collections.emptySet());
+	}
+
+	private static Map<Integer, Map<Integer, List<File>>> getReplicas(List<File> files, Set<Job> scheduledJobs) {
+		int vmNum = Parameters.getVmNum();
+
+		// candidate replicas with the number of consumers expected on their site
+		List<Object[]> candidates = new ArrayList<>(); // {file, source site, target site, expected consumers}
+		for (File file : files) {
+			List<Job> consumers = file2consumers.getOrDefault(file.getName(), Collections.emptyList());
+			if (consumers.size() < Parameters.getHotFanOut()) {
+				continue;
+			}
+
+			// storages are named like their datacenters, Datacenter_k is site k
+			List<String> holders = ReplicaCatalog.getStorageList(file.getName());
+			int sourceSiteId = -1;
+			for (String holder : holders) {
+				if (holder.startsWith("Datacenter_")) {
+					sourceSiteId = Integer.parseInt(holder.substring("Datacenter_".length()));
+					break;
+				}
+			}
+			if (sourceSiteId == -1) {
+				continue;
+			}
+
+			double[] expectedConsumers = new double[vmNum];
+			for (Job consumer : consumers) {
+				if (scheduledJobs.contains(consumer)) {
+					continue;
+				}
+				int[] taskEstimates = DynamicAbstractDag.getTaskEstimates(consumer);
+				int total = 0;
+				for (int estimate : taskEstimates) {
+					total += estimate;
+				}
+				if (total <= 0) {
+					continue;
+				}
+				for (int i = 0; i < vmNum; i++) {
+					expectedConsumers[i] += (double) taskEstimates[i] / total;
+				}
+			}
+
+			for (int i = 0; i < vmNum; i++) {
+				if (expectedConsumers[i] >= 1.0 && !holders.contains("Datacenter_" + i)) {
+					candidates.add(new Object[]{file, sourceSiteId, i, expectedConsumers[i]});
+				}
+			}
+		}
+
+		// most expected consumers first, within the budget of the target site
+		// replicas that are still on the way may exceed it, they are dropped when they arrive (see fitsBudget)
+		candidates.sort(Comparator.comparingDouble((Object[] c) -> -(Double) c[3]));
+		Map<Integer, Map<Integer, List<File>>> replicas = new TreeMap<>();
+		double[] plannedBytes = new double[vmNum];
+		for (Object[] candidate : candidates) {
+			File file = (File) candidate[0];
+			int targetSiteId = (Integer) candidate[2];
+			if (replicatedBytes[targetSiteId] + plannedBytes[targetSiteId] + file.getSize() > Parameters.getReplicationBudget()) {
+				continue;
+			}
+			plannedBytes[targetSiteId] += file.getSize();
+			replicas.computeIfAbsent((Integer) candidate[1], id -> new TreeMap<>())
+					.computeIfAbsent(targetSiteId, id -> new ArrayList<>()).add(file);
+		}
+		return replicas;
+	}
+
+	// true if a replica that arrived on a site still fits into the site's budget
+	public static boolean fitsBudget(String siteName, File file) {
+		return replicatedBytes[getSiteId(siteName)] + file.getSize() <= Parameters.getReplicationBudget();
+	}
+
+	// charges a replica that a site stored against the site's budget
+	public static void replicaStored(String siteName, File file) {
+		replicatedBytes[getSiteId(siteName)] += file.getSize();
+		Parameters.setReplicatedBytes(Parameters.getReplicatedBytes() + file.getSize());
+	}
+
+	// storages are named like their datacenters, Datacenter_k is site k
+	private static int getSiteId(String siteName) {
+		return Integer.parseInt(siteName.substring("Datacenter_".length()));
+	}
+}
@@ -0,0 +1,99 @@
+package federatedSim;
+
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.workflowsim.WorkflowScheduler;
+
+// Resource usage of a simulation run, for the performance regression suite (experiments/benchmark.py).
+// start() is called before the configuration is parsed, stop() after the simulation finished, write() writes the
+// measurements as "Name,value" rows like the results of FederatedTwoSites.
+public class RunTelemetry {
+
+	private long startNanos;
+	private long wallClockNanos;
+
+	private long startAllocatedBytes;
+	private long allocatedBytes = -1;
+
+	private long startGcMillis;
+	private long gcMillis;
+
+	private long peakHeapBytes;
+	private long events;
+	private long schedulingRounds;
+	private long startSchedulingRounds;
+
+	public void start() {
+		// peaks are tracked since the start of the JVM, the parsing of the configuration should count as well
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			pool.resetPeakUsage();
+		}
+		startGcMillis       = getGcMillis();
+		startAllocatedBytes = getAllocatedBytes();
+		startNanos          = System.nanoTime();
+
+		// the scheduling rounds of previous simulations in the same JVM do not count
+		startSchedulingRounds = WorkflowScheduler.getSchedulingRounds();
+	}
+
+	public void stop() {
+		wallClockNanos = System.nanoTime() - startNanos;
+
+		long allocated = getAllocatedBytes();
+		if (allocated >= 0 && startAllocatedBytes >= 0) {
+			allocatedBytes = allocated - startAllocatedBytes;
+		}
+		gcMillis = getGcMillis() - startGcMillis;
+
+		peakHeapBytes = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+				peakHeapBytes += pool.getPeakUsage().getUsed();
+			}
+		}
+
+		events           = CloudSim.getProcessedEventCount();
+		schedulingRounds = WorkflowScheduler.getSchedulingRounds() - startSchedulingRounds;
+	}
+
+	public void write(String path) {
+		try (PrintWriter writer = new PrintWriter(path)) {
+			writer.println("WallClockTime," + wallClockNanos / 1e9);
+			writer.println("EventsProcessed," + events);
+			writer.println("PeakHeap," + peakHeapBytes);
+			writer.println("AllocatedBytes," + allocatedBytes);
+			writer.println("GcTime," + gcMillis / 1e3);
+			writer.println("SchedulerInvocations," + schedulingRounds);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	// total time of all collectors in ms
+	private static long getGcMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			millis += Math.max(0, collector.getCollectionTime());
+		}
+		return millis;
+	}
+
+	// bytes allocated by the simulation thread, -1 if the JVM does not support it
+	// the simulation runs in a single thread, only the offline partitioner uses additional threads
+	private static long getAllocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean hotspotThreads = (com.sun.management.ThreadMXBean) threads;
+			if (hotspotThreads.isThreadAllocatedMemorySupported() && hotspotThreads.isThreadAllocatedMemoryEnabled()) {
+				return hotspotThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+}
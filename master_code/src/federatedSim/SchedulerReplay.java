@@ -0,0 +1,116 @@
+package federatedSim;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.workflowsim.WorkflowScheduler;
+import org.workflowsim.scheduling.BaseSchedulingAlgorithm;
+
+/**
+ * Replays the scheduling rounds of a recorded simulation (see SchedulerTrace and the config key schedulerTracePath)
+ * with other scheduling algorithms, without running the simulation. The base of the trace is restored once, every round
+ * applies its recorded inputs to it and the algorithm is given the same inputs as the recorded one (batch, received
+ * jobs, vms, storages, replica catalog). This allows to compare algorithms decision by decision and to measure their
+ * latency on realistic batches.
+ *
+ * The replay is open-loop: after every round the recorded decisions are set again, so every round starts from the
+ * recorded state and the decisions of the replayed algorithm do not influence later rounds. State that an algorithm keeps in its own static fields (e.g. the ranks of CP or the plan of
+ * OFFLINE) carries over from round to round of the replay.
+ *
+ * Usage: SchedulerReplay config.json trace.gz results.csv [strategy ...]
+ * A strategy is RND, PART, MCF, OFFLINE, CP or the class name of a BaseSchedulingAlgorithm, the strategy of the
+ * config by default. The config has to be the one of the recorded run.
+ * results.csv has one row per strategy and round: the batch size, the scheduled jobs, the fraction of the recorded
+ * decisions that the algorithm made as well (same vm), the latency of the algorithm and its error, if any.
+ */
+public class SchedulerReplay {
+
+	public static void main(String[] args) {
+
+		if (args.length < 3) {
+			throw new RuntimeException("Need a parameter config file, a scheduler trace and a results file");
+		}
+
+		ConfigParser configParser = new ConfigParser();
+		configParser.parse(args[0]);
+
+		List<String> strategies = new ArrayList<>();
+		for (int i = 3; i < args.length; i++) {
+			strategies.add(args[i]);
+		}
+		if (strategies.isEmpty()) {
+			strategies.add(configParser.getStrategy());
+		}
+
+		Log.disable();
+
+		try (PrintWriter writer = new PrintWriter(args[2])) {
+			// initializes the static parameters like the recorded run, the rounds restore the rest
+			FederatedTwoSites.setupSimulation(configParser);
+
+			writer.println("STRATEGY,ROUND,TIME,BATCH,SCHEDULED,AGREE,NANOS,ERROR");
+
+			for (String strategy : strategies) {
+				try (SchedulerTrace.Reader reader = new SchedulerTrace.Reader(args[1])) {
+					SchedulerTrace.Replay base = reader.restoreBase();
+					SchedulerTrace.Round round;
+					while ((round = reader.next()) != null) {
+						writer.println(strategy + "," + replay(strategy, round, base));
+					}
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	// replays one round, returns the CSV columns after the strategy
+	private static String replay(String strategy, SchedulerTrace.Round round, SchedulerTrace.Replay base) throws Exception {
+		double time = round.restore(base);
+		WorkflowScheduler scheduler = (WorkflowScheduler) CloudSim.getEntity(round.getSchedulerId());
+
+		BaseSchedulingAlgorithm algorithm = createAlgorithm(strategy, scheduler);
+		scheduler.prepareScheduler(algorithm);
+		int batch = scheduler.getCloudletList().size();
+
+		String error = "";
+		long start = System.nanoTime();
+		try {
+			algorithm.run();
+		} catch (Exception e) {
+			error = e.getClass().getSimpleName();
+		}
+		long nanos = System.nanoTime() - start;
+
+		// the recorded decisions that were made again
+		Map<Integer, Integer> decisions = round.getDecisions();
+		List<?> scheduledList = algorithm.getScheduledList();
+		int same = 0;
+		for (Object o : scheduledList) {
+			Cloudlet cloudlet = (Cloudlet) o;
+			Integer vmId = decisions.get(cloudlet.getCloudletId());
+			if (vmId != null && vmId == cloudlet.getVmId()) {
+				same++;
+			}
+		}
+		double agree = decisions.isEmpty() ? 1.0 : (double) same / decisions.size();
+
+		round.applyDecisions(base);
+
+		return round.getIndex() + "," + time + "," + batch + "," + scheduledList.size() + "," + agree + "," + nanos
+				+ "," + error;
+	}
+
+	// a strategy of the config, or a class name
+	private static BaseSchedulingAlgorithm createAlgorithm(String strategy, WorkflowScheduler scheduler) throws Exception {
+		if (strategy.contains(".")) {
+			return (BaseSchedulingAlgorithm) Class.forName(strategy).getDeclaredConstructor().newInstance();
+		}
+		return scheduler.getScheduler(FederatedTwoSites.parseStrategy(strategy));
+	}
+}
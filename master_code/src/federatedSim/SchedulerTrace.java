@@ -0,0 +1,492 @@
+package federatedSim;
+
+import federatedSim.utils.DisjointSetUnion;
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.HarddriveStorage;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimulationSnapshot;
+import org.workflowsim.*;
+import org.workflowsim.reclustering.ReclusteringEngine;
+import org.workflowsim.utils.Parameters;
+import org.workflowsim.utils.ReplicaCatalog;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// A trace of the scheduling rounds of a simulation, for replaying them offline with other algorithms (see
+// SchedulerReplay).
+// The first round stores one snapshot of the simulation (see CloudSim.createSnapshot) with the static state as
+// attachment, the base with the workflow's jobs, the vms and the sites. Every round, recorded right before
+// WorkflowScheduler runs its algorithm, then stores only the inputs of the algorithm that changed since the round
+// before:
+// - the jobs that were retried since (the replay recreates them from the failed jobs)
+// - the batch of jobs and the jobs the scheduler received since
+// - per storage its available space and the files stored and deleted since, per datacenter its prefetches in flight
+// - the flows per link of the network model
+// - the storages that were added to the replica catalog since
+// - the small bookkeeping: run state, dynamic DAG, exceeded storages and retried job ids
+// The decisions of the recorded algorithm (vm id of every scheduled job) follow the inputs. The replay restores the
+// base once and applies the rounds in order, after every round it sets the recorded decisions, so the next round starts
+// from the recorded run again. The trace is gzipped, large workflows need a larger stack (-Xss) to serialize the base.
+//
+// Format: base snapshot, then rounds of
+//   int index, int scheduler entity id, double time, int retries, (int failed cloudlet id, int new cloudlet id)*,
+//   int batch size, int cloudlet id*, int received, int cloudlet id*,
+//   int storages, (UTF name, double available space, int stored, UTF file*, int deleted, UTF file*)*,
+//   int datacenters, (UTF name, double prefetch bytes in flight)*, int links, (UTF "source->destination", int flows)*,
+//   int catalog entries, (UTF file, int storages, UTF storage*)*, int bookkeeping length, serialized bookkeeping,
+//   int number of decisions, (int cloudlet id, int vm id)*
+public class SchedulerTrace implements Closeable {
+
+	private final DataOutputStream out;
+
+	private int rounds = 0;
+	private boolean baseWritten = false;
+
+	// the inputs of the round that is currently scheduled, written with its decisions
+	private ByteArrayOutputStream pendingRound = null;
+
+	// retries since the last round, {failed cloudlet id, new cloudlet id}
+	private final List<int[]> pendingRetries = new ArrayList<>();
+
+	// the state the last round was recorded with, the next round stores the differences
+	private final Map<Integer, Integer> receivedCounts = new HashMap<>();
+	private final Map<String, Set<String>> storedFiles = new HashMap<>();
+	private final Map<String, Integer> catalogSizes = new HashMap<>();
+
+	public SchedulerTrace(String path) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(path))));
+	}
+
+	// records that a failed job is retried as a new job, called by the workflow engine
+	public void recordRetry(int failedId, int newId) {
+		pendingRetries.add(new int[]{failedId, newId});
+	}
+
+	// records the inputs of a round, called before the scheduler runs its algorithm
+	public void beginRound(int schedulerId) {
+		try {
+			if (!baseWritten) {
+				writeBase();
+			}
+
+			WorkflowScheduler scheduler = (WorkflowScheduler) CloudSim.getEntity(schedulerId);
+			pendingRound = new ByteArrayOutputStream();
+			DataOutputStream round = new DataOutputStream(pendingRound);
+
+			round.writeInt(schedulerId);
+			round.writeDouble(CloudSim.clock());
+
+			round.writeInt(pendingRetries.size());
+			for (int[] retry : pendingRetries) {
+				round.writeInt(retry[0]);
+				round.writeInt(retry[1]);
+			}
+			pendingRetries.clear();
+
+			List<Cloudlet> batch = scheduler.getCloudletList();
+			round.writeInt(batch.size());
+			for (Cloudlet cloudlet : batch) {
+				round.writeInt(cloudlet.getCloudletId());
+			}
+
+			List<Cloudlet> received = scheduler.getCloudletReceivedList();
+			int receivedCount = receivedCounts.getOrDefault(schedulerId, 0);
+			round.writeInt(received.size() - receivedCount);
+			for (Cloudlet cloudlet : received.subList(receivedCount, received.size())) {
+				round.writeInt(cloudlet.getCloudletId());
+			}
+			receivedCounts.put(schedulerId, received.size());
+
+			writeSites(round);
+			writeCatalog(round);
+
+			ByteArrayOutputStream bookkeeping = new ByteArrayOutputStream();
+			try (ObjectOutputStream objects = new ObjectOutputStream(bookkeeping)) {
+				objects.writeObject(new Object[]{Parameters.getRunState(), DynamicAbstractDag.getState(),
+						scheduler.getExceededStorageMap(), scheduler.getRetriedJobIdsSetUnion()});
+			}
+			round.writeInt(bookkeeping.size());
+			bookkeeping.writeTo(round);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// the base holds the stored files and the replica catalog, the rounds store the differences to it
+	private void writeBase() throws IOException {
+		CloudSim.createSnapshot(FederatedTwoSites.getStaticState()).write(out);
+		for (WorkflowDatacenter datacenter : getDatacenters()) {
+			for (Storage storage : datacenter.getStorageList()) {
+				storedFiles.put(storage.getName(), new LinkedHashSet<>(storage.getFileNameList()));
+			}
+		}
+		for (String file : ReplicaCatalog.getStoredFileNames()) {
+			catalogSizes.put(file, ReplicaCatalog.getStorageList(file).size());
+		}
+		baseWritten = true;
+	}
+
+	// storages, prefetches and network flows of the datacenters
+	private void writeSites(DataOutputStream round) throws IOException {
+		List<WorkflowDatacenter> datacenters = getDatacenters();
+		List<Storage> storages = new ArrayList<>();
+		for (WorkflowDatacenter datacenter : datacenters) {
+			storages.addAll(datacenter.getStorageList());
+		}
+
+		round.writeInt(storages.size());
+		for (Storage storage : storages) {
+			Set<String> previous = storedFiles.getOrDefault(storage.getName(), Collections.emptySet());
+			Set<String> current = new LinkedHashSet<>(storage.getFileNameList());
+			round.writeUTF(storage.getName());
+			round.writeDouble(storage.getAvailableSpace());
+			writeDifference(round, current, previous);
+			writeDifference(round, previous, current);
+			storedFiles.put(storage.getName(), current);
+		}
+
+		round.writeInt(datacenters.size());
+		FlowNetwork network = null;
+		for (WorkflowDatacenter datacenter : datacenters) {
+			round.writeUTF(datacenter.getName());
+			round.writeDouble(datacenter.getPrefetchBytesInFlight());
+			if (datacenter.getNetwork() != null) {
+				network = datacenter.getNetwork();
+			}
+		}
+
+		Map<String, Integer> linkLoads = network == null ? Collections.emptyMap() : network.getLinkLoads();
+		round.writeInt(linkLoads.size());
+		for (Map.Entry<String, Integer> load : linkLoads.entrySet()) {
+			round.writeUTF(load.getKey());
+			round.writeInt(load.getValue());
+		}
+	}
+
+	// the names in `names` but not in `others`
+	private static void writeDifference(DataOutputStream round, Set<String> names, Set<String> others) throws IOException {
+		List<String> difference = new ArrayList<>();
+		for (String name : names) {
+			if (!others.contains(name)) {
+				difference.add(name);
+			}
+		}
+		round.writeInt(difference.size());
+		for (String name : difference) {
+			round.writeUTF(name);
+		}
+	}
+
+	// storages are only ever added to the catalog, so the storages after the recorded ones are new
+	private void writeCatalog(DataOutputStream round) throws IOException {
+		List<String> changed = new ArrayList<>();
+		for (String file : ReplicaCatalog.getStoredFileNames()) {
+			if (ReplicaCatalog.getStorageList(file).size() != catalogSizes.getOrDefault(file, 0)) {
+				changed.add(file);
+			}
+		}
+		round.writeInt(changed.size());
+		for (String file : changed) {
+			List<String> storages = ReplicaCatalog.getStorageList(file);
+			int recorded = catalogSizes.getOrDefault(file, 0);
+			round.writeUTF(file);
+			round.writeInt(storages.size() - recorded);
+			for (String storage : storages.subList(recorded, storages.size())) {
+				round.writeUTF(storage);
+			}
+			catalogSizes.put(file, storages.size());
+		}
+	}
+
+	// writes the round with the decisions of the algorithm, a failed algorithm with the jobs it scheduled before it failed
+	public void endRound(List<? extends Cloudlet> scheduledList) {
+		if (pendingRound == null) {
+			return;
+		}
+		try {
+			out.writeInt(rounds++);
+			pendingRound.writeTo(out);
+			out.writeInt(scheduledList.size());
+			for (Cloudlet cloudlet : scheduledList) {
+				out.writeInt(cloudlet.getCloudletId());
+				out.writeInt(cloudlet.getVmId());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		pendingRound = null;
+	}
+
+	public int getRounds() {
+		return rounds;
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	private static List<WorkflowDatacenter> getDatacenters() {
+		List<WorkflowDatacenter> datacenters = new ArrayList<>();
+		for (SimEntity entity : CloudSim.getEntityList()) {
+			if (entity instanceof WorkflowDatacenter) {
+				datacenters.add((WorkflowDatacenter) entity);
+			}
+		}
+		return datacenters;
+	}
+
+	// the simulation restored from the base of a trace, the rounds are applied to it one after another
+	public static class Replay {
+		private final Map<Integer, Job> jobs = new HashMap<>();
+		private final Map<String, Storage> storages = new HashMap<>();
+		private final Map<String, WorkflowDatacenter> datacenters = new HashMap<>();
+		private FlowNetwork network = null;
+
+		Replay(SimulationSnapshot base) {
+			FederatedTwoSites.setStaticState((Object[]) CloudSim.restoreSnapshot(base));
+
+			// every job of the workflow is reachable from the lists of the engine and the schedulers
+			Deque<Job> queue = new ArrayDeque<>();
+			for (SimEntity entity : CloudSim.getEntityList()) {
+				if (entity instanceof WorkflowEngine) {
+					WorkflowEngine engine = (WorkflowEngine) entity;
+					queue.addAll(engine.<Job>getJobsList());
+					queue.addAll(engine.<Job>getJobsSubmittedList());
+					queue.addAll(engine.<Job>getJobsReceivedList());
+				} else if (entity instanceof WorkflowScheduler) {
+					WorkflowScheduler scheduler = (WorkflowScheduler) entity;
+					queue.addAll(scheduler.<Job>getCloudletList());
+					queue.addAll(scheduler.<Job>getCloudletSubmittedList());
+					queue.addAll(scheduler.<Job>getCloudletReceivedList());
+				}
+			}
+			while (!queue.isEmpty()) {
+				Job job = queue.poll();
+				if (jobs.putIfAbsent(job.getCloudletId(), job) != null) {
+					continue;
+				}
+				for (Object o : job.getChildList()) {
+					queue.add((Job) o);
+				}
+				for (Object o : job.getParentList()) {
+					queue.add((Job) o);
+				}
+			}
+
+			for (WorkflowDatacenter datacenter : getDatacenters()) {
+				datacenters.put(datacenter.getName(), datacenter);
+				for (Storage storage : datacenter.getStorageList()) {
+					storages.put(storage.getName(), storage);
+				}
+				if (datacenter.getNetwork() != null) {
+					network = datacenter.getNetwork();
+				}
+			}
+		}
+	}
+
+	// a recorded round
+	public static class Round {
+		private final int index;
+		private final int schedulerId;
+		private final double time;
+		private final List<int[]> retries;
+		private final int[] batch;
+		private final int[] received;
+		private final Map<String, Double> availableSpaces;
+		private final Map<String, List<String>> storedFiles;
+		private final Map<String, List<String>> deletedFiles;
+		private final Map<String, Double> prefetchBytes;
+		private final Map<String, Integer> linkLoads;
+		private final Map<String, List<String>> catalogAdditions;
+		private final byte[] bookkeeping;
+		private final Map<Integer, Integer> decisions;
+
+		// vm ids of the batch before the algorithm ran, jobs without a recorded decision get them back
+		private final Map<Integer, Integer> batchVmIds = new HashMap<>();
+
+		Round(int index, DataInputStream in) throws IOException {
+			this.index  = index;
+			schedulerId = in.readInt();
+			time        = in.readDouble();
+
+			retries = new ArrayList<>();
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				retries.add(new int[]{in.readInt(), in.readInt()});
+			}
+			batch    = readIds(in);
+			received = readIds(in);
+
+			availableSpaces = new LinkedHashMap<>();
+			storedFiles     = new HashMap<>();
+			deletedFiles    = new HashMap<>();
+			count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String storage = in.readUTF();
+				availableSpaces.put(storage, in.readDouble());
+				storedFiles.put(storage, readNames(in));
+				deletedFiles.put(storage, readNames(in));
+			}
+			prefetchBytes = new LinkedHashMap<>();
+			count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				prefetchBytes.put(in.readUTF(), in.readDouble());
+			}
+			linkLoads = new LinkedHashMap<>();
+			count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				linkLoads.put(in.readUTF(), in.readInt());
+			}
+			catalogAdditions = new LinkedHashMap<>();
+			count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				catalogAdditions.put(in.readUTF(), readNames(in));
+			}
+			bookkeeping = new byte[in.readInt()];
+			in.readFully(bookkeeping);
+
+			decisions = new LinkedHashMap<>();
+			count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				decisions.put(in.readInt(), in.readInt());
+			}
+		}
+
+		private static int[] readIds(DataInputStream in) throws IOException {
+			int[] ids = new int[in.readInt()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = in.readInt();
+			}
+			return ids;
+		}
+
+		private static List<String> readNames(DataInputStream in) throws IOException {
+			int count = in.readInt();
+			List<String> names = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				names.add(in.readUTF());
+			}
+			return names;
+		}
+
+		public int getIndex() { return index; }
+		public int getSchedulerId() { return schedulerId; }
+		public double getTime() { return time; }
+
+		// vm id of every job the recorded algorithm scheduled, by cloudlet id
+		public Map<Integer, Integer> getDecisions() { return decisions; }
+
+		// applies the inputs of the round to the replayed simulation, returns the simulation time of the round
+		@SuppressWarnings("unchecked")
+		public double restore(Replay replay) throws IOException, ClassNotFoundException {
+			for (int[] retry : retries) {
+				Job failed = replay.jobs.get(retry[0]);
+				List<Job> retryJobs = ReclusteringEngine.process(failed, retry[1]);
+				retryJobs.get(0).setPreviousVmId(failed.getVmId());
+				for (Job job : retryJobs) {
+					replay.jobs.put(job.getCloudletId(), job);
+				}
+			}
+
+			WorkflowScheduler scheduler = (WorkflowScheduler) CloudSim.getEntity(schedulerId);
+			List<Job> cloudletList = scheduler.getCloudletList();
+			cloudletList.clear();
+			batchVmIds.clear();
+			for (int id : batch) {
+				Job job = replay.jobs.get(id);
+				cloudletList.add(job);
+				batchVmIds.put(id, job.getVmId());
+			}
+			List<Job> receivedList = scheduler.getCloudletReceivedList();
+			for (int id : received) {
+				receivedList.add(replay.jobs.get(id));
+			}
+
+			for (Map.Entry<String, Double> space : availableSpaces.entrySet()) {
+				Storage storage = replay.storages.get(space.getKey());
+				storage.getFileNameList().removeAll(deletedFiles.get(space.getKey()));
+				storage.getFileNameList().addAll(storedFiles.get(space.getKey()));
+				((HarddriveStorage) storage).setCurrentSize(storage.getCapacity() - space.getValue());
+			}
+			for (Map.Entry<String, Double> bytes : prefetchBytes.entrySet()) {
+				replay.datacenters.get(bytes.getKey()).setPrefetchBytesInFlight(bytes.getValue());
+			}
+			if (replay.network != null) {
+				replay.network.setReplayedLinkLoads(linkLoads);
+			}
+			for (Map.Entry<String, List<String>> addition : catalogAdditions.entrySet()) {
+				for (String storage : addition.getValue()) {
+					ReplicaCatalog.addStorageList(addition.getKey(), storage);
+				}
+			}
+
+			Object[] state;
+			try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bookkeeping))) {
+				state = (Object[]) objects.readObject();
+			}
+			Parameters.setRunState((double[]) state[0]);
+			DynamicAbstractDag.setState((Object[]) state[1]);
+			scheduler.setExceededStorageMap((Map<Integer, Set<Integer>>) state[2]);
+			scheduler.setRetriedJobIdsSetUnion((DisjointSetUnion) state[3]);
+
+			return time;
+		}
+
+		// sets the recorded decisions after the replayed algorithm ran, so that the next round starts from the
+		// recorded run
+		public void applyDecisions(Replay replay) {
+			for (Map.Entry<Integer, Integer> vmId : batchVmIds.entrySet()) {
+				replay.jobs.get(vmId.getKey()).setVmId(decisions.getOrDefault(vmId.getKey(), vmId.getValue()));
+			}
+		}
+	}
+
+	// reads the base and then the rounds of a trace one after another
+	public static class Reader implements Closeable {
+		private final DataInputStream in;
+		private final SimulationSnapshot base;
+
+		public Reader(String path) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(path))));
+			SimulationSnapshot snapshot;
+			try {
+				snapshot = SimulationSnapshot.read(in);
+			} catch (EOFException e) {
+				// no round was recorded
+				snapshot = null;
+			}
+			base = snapshot;
+		}
+
+		// restores the base of the trace, the rounds are applied to it, null if the trace has no rounds
+		public Replay restoreBase() {
+			return base == null ? null : new Replay(base);
+		}
+
+		// returns the next round, null at the end of the trace
+		public Round next() throws IOException {
+			if (base == null) {
+				return null;
+			}
+			int index;
+			try {
+				index = in.readInt();
+			} catch (EOFException e) {
+				return null;
+			}
+			return new Round(index, in);
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package federatedSim;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.network.GraphReaderBrite;
+import org.cloudbus.cloudsim.network.TopologicalGraph;
+import org.cloudbus.cloudsim.network.TopologicalLink;
+import org.workflowsim.ClusterStorage;
+import org.workflowsim.TransferRoute;
+import org.workflowsim.WorkflowDatacenter;
+
+// Topology of the federation: nodes connected by links with a bandwidth and a latency.
+// Node i is the site with id i, nodes that are not sites (only in BRITE files) are routers that can only relay transfers.
+// Transfers between two sites follow the widest path, i.e., the path with the largest bottleneck bandwidth. A path over
+// relay nodes is only used if its bottleneck is larger than the bandwidth of the direct link. Latency is ignored for the
+// choice of the path, but the latencies of the path's links add up.
+public class SiteTopology {
+
+	// number of nodes, sites first
+	private final int numNodes;
+
+	// number of sites
+	private final int numSites;
+
+	// bandwidth and latency of the links, 0 bandwidth = no link
+	private final double[][] bandwidth;
+	private final double[][] latency;
+
+	// bottleneck bandwidth of the widest path between two nodes
+	private double[][] width;
+
+	// predecessor of the destination on the widest path, -1 if no path exists
+	private int[][] predecessor;
+
+	private SiteTopology(int numNodes, int numSites) {
+		this.numNodes = numNodes;
+		this.numSites = numSites;
+		bandwidth = new double[numNodes][numNodes];
+		latency   = new double[numNodes][numNodes];
+	}
+
+	// builds the topology from the connections of the config file
+	public static SiteTopology fromSites(Map<Integer, ConfigParser.Site> sites) {
+		SiteTopology topology = new SiteTopology(sites.size(), sites.size());
+		for (Map.Entry<Integer, ConfigParser.Site> entry : sites.entrySet()) {
+			int id = entry.getKey();
+			Map<Integer, Double> latencies = entry.getValue().getLatencyMap();
+			for (Map.Entry<Integer, Double> connection : entry.getValue().getConnectionMap().entrySet()) {
+				topology.addLink(id, connection.getKey(), connection.getValue(), latencies.getOrDefault(connection.getKey(), 0.0));
+			}
+		}
+		topology.computeWidestPaths();
+		return topology;
+	}
+
+	// builds the topology from a BRITE file, links are undirected
+	// bandwidths are used in the unit of the config's connections, delays are milliseconds
+	public static SiteTopology fromBrite(String path, int numSites) {
+		TopologicalGraph graph;
+		try {
+			graph = new GraphReaderBrite().readGraphFile(path);
+		} catch (IOException e) {
+			throw new RuntimeException("Cannot read topology file " + path, e);
+		}
+
+		if (graph.getNumberOfNodes() < numSites) {
+			throw new RuntimeException("Topology file " + path + " has " + graph.getNumberOfNodes() + " nodes, but there are " + numSites + " sites");
+		}
+
+		SiteTopology topology = new SiteTopology(graph.getNumberOfNodes(), numSites);
+		for (Iterator<TopologicalLink> it = graph.getLinkIterator(); it.hasNext();) {
+			TopologicalLink link = it.next();
+			double linkLatency = link.getLinkDelay() / 1000.0;
+			topology.addLink(link.getSrcNodeID(), link.getDestNodeID(), link.getLinkBw(), linkLatency);
+			topology.addLink(link.getDestNodeID(), link.getSrcNodeID(), link.getLinkBw(), linkLatency);
+		}
+		topology.computeWidestPaths();
+		return topology;
+	}
+
+	private void addLink(int from, int to, double linkBandwidth, double linkLatency) {
+		bandwidth[from][to] = linkBandwidth;
+		latency[from][to]   = linkLatency;
+	}
+
+	// Floyd-Warshall on the (max, min) semiring, as FloydWarshall_Float does for delays
+	// a path over k replaces the current path only if its bottleneck is strictly larger, so direct links win ties
+	private void computeWidestPaths() {
+		width       = new double[numNodes][numNodes];
+		predecessor = new int[numNodes][numNodes];
+		for (int i = 0; i < numNodes; i++) {
+			for (int j = 0; j < numNodes; j++) {
+				width[i][j]       = bandwidth[i][j];
+				predecessor[i][j] = (i != j && bandwidth[i][j] > 0) ? i : -1;
+			}
+		}
+
+		for (int k = 0; k < numNodes; k++) {
+			for (int i = 0; i < numNodes; i++) {
+				if (i == k || width[i][k] == 0) {
+					continue;
+				}
+				for (int j = 0; j < numNodes; j++) {
+					if (j == i || j == k) {
+						continue;
+					}
+					double viaK = Math.min(width[i][k], width[k][j]);
+					if (viaK > width[i][j]) {
+						width[i][j]       = viaK;
+						predecessor[i][j] = predecessor[k][j];
+					}
+				}
+			}
+		}
+	}
+
+	// name of a node, sites are named like their datacenters
+	private String getNodeName(int node) {
+		return node < numSites ? "Datacenter_" + node : "Node_" + node;
+	}
+
+	// widest path from one site to another, null if they are not connected
+	public TransferRoute getRoute(int from, int to) {
+		if (predecessor[from][to] == -1) {
+			return null;
+		}
+
+		// collect nodes from the destination back to the source
+		List<Integer> nodes = new ArrayList<>();
+		for (int node = to; node != from; node = predecessor[from][node]) {
+			nodes.add(0, node);
+		}
+
+		TransferRoute route = new TransferRoute(getNodeName(from));
+		int previous = from;
+		for (int node : nodes) {
+			route.addLink(getNodeName(node), bandwidth[previous][node], latency[previous][node]);
+			previous = node;
+		}
+		return route;
+	}
+
+	// installs the direct links and the routes between all pairs of sites into the datacenters' cluster storages
+	public void installRoutes(List<WorkflowDatacenter> datacenters) {
+		Map<String, ClusterStorage> name2storage = new HashMap<>();
+		for (WorkflowDatacenter datacenter : datacenters) {
+			name2storage.put(datacenter.getName(), (ClusterStorage) datacenter.getStorageList().get(0));
+		}
+
+		for (int i = 0; i < numSites; i++) {
+			ClusterStorage storage = name2storage.get(getNodeName(i));
+			for (int j = 0; j < numSites; j++) {
+				if (i == j) {
+					continue;
+				}
+				String destination = getNodeName(j);
+
+				// direct link, e.g., from a BRITE file
+				if (bandwidth[i][j] > 0) {
+					storage.setBandwidth(destination, bandwidth[i][j]);
+					storage.setLatency(destination, latency[i][j]);
+				}
+
+				TransferRoute route = getRoute(i, j);
+				if (route == null) {
+					throw new RuntimeException("Site topology has no path from " + storage.getName() + " to " + destination);
+				}
+				storage.setRoute(destination, route);
+
+				if (route.getLinkCount() > 1) {
+					Log.printLine("Route " + route + " with bandwidth " + route.getBandwidth());
+				}
+			}
+		}
+	}
+}
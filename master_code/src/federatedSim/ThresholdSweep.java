@@ -0,0 +1,118 @@
+package federatedSim;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationSnapshot;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+import org.workflowsim.Job;
+import org.workflowsim.WorkflowEngine;
+import org.workflowsim.WorkflowSimTags;
+import org.workflowsim.utils.Parameters;
+
+/**
+ * Runs several (N, T) threshold combinations for the same configuration (workflow, sites and data distribution).
+ * The simulation is executed once up to the first scheduling decision, which is the first point where the
+ * thresholds matter. There, the simulation is checkpointed and every threshold combination is forked from
+ * the checkpoint, so the common prefix (parsing, site and VM creation, job submission) is only paid once.
+ *
+ * Usage: ThresholdSweep config.json outputDir N:T [N:T ...]
+ * For every combination, outputDir/nN_tT.log and outputDir/nN_tT.csv are written (same format as FederatedTwoSites).
+ */
+public class ThresholdSweep {
+
+	public static void main(String[] args) {
+
+		if (args.length < 3) {
+			throw new RuntimeException("Need a parameter config file, an output directory and at least one N:T threshold pair");
+		}
+
+		ConfigParser configParser = new ConfigParser();
+		configParser.parse(args[0]);
+
+		String outputDir = args[1];
+
+		try {
+			// the prefix is logged like a regular run
+			setLogOutput(outputDir + "/prefix.log");
+
+			WorkflowEngine wfEngine = FederatedTwoSites.setupSimulation(configParser);
+			if (wfEngine == null) {
+				return;
+			}
+			int engineId    = wfEngine.getId();
+			int schedulerId = wfEngine.getSchedulerId(0);
+
+			// run up to the first scheduling round, i.e., right before the scheduler checks the thresholds
+			boolean stopped = CloudSim.runUntil(schedulerId, new PredicateType(WorkflowSimTags.CLOUDLET_UPDATE));
+			if (!stopped) {
+				throw new RuntimeException("Simulation finished before the first scheduling round");
+			}
+
+			// state that lives outside of the simulation kernel
+			SimulationSnapshot snapshot = CloudSim.createSnapshot(FederatedTwoSites.getStaticState());
+			Log.printLine("Checkpointed simulation at " + snapshot.getTime() + " (" + snapshot.size() + " bytes)");
+
+			// fork every threshold combination
+			for (int i = 2; i < args.length; i++) {
+				String[] thresholds = args[i].split(":");
+				int taskThreshold = Integer.parseInt(thresholds[0]);
+				int secThreshold  = Integer.parseInt(thresholds[1]);
+				String name = outputDir + "/n" + taskThreshold + "_t" + secThreshold;
+
+				setLogOutput(name + ".log");
+
+				// restore an independent copy of the prefix, including the static state
+				FederatedTwoSites.setStaticState((Object[]) CloudSim.restoreSnapshot(snapshot));
+
+				Parameters.setTASK_THRESHOLD(taskThreshold);
+				Parameters.setSEC_THRESHOLD(secThreshold);
+
+				// the restored engine is a copy, get it before the kernel releases its entities
+				WorkflowEngine forkEngine = (WorkflowEngine) CloudSim.getEntity(engineId);
+
+				CloudSim.startSimulation();
+
+				List<Job> outputList = forkEngine.getJobsReceivedList();
+
+				CloudSim.stopSimulation();
+
+				FederatedTwoSites.printJobList(outputList);
+				FederatedTwoSites.writeResults(name + ".csv", outputList, null, forkEngine.getUnfinishedJobs());
+
+				Log.printLine("END");
+			}
+
+		} catch (Exception e) {
+			e.printStackTrace();
+			Log.printLine("The simulation has been terminated due to an unexpected error");
+		} finally {
+			setLogOutput(null);
+		}
+	}
+
+	// replaces the log output with a new file, closes the previous file
+	private static OutputStream logOutput;
+
+	private static void setLogOutput(String path) {
+		try {
+			if (logOutput != null) {
+				logOutput.close();
+				logOutput = null;
+			}
+			if (path != null) {
+				logOutput = new FileOutputStream(path);
+				Log.setOutput(logOutput);
+			}
+		} catch (FileNotFoundException e) {
+			throw new RuntimeException(e);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
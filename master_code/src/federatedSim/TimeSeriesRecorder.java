@@ -0,0 +1,200 @@
+package federatedSim;
+
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.ClockListener;
+import org.workflowsim.ClusterStorage;
+import org.workflowsim.FlowNetwork;
+import org.workflowsim.WorkflowDatacenter;
+import org.workflowsim.WorkflowScheduler;
+
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+// Samples the state of the simulation every interval of simulated time and streams the samples as CSV, e.g. the
+// available storage of the sites, to see how a run got to a storage overflow.
+// The samples are taken when CloudSim is about to advance its clock (see ClockListener), so no events are added to the
+// simulation. They are kept in ring buffers of primitives, one per series, and written out whenever the buffers are
+// full, so memory stays bounded on long runs.
+// With downsample > 1, each row aggregates that many samples into min, max and mean of every series, the time of a row
+// is the time of its first sample.
+public class TimeSeriesRecorder implements ClockListener {
+
+	// buckets kept in memory before they are written
+	private static final int BUFFERED_BUCKETS = 256;
+
+	private final double interval;
+	private final int downsample;
+	private final String path;
+
+	private final List<String> names = new ArrayList<>();
+	private final List<DoubleSupplier> sources = new ArrayList<>();
+
+	// ring buffers of the sample times and of the samples of every series
+	private double[] times;
+	private double[][] values;
+	private int head = 0; // index of the oldest sample
+	private int size = 0;
+
+	// samples are taken at sampleIndex * interval, which does not accumulate rounding errors
+	private long sampleIndex = 0;
+	// the time of the sample that is taken, for series that depend on it
+	private double sampleTime = 0.0;
+	private PrintWriter writer;
+
+	public TimeSeriesRecorder(String path, double interval, int downsample) {
+		if (interval <= 0 || downsample < 1) {
+			throw new IllegalArgumentException("Time series need an interval > 0 and a downsampling factor >= 1");
+		}
+		this.path       = path;
+		this.interval   = interval;
+		this.downsample = downsample;
+	}
+
+	public void addSeries(String name, DoubleSupplier source) {
+		if (writer != null) {
+			throw new IllegalStateException("Series have to be added before the first sample");
+		}
+		names.add(name);
+		sources.add(source);
+	}
+
+	// a series of the change of a cumulative total per second, e.g. of transferred bytes
+	public void addRate(String name, DoubleSupplier total) {
+		double[] last = {0.0};
+		addSeries(name, () -> {
+			double current = total.getAsDouble();
+			double rate = (current - last[0]) / interval;
+			last[0] = current;
+			return rate;
+		});
+	}
+
+	// the available storage of every site, the running jobs of every vm, the jobs that wait for the scheduler and the
+	// bytes per second that are sent over every link between two sites
+	// a link's throughput is the mean rate since the previous sample: with the network model the bytes its flows sent,
+	// otherwise every transfer delivers its bytes evenly over its transfer time
+	public void addFederatedSeries(List<WorkflowDatacenter> datacenters, List<? extends Vm> vms, WorkflowScheduler scheduler) {
+		for (WorkflowDatacenter datacenter : datacenters) {
+			ClusterStorage storage = (ClusterStorage) datacenter.getStorageList().get(0);
+			addSeries(datacenter.getName() + ".available", storage::getAvailableSpace);
+		}
+		for (Vm vm : vms) {
+			addSeries("vm" + vm.getId() + ".running", () -> vm.getCloudletScheduler().runningCloudlets());
+		}
+		addSeries("scheduler.waiting", () -> scheduler.getCloudletList().size());
+		for (WorkflowDatacenter source : datacenters) {
+			ClusterStorage storage = (ClusterStorage) source.getStorageList().get(0);
+			FlowNetwork network = source.getNetwork();
+			if (network == null) {
+				storage.recordDeliveries();
+			}
+			for (WorkflowDatacenter destination : datacenters) {
+				if (source == destination) {
+					continue;
+				}
+				String sourceName      = source.getName();
+				String destinationName = destination.getName();
+				String name            = sourceName + "->" + destinationName + ".throughput";
+				if (network != null) {
+					addRate(name, () -> network.getSentBytes(sourceName, destinationName, sampleTime));
+				} else {
+					addRate(name, () -> storage.getDeliveredBytes(destinationName, sampleTime));
+				}
+			}
+		}
+	}
+
+	@Override
+	public void clockAdvancing(double from, double to) {
+		// the state of [from, to) is sampled at every sample time in the interval
+		while (sampleIndex * interval < to) {
+			sample(sampleIndex * interval);
+			sampleIndex++;
+		}
+	}
+
+	// samples the final state and writes all remaining samples
+	public void close(double endTime) {
+		while (sampleIndex * interval <= endTime) {
+			sample(sampleIndex * interval);
+			sampleIndex++;
+		}
+		if (writer == null) {
+			open();
+		}
+		drain(true);
+		writer.close();
+	}
+
+	private void sample(double time) {
+		if (writer == null) {
+			open();
+		}
+		if (size == times.length) {
+			drain(false);
+		}
+		int index = (head + size) % times.length;
+		times[index] = time;
+		sampleTime = time;
+		for (int s = 0; s < sources.size(); s++) {
+			values[s][index] = sources.get(s).getAsDouble();
+		}
+		size++;
+	}
+
+	private void open() {
+		int capacity = downsample * BUFFERED_BUCKETS;
+		times  = new double[capacity];
+		values = new double[names.size()][capacity];
+
+		try {
+			writer = new PrintWriter(path);
+		} catch (FileNotFoundException e) {
+			throw new RuntimeException(e);
+		}
+
+		StringBuilder header = new StringBuilder("time");
+		for (String name : names) {
+			if (downsample == 1) {
+				header.append(',').append(name);
+			} else {
+				header.append(',').append(name).append("_min,").append(name).append("_max,").append(name).append("_mean");
+			}
+		}
+		writer.println(header);
+	}
+
+	// writes the complete buckets, and the last incomplete one if all is set
+	private void drain(boolean all) {
+		StringBuilder row = new StringBuilder();
+		while (size >= downsample || (all && size > 0)) {
+			int count = Math.min(size, downsample);
+
+			row.setLength(0);
+			row.append(times[head]);
+			for (double[] series : values) {
+				if (downsample == 1) {
+					row.append(',').append(series[head]);
+					continue;
+				}
+				double min = Double.POSITIVE_INFINITY;
+				double max = Double.NEGATIVE_INFINITY;
+				double sum = 0.0;
+				for (int i = 0; i < count; i++) {
+					double value = series[(head + i) % times.length];
+					min = Math.min(min, value);
+					max = Math.max(max, value);
+					sum += value;
+				}
+				row.append(',').append(min).append(',').append(max).append(',').append(sum / count);
+			}
+			writer.println(row);
+
+			head = (head + count) % times.length;
+			size -= count;
+		}
+	}
+}
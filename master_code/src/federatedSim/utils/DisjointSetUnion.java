@@ -1,9 +1,13 @@
 package federatedSim.utils;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
 
-public class DisjointSetUnion {
+public class DisjointSetUnion implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
     // parent (graph structure), has-parent relation (parent.put(x,y) = x has parent y)
     private final Map<Integer, Integer> parent = new HashMap<>();
 
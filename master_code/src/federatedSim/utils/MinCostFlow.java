@@ -0,0 +1,115 @@
+package federatedSim.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// min-cost flow solver with successive shortest paths
+// capacities and costs are doubles, shortest paths are found with Bellman-Ford because residual edges have negative costs
+public class MinCostFlow {
+    // amounts below this are treated as zero
+    private static final double EPSILON = 1e-9;
+
+    // edges are stored in pairs, edge e and its residual edge e ^ 1
+    private final List<Integer> to       = new ArrayList<>();
+    private final List<Double>  capacity = new ArrayList<>();
+    private final List<Double>  cost     = new ArrayList<>();
+    private final List<Double>  flow     = new ArrayList<>();
+
+    // outgoing edge ids per node
+    private final List<List<Integer>> adjacency = new ArrayList<>();
+
+    public MinCostFlow(int numNodes) {
+        for (int i = 0; i < numNodes; i++) {
+            adjacency.add(new ArrayList<>());
+        }
+    }
+
+    // adds a directed edge and returns its id, use Double.POSITIVE_INFINITY for uncapacitated edges
+    public int addEdge(int from, int to, double capacity, double cost) {
+        int id = this.to.size();
+        addHalfEdge(from, to, capacity, cost);
+        addHalfEdge(to, from, 0, -cost);
+        return id;
+    }
+
+    private void addHalfEdge(int from, int to, double capacity, double cost) {
+        adjacency.get(from).add(this.to.size());
+        this.to.add(to);
+        this.capacity.add(capacity);
+        this.cost.add(cost);
+        this.flow.add(0.0);
+    }
+
+    // flow on an edge after solve
+    public double getFlow(int edge) {
+        return flow.get(edge);
+    }
+
+    private double residual(int edge) {
+        return capacity.get(edge) - flow.get(edge);
+    }
+
+    // sends up to maxFlow units from source to sink at minimum cost, returns {sent flow, total cost}
+    public double[] solve(int source, int sink, double maxFlow) {
+        int numNodes = adjacency.size();
+        double totalFlow = 0.0;
+        double totalCost = 0.0;
+
+        while (maxFlow - totalFlow > EPSILON) {
+
+            // shortest path in the residual graph (Bellman-Ford)
+            double[] distance = new double[numNodes];
+            int[] parentEdge  = new int[numNodes];
+            Arrays.fill(distance, Double.POSITIVE_INFINITY);
+            Arrays.fill(parentEdge, -1);
+            distance[source] = 0.0;
+
+            for (int round = 0; round < numNodes - 1; round++) {
+                boolean updated = false;
+                for (int node = 0; node < numNodes; node++) {
+                    if (distance[node] == Double.POSITIVE_INFINITY) {
+                        continue;
+                    }
+                    for (int edge : adjacency.get(node)) {
+                        if (residual(edge) <= EPSILON) {
+                            continue;
+                        }
+                        double newDistance = distance[node] + cost.get(edge);
+                        if (newDistance < distance[to.get(edge)] - EPSILON) {
+                            distance[to.get(edge)] = newDistance;
+                            parentEdge[to.get(edge)] = edge;
+                            updated = true;
+                        }
+                    }
+                }
+                if (!updated) {
+                    break;
+                }
+            }
+
+            // sink not reachable anymore
+            if (distance[sink] == Double.POSITIVE_INFINITY) {
+                break;
+            }
+
+            // bottleneck of the path
+            double amount = maxFlow - totalFlow;
+            for (int node = sink; node != source; node = to.get(parentEdge[node] ^ 1)) {
+                amount = Math.min(amount, residual(parentEdge[node]));
+            }
+
+            // augment
+            for (int node = sink; node != source; node = to.get(parentEdge[node] ^ 1)) {
+                int edge = parentEdge[node];
+                flow.set(edge, flow.get(edge) + amount);
+                flow.set(edge ^ 1, flow.get(edge ^ 1) - amount);
+            }
+
+            totalFlow += amount;
+            totalCost += amount * distance[sink];
+        }
+
+        return new double[]{totalFlow, totalCost};
+    }
+}
@@ -0,0 +1,604 @@
+package federatedSim.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// multilevel k-way graph partitioner minimizing the weight of cut edges subject to a capacity per part
+// - coarsening: heavy-edge matching until the graph is small
+// - initial partitioning: greedy graph growing on the coarsest graph
+// - uncoarsening: the partition is projected back level by level and refined with Fiduccia-Mattheyses passes
+// vertices can be fixed to a part, they are never moved (e.g., the data already stored on a site)
+// files add copies to the loads: a part that has a reader of a file but none of its holders stores a copy of it
+// several independent runs with different seeds are computed in parallel, the best partition is returned
+public class MultilevelPartitioner {
+    // amounts below this are treated as zero
+    private static final double EPSILON = 1e-9;
+
+    // stop coarsening at this many vertices per part, or if a level shrinks the graph by less than 5%
+    private static final int COARSEN_TO_PER_PART = 20;
+    private static final double MIN_SHRINK = 0.95;
+
+    // refinement passes per level, and non-improving moves after which a pass stops
+    private static final int MAX_PASSES = 8;
+    private static final int MAX_NON_IMPROVING_MOVES = 100;
+
+    private final int numVertices;
+    private final int numParts;
+
+    private final double[] vertexWeights;
+    private final int[] fixedParts;
+    private final double[] capacities;
+
+    // accumulated edge weights per vertex, edges are undirected
+    private final List<Map<Integer, Double>> edges = new ArrayList<>();
+
+    // roles of a vertex for a file, a coarse vertex can have both
+    private static final int READS = 1;
+    private static final int HOLDS = 2;
+
+    private final List<Double> fileSizes = new ArrayList<>();
+    private final List<int[]> fileHolders = new ArrayList<>();
+    private final List<int[]> fileReaders = new ArrayList<>();
+
+    public MultilevelPartitioner(int numVertices, int numParts) {
+        this.numVertices = numVertices;
+        this.numParts    = numParts;
+        vertexWeights    = new double[numVertices];
+        fixedParts       = new int[numVertices];
+        capacities       = new double[numParts];
+        Arrays.fill(fixedParts, -1);
+        Arrays.fill(capacities, Double.POSITIVE_INFINITY);
+        for (int v = 0; v < numVertices; v++) {
+            edges.add(new HashMap<>());
+        }
+    }
+
+    public void setVertexWeight(int vertex, double weight) {
+        vertexWeights[vertex] = weight;
+    }
+
+    // fixes a vertex to a part
+    public void fix(int vertex, int part) {
+        fixedParts[vertex] = part;
+    }
+
+    public void setCapacity(int part, double capacity) {
+        capacities[part] = capacity;
+    }
+
+    // adds weight to the undirected edge between two vertices, self loops are ignored
+    public void addEdge(int u, int v, double weight) {
+        if (u == v) {
+            return;
+        }
+        edges.get(u).merge(v, weight, Double::sum);
+        edges.get(v).merge(u, weight, Double::sum);
+    }
+
+    // adds a file of `size` bytes stored by its holders and read by its readers, every part with a reader but no holder
+    // is charged a copy of it
+    public void addFile(double size, int[] holders, int[] readers) {
+        fileSizes.add(size);
+        fileHolders.add(holders);
+        fileReaders.add(readers);
+    }
+
+    // computes the best partition of `runs` independent runs, returns the part of every vertex
+    // runs are compared by overload first and cut second, ties go to the lower seed, so the result does not depend on
+    // the number of threads
+    public int[] partition(int runs) {
+        double[] sizes = new double[fileSizes.size()];
+        List<Map<Integer, Integer>> roles = new ArrayList<>();
+        for (int v = 0; v < numVertices; v++) {
+            roles.add(new HashMap<>());
+        }
+        for (int f = 0; f < sizes.length; f++) {
+            sizes[f] = fileSizes.get(f);
+            for (int v : fileHolders.get(f)) {
+                roles.get(v).merge(f, HOLDS, (a, b) -> a | b);
+            }
+            for (int v : fileReaders.get(f)) {
+                roles.get(v).merge(f, READS, (a, b) -> a | b);
+            }
+        }
+
+        Level finest = new Level(numVertices, sizes);
+        for (int v = 0; v < numVertices; v++) {
+            finest.vertexWeights[v] = vertexWeights[v];
+            finest.fixedParts[v]    = fixedParts[v];
+            Map<Integer, Double> vertexEdges = edges.get(v);
+            finest.adjacency[v] = new int[vertexEdges.size()];
+            finest.edgeWeights[v] = new double[vertexEdges.size()];
+            int e = 0;
+            for (Map.Entry<Integer, Double> edge : vertexEdges.entrySet()) {
+                finest.adjacency[v][e]   = edge.getKey();
+                finest.edgeWeights[v][e] = edge.getValue();
+                e++;
+            }
+            finest.setFiles(v, roles.get(v));
+        }
+
+        return IntStream.range(0, runs).parallel()
+                .mapToObj(seed -> new Run(seed, run(finest, new Random(seed))))
+                .min(Comparator.<Run>comparingDouble(r -> getOverload(r.parts))
+                        .thenComparingDouble(r -> getCut(r.parts))
+                        .thenComparingInt(r -> r.seed))
+                .map(r -> r.parts)
+                .orElseThrow(() -> new RuntimeException("Multilevel partitioning needs at least one run"));
+    }
+
+    // weight of the edges between vertices of different parts
+    public double getCut(int[] parts) {
+        double cut = 0.0;
+        for (int v = 0; v < numVertices; v++) {
+            for (Map.Entry<Integer, Double> edge : edges.get(v).entrySet()) {
+                if (edge.getKey() > v && parts[edge.getKey()] != parts[v]) {
+                    cut += edge.getValue();
+                }
+            }
+        }
+        return cut;
+    }
+
+    // bytes of the file copies staged into parts that hold none of the file's holders
+    public double getCopies(int[] parts) {
+        double[] copies = new double[numParts];
+        addCopies(parts, copies);
+        return Arrays.stream(copies).sum();
+    }
+
+    // weight by which the parts exceed their capacities, including the file copies
+    public double getOverload(int[] parts) {
+        double[] loads = new double[numParts];
+        for (int v = 0; v < numVertices; v++) {
+            loads[parts[v]] += vertexWeights[v];
+        }
+        addCopies(parts, loads);
+        double overload = 0.0;
+        for (int p = 0; p < numParts; p++) {
+            overload += Math.max(0.0, loads[p] - capacities[p]);
+        }
+        return overload;
+    }
+
+    private void addCopies(int[] parts, double[] loads) {
+        for (int f = 0; f < fileSizes.size(); f++) {
+            boolean[] read = new boolean[numParts];
+            boolean[] held = new boolean[numParts];
+            for (int v : fileReaders.get(f)) {
+                read[parts[v]] = true;
+            }
+            for (int v : fileHolders.get(f)) {
+                held[parts[v]] = true;
+            }
+            for (int p = 0; p < numParts; p++) {
+                if (read[p] && !held[p]) {
+                    loads[p] += fileSizes.get(f);
+                }
+            }
+        }
+    }
+
+    private static class Run {
+        private final int seed;
+        private final int[] parts;
+
+        Run(int seed, int[] parts) {
+            this.seed  = seed;
+            this.parts = parts;
+        }
+    }
+
+    // a graph of the hierarchy, levels are shared by the parallel runs and never modified after construction
+    private static class Level {
+        private final int size;
+        private final double[] vertexWeights;
+        private final int[] fixedParts;
+        private final int[][] adjacency;
+        private final double[][] edgeWeights;
+        // incident files per vertex and the vertex's roles for them, the file sizes are shared by all levels
+        private final double[] fileSizes;
+        private final int[][] files;
+        private final int[][] fileRoles;
+
+        Level(int size, double[] fileSizes) {
+            this.size      = size;
+            this.fileSizes = fileSizes;
+            vertexWeights  = new double[size];
+            fixedParts     = new int[size];
+            adjacency      = new int[size][];
+            edgeWeights    = new double[size][];
+            files          = new int[size][];
+            fileRoles      = new int[size][];
+        }
+
+        void setFiles(int v, Map<Integer, Integer> roles) {
+            files[v]     = new int[roles.size()];
+            fileRoles[v] = new int[roles.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Integer> role : roles.entrySet()) {
+                files[v][i]     = role.getKey();
+                fileRoles[v][i] = role.getValue();
+                i++;
+            }
+        }
+    }
+
+    // loads of the parts during one run: the vertex weights plus the file copies, with the readers and holders of
+    // every file per part to update the copies incrementally
+    private class PartLoads {
+        private final double[] loads = new double[numParts];
+        private final int[][] readers;
+        private final int[][] holders;
+
+        PartLoads(Level level) {
+            readers = new int[level.fileSizes.length][numParts];
+            holders = new int[level.fileSizes.length][numParts];
+        }
+
+        // change of the load of a part if the vertex joins it (sign 1) or leaves it (sign -1)
+        double change(Level level, int vertex, int part, int sign) {
+            double change = sign * level.vertexWeights[vertex];
+            for (int i = 0; i < level.files[vertex].length; i++) {
+                int f = level.files[vertex][i];
+                int r = readers[f][part];
+                int h = holders[f][part];
+                int newR = (level.fileRoles[vertex][i] & READS) != 0 ? r + sign : r;
+                int newH = (level.fileRoles[vertex][i] & HOLDS) != 0 ? h + sign : h;
+                change += level.fileSizes[f] * (copied(newR, newH) - copied(r, h));
+            }
+            return change;
+        }
+
+        void add(Level level, int vertex, int part) {
+            update(level, vertex, part, 1);
+        }
+
+        void remove(Level level, int vertex, int part) {
+            update(level, vertex, part, -1);
+        }
+
+        private void update(Level level, int vertex, int part, int sign) {
+            loads[part] += change(level, vertex, part, sign);
+            for (int i = 0; i < level.files[vertex].length; i++) {
+                int f = level.files[vertex][i];
+                if ((level.fileRoles[vertex][i] & READS) != 0) {
+                    readers[f][part] += sign;
+                }
+                if ((level.fileRoles[vertex][i] & HOLDS) != 0) {
+                    holders[f][part] += sign;
+                }
+            }
+        }
+
+        private int copied(int readers, int holders) {
+            return readers > 0 && holders == 0 ? 1 : 0;
+        }
+    }
+
+    // one multilevel run
+    private int[] run(Level finest, Random random) {
+        double totalWeight = 0.0;
+        for (double weight : finest.vertexWeights) {
+            totalWeight += weight;
+        }
+        int coarsenTo = Math.max(COARSEN_TO_PER_PART * numParts, 2 * numParts);
+        double maxVertexWeight = 1.5 * totalWeight / coarsenTo;
+
+        // coarsening, coarseMaps.get(l) maps the vertices of level l to the vertices of level l + 1
+        List<Level> levels = new ArrayList<>();
+        List<int[]> coarseMaps = new ArrayList<>();
+        levels.add(finest);
+        Level current = finest;
+        while (current.size > coarsenTo) {
+            int[] coarseMap = new int[current.size];
+            Level coarse = coarsen(current, coarseMap, maxVertexWeight, random);
+            if (coarse.size > MIN_SHRINK * current.size) {
+                break;
+            }
+            levels.add(coarse);
+            coarseMaps.add(coarseMap);
+            current = coarse;
+        }
+
+        // initial partition of the coarsest level
+        int[] parts = initialPartition(current, random);
+        refine(current, parts);
+
+        // uncoarsening
+        for (int l = levels.size() - 2; l >= 0; l--) {
+            Level fine = levels.get(l);
+            int[] coarseMap = coarseMaps.get(l);
+            int[] fineParts = new int[fine.size];
+            for (int v = 0; v < fine.size; v++) {
+                fineParts[v] = parts[coarseMap[v]];
+            }
+            parts = fineParts;
+            refine(fine, parts);
+        }
+        return parts;
+    }
+
+    // heavy-edge matching: every vertex is merged with the unmatched neighbor it shares the heaviest edge with
+    // vertices fixed to different parts are never merged
+    private Level coarsen(Level fine, int[] coarseMap, double maxVertexWeight, Random random) {
+        int[] match = new int[fine.size];
+        Arrays.fill(match, -1);
+
+        for (int v : shuffledVertices(fine.size, random)) {
+            if (match[v] != -1) {
+                continue;
+            }
+            int best = -1;
+            double bestWeight = -1.0;
+            for (int e = 0; e < fine.adjacency[v].length; e++) {
+                int u = fine.adjacency[v][e];
+                if (match[u] != -1
+                        || (fine.fixedParts[v] != -1 && fine.fixedParts[u] != -1 && fine.fixedParts[v] != fine.fixedParts[u])
+                        || fine.vertexWeights[v] + fine.vertexWeights[u] > maxVertexWeight) {
+                    continue;
+                }
+                if (fine.edgeWeights[v][e] > bestWeight) {
+                    bestWeight = fine.edgeWeights[v][e];
+                    best = u;
+                }
+            }
+            if (best == -1) {
+                match[v] = v;
+            } else {
+                match[v]    = best;
+                match[best] = v;
+            }
+        }
+
+        // number the coarse vertices
+        Arrays.fill(coarseMap, -1);
+        int coarseSize = 0;
+        for (int v = 0; v < fine.size; v++) {
+            if (coarseMap[v] == -1) {
+                coarseMap[v] = coarseSize;
+                coarseMap[match[v]] = coarseSize;
+                coarseSize++;
+            }
+        }
+
+        Level coarse = new Level(coarseSize, fine.fileSizes);
+        Arrays.fill(coarse.fixedParts, -1);
+        List<Map<Integer, Double>> coarseEdges = new ArrayList<>();
+        List<Map<Integer, Integer>> coarseRoles = new ArrayList<>();
+        for (int c = 0; c < coarseSize; c++) {
+            coarseEdges.add(new HashMap<>());
+            coarseRoles.add(new HashMap<>());
+        }
+        for (int v = 0; v < fine.size; v++) {
+            int c = coarseMap[v];
+            coarse.vertexWeights[c] += fine.vertexWeights[v];
+            if (fine.fixedParts[v] != -1) {
+                coarse.fixedParts[c] = fine.fixedParts[v];
+            }
+            for (int e = 0; e < fine.adjacency[v].length; e++) {
+                int cu = coarseMap[fine.adjacency[v][e]];
+                if (cu != c) {
+                    coarseEdges.get(c).merge(cu, fine.edgeWeights[v][e], Double::sum);
+                }
+            }
+            for (int i = 0; i < fine.files[v].length; i++) {
+                coarseRoles.get(c).merge(fine.files[v][i], fine.fileRoles[v][i], (a, b) -> a | b);
+            }
+        }
+        for (int c = 0; c < coarseSize; c++) {
+            Map<Integer, Double> vertexEdges = coarseEdges.get(c);
+            coarse.adjacency[c]   = new int[vertexEdges.size()];
+            coarse.edgeWeights[c] = new double[vertexEdges.size()];
+            int e = 0;
+            for (Map.Entry<Integer, Double> edge : vertexEdges.entrySet()) {
+                coarse.adjacency[c][e]   = edge.getKey();
+                coarse.edgeWeights[c][e] = edge.getValue();
+                e++;
+            }
+            coarse.setFiles(c, coarseRoles.get(c));
+        }
+        return coarse;
+    }
+
+    // greedy graph growing: the unassigned vertex most connected to an assigned one is put into the part it is most
+    // connected to among the parts that can still fit it (otherwise into the part with most capacity left)
+    private int[] initialPartition(Level level, Random random) {
+        int[] parts = new int[level.size];
+        PartLoads partLoads = new PartLoads(level);
+        double[] loads = partLoads.loads;
+        double[][] connections = new double[level.size][numParts];
+
+        Arrays.fill(parts, -1);
+        for (int v = 0; v < level.size; v++) {
+            if (level.fixedParts[v] != -1) {
+                assign(level, parts, partLoads, connections, v, level.fixedParts[v]);
+            }
+        }
+
+        int[] order = shuffledVertices(level.size, random);
+        while (true) {
+            // vertex with the strongest connection to any part, heavier vertices first among unconnected ones
+            int vertex = -1;
+            double bestConnection = -1.0;
+            for (int v : order) {
+                if (parts[v] != -1) {
+                    continue;
+                }
+                double connection = 0.0;
+                for (int p = 0; p < numParts; p++) {
+                    connection = Math.max(connection, connections[v][p]);
+                }
+                if (connection > bestConnection
+                        || (connection == bestConnection && level.vertexWeights[v] > level.vertexWeights[vertex])) {
+                    bestConnection = connection;
+                    vertex = v;
+                }
+            }
+            if (vertex == -1) {
+                break;
+            }
+
+            int part = -1;
+            for (int p = 0; p < numParts; p++) {
+                if (loads[p] + partLoads.change(level, vertex, p, 1) > capacities[p] + EPSILON) {
+                    continue;
+                }
+                if (part == -1 || connections[vertex][p] > connections[vertex][part]
+                        || (connections[vertex][p] == connections[vertex][part] && capacities[p] - loads[p] > capacities[part] - loads[part])) {
+                    part = p;
+                }
+            }
+            if (part == -1) {
+                for (int p = 0; p < numParts; p++) {
+                    if (part == -1 || capacities[p] - loads[p] > capacities[part] - loads[part]) {
+                        part = p;
+                    }
+                }
+            }
+            assign(level, parts, partLoads, connections, vertex, part);
+        }
+        return parts;
+    }
+
+    private void assign(Level level, int[] parts, PartLoads partLoads, double[][] connections, int vertex, int part) {
+        parts[vertex] = part;
+        partLoads.add(level, vertex, part);
+        for (int e = 0; e < level.adjacency[vertex].length; e++) {
+            connections[level.adjacency[vertex][e]][part] += level.edgeWeights[vertex][e];
+        }
+    }
+
+    // k-way Fiduccia-Mattheyses: every pass moves unlocked vertices one by one with the best gain (also negative gains),
+    // locks them, and rolls back to the best prefix of moves afterwards
+    // moves that lower the overload are preferred, apart from that a move must neither overload its target part nor
+    // raise the overload (leaving a holder behind can charge a copy to the source part)
+    private void refine(Level level, int[] parts) {
+        PartLoads partLoads = new PartLoads(level);
+        double[] loads = partLoads.loads;
+        double[][] connections = new double[level.size][numParts];
+        for (int v = 0; v < level.size; v++) {
+            partLoads.add(level, v, parts[v]);
+            for (int e = 0; e < level.adjacency[v].length; e++) {
+                connections[level.adjacency[v][e]][parts[v]] += level.edgeWeights[v][e];
+            }
+        }
+
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            boolean[] locked = new boolean[level.size];
+            List<int[]> moves = new ArrayList<>(); // {vertex, from}
+            double gainSum = 0.0;
+            double bestGainSum = 0.0;
+            double overload = getOverload(loads);
+            double bestOverload = overload;
+            int bestPrefix = 0;
+
+            while (moves.size() - bestPrefix < MAX_NON_IMPROVING_MOVES) {
+                int vertex = -1;
+                int target = -1;
+                double bestGain = Double.NEGATIVE_INFINITY;
+                boolean bestRelieves = false;
+                for (int v = 0; v < level.size; v++) {
+                    if (locked[v] || level.fixedParts[v] != -1) {
+                        continue;
+                    }
+                    int from = parts[v];
+                    boolean overloaded = loads[from] > capacities[from] + EPSILON;
+                    double newFromLoad = loads[from] + partLoads.change(level, v, from, -1);
+                    for (int p = 0; p < numParts; p++) {
+                        if (p == from) {
+                            continue;
+                        }
+                        double newLoad = loads[p] + partLoads.change(level, v, p, 1);
+                        double overloadChange = excess(newLoad, p) + excess(newFromLoad, from)
+                                - excess(loads[p], p) - excess(loads[from], from);
+                        boolean fits = newLoad <= capacities[p] + EPSILON && overloadChange <= EPSILON;
+                        boolean relieves = overloaded && overloadChange < -EPSILON;
+                        if (!fits && !relieves) {
+                            continue;
+                        }
+                        // only vertices at the border of their part are candidates, unless they relieve an overload
+                        if (!relieves && connections[v][p] <= EPSILON) {
+                            continue;
+                        }
+                        double gain = connections[v][p] - connections[v][from];
+                        if ((relieves && !bestRelieves) || (relieves == bestRelieves && gain > bestGain)) {
+                            bestGain = gain;
+                            bestRelieves = relieves;
+                            vertex = v;
+                            target = p;
+                        }
+                    }
+                }
+                if (vertex == -1) {
+                    break;
+                }
+
+                moves.add(new int[]{vertex, parts[vertex]});
+                move(level, parts, partLoads, connections, vertex, target);
+                locked[vertex] = true;
+                gainSum += bestGain;
+                overload = getOverload(loads);
+
+                if (overload < bestOverload - EPSILON || (Math.abs(overload - bestOverload) <= EPSILON && gainSum > bestGainSum + EPSILON)) {
+                    bestOverload = overload;
+                    bestGainSum = gainSum;
+                    bestPrefix = moves.size();
+                }
+            }
+
+            // roll back the moves after the best prefix
+            for (int i = moves.size() - 1; i >= bestPrefix; i--) {
+                move(level, parts, partLoads, connections, moves.get(i)[0], moves.get(i)[1]);
+            }
+
+            if (bestPrefix == 0) {
+                break;
+            }
+        }
+    }
+
+    private void move(Level level, int[] parts, PartLoads partLoads, double[][] connections, int vertex, int to) {
+        int from = parts[vertex];
+        parts[vertex] = to;
+        partLoads.remove(level, vertex, from);
+        partLoads.add(level, vertex, to);
+        for (int e = 0; e < level.adjacency[vertex].length; e++) {
+            int u = level.adjacency[vertex][e];
+            connections[u][from] -= level.edgeWeights[vertex][e];
+            connections[u][to]   += level.edgeWeights[vertex][e];
+        }
+    }
+
+    private double excess(double load, int part) {
+        return Math.max(0.0, load - capacities[part]);
+    }
+
+    private double getOverload(double[] loads) {
+        double overload = 0.0;
+        for (int p = 0; p < numParts; p++) {
+            overload += Math.max(0.0, loads[p] - capacities[p]);
+        }
+        return overload;
+    }
+
+    private static int[] shuffledVertices(int size, Random random) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+}
@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.LinkedList;
@@ -23,7 +24,10 @@ import org.cloudbus.cloudsim.core.CloudSim;
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 1.0
  */
-public class Cloudlet {
+public class Cloudlet implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * The User or Broker ID. It is advisable that broker set this ID with its own ID, so that
@@ -70,6 +74,12 @@ public class Cloudlet {
 	/** The ID of a reservation made for this cloudlet. */
 	private int reservationId = -1;
 
+	/**
+	 * Whether the constructors without a record parameter record the history of new Cloudlets, off
+	 * by default.
+	 */
+	private static boolean recordHistory = false;
+
 	/** The records the transaction history for this Cloudlet. */
 	private final boolean record;
 
@@ -77,7 +87,7 @@ public class Cloudlet {
 	private String newline;
 
 	/** The history. */
-	private StringBuffer history;
+	private StringBuilder history;
 
 	/** The res list. */
 	private final List<Resource> resList;
@@ -151,7 +161,8 @@ public class Cloudlet {
 
 	/**
 	 * Allocates a new Cloudlet object. The Cloudlet length, input and output file sizes should be
-	 * greater than or equal to 1. By default this constructor sets the history of this object.
+	 * greater than or equal to 1. The history of this object is recorded if
+	 * {@link #setRecordHistory(boolean)} is set.
 	 * 
 	 * @param cloudletId the unique ID of this Cloudlet
 	 * @param cloudletLength the length or size (in MI) of this cloudlet to be executed in a
@@ -188,7 +199,7 @@ public class Cloudlet {
 				utilizationModelCpu,
 				utilizationModelRam,
 				utilizationModelBw,
-				false);
+				recordHistory);
 		vmId = -1;
 		accumulatedBwCost = 0.0;
 		costPerBw = 0.0;
@@ -249,7 +260,8 @@ public class Cloudlet {
 
 	/**
 	 * Allocates a new Cloudlet object. The Cloudlet length, input and output file sizes should be
-	 * greater than or equal to 1. By default this constructor sets the history of this object.
+	 * greater than or equal to 1. The history of this object is recorded if
+	 * {@link #setRecordHistory(boolean)} is set.
 	 * 
 	 * @param cloudletId the unique ID of this Cloudlet
 	 * @param cloudletLength the length or size (in MI) of this cloudlet to be executed in a
@@ -288,7 +300,7 @@ public class Cloudlet {
 				utilizationModelCpu,
 				utilizationModelRam,
 				utilizationModelBw,
-				false);
+				recordHistory);
 		vmId = -1;
 		accumulatedBwCost = 0.0;
 		costPerBw = 0.0;
@@ -365,7 +377,10 @@ public class Cloudlet {
 	/**
 	 * Internal class that keeps track Cloudlet's movement in different CloudResources.
 	 */
-	private static class Resource {
+	private static class Resource implements Serializable {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
 
 		/** Cloudlet's submission time to a CloudResource. */
 		public double submissionTime = 0.0;
@@ -557,6 +572,26 @@ public class Cloudlet {
 		return numberOfPes;
 	}
 
+	/**
+	 * Sets whether Cloudlets created from now on by the constructors without a record parameter
+	 * record their history. Formatting the history on every change of a Cloudlet is costly, for
+	 * large runs see {@link CloudletLifecycleLog} instead.
+	 * 
+	 * @param record record the history of new Cloudlets or not
+	 */
+	public static void setRecordHistory(final boolean record) {
+		recordHistory = record;
+	}
+
+	/**
+	 * Checks whether new Cloudlets record their history.
+	 * 
+	 * @return <tt>true</tt> if the history of new Cloudlets is recorded
+	 */
+	public static boolean isRecordHistory() {
+		return recordHistory;
+	}
+
 	/**
 	 * Gets the history of this Cloudlet. The layout of this history is in a readable table column
 	 * with <tt>time</tt> and <tt>description</tt> as headers.
@@ -861,6 +896,10 @@ public class Cloudlet {
 		}
 
 		status = newStatus;
+
+		if (CloudletLifecycleLog.isOpen()) {
+			CloudletLifecycleLog.record(this);
+		}
 	}
 
 	/**
@@ -1181,7 +1220,7 @@ public class Cloudlet {
 												// transactions of this Cloudlet
 			newline = System.getProperty("line.separator");
 			num = new DecimalFormat("#0.00#"); // with 3 decimal spaces
-			history = new StringBuffer(1000);
+			history = new StringBuilder(1000);
 			history.append("Time below denotes the simulation time.");
 			history.append(System.getProperty("line.separator"));
 			history.append("Time (sec)       Description Cloudlet #" + cloudletId);
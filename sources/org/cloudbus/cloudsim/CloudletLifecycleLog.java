@@ -0,0 +1,192 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * An append-only binary log of the status changes of all Cloudlets of a simulation. Unlike the
+ * history of a Cloudlet (see {@link Cloudlet#setRecordHistory(boolean)}), nothing is formatted
+ * during the simulation: every change is a fixed record of {@value #RECORD_SIZE} bytes that is put
+ * into a direct buffer and written through a file channel whenever the buffer is full.
+ * <p>
+ * The file starts with the int {@link #MAGIC}, followed by one record per status change, in the
+ * order of the changes:
+ *
+ * <pre>
+ * int cloudlet id, byte new status, double simulation time, int resource id (-1 if not submitted yet)
+ * </pre>
+ *
+ * The resource id is the id of the datacenter the Cloudlet was last submitted to. All values are
+ * big-endian. {@link #main(String[])} converts a log to CSV.
+ * <p>
+ * The simulation runs in a single thread, the log is not synchronized.
+ */
+public final class CloudletLifecycleLog {
+
+	/** The first int of a log file. */
+	public static final int MAGIC = 0x434c4c31; // "CLL1"
+
+	/** The size of a record in bytes. */
+	public static final int RECORD_SIZE = 4 + 1 + 8 + 4;
+
+	/** The size of the write buffer in bytes. */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/** The channel of the open log, null if no log is open. */
+	private static FileChannel channel = null;
+
+	private static ByteBuffer buffer = null;
+
+	/** The records written to the open log. */
+	private static long records = 0;
+
+	private CloudletLifecycleLog() {
+	}
+
+	/**
+	 * Opens a log, the status changes of all Cloudlets are recorded until {@link #close()}. An
+	 * existing file is overwritten.
+	 *
+	 * @param path the file of the log
+	 * @throws IOException if the file cannot be opened
+	 */
+	public static void open(final String path) throws IOException {
+		close();
+		channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+		buffer.clear();
+		buffer.putInt(MAGIC);
+		records = 0;
+	}
+
+	/**
+	 * Checks whether a log is open.
+	 *
+	 * @return <tt>true</tt> if status changes are recorded
+	 */
+	public static boolean isOpen() {
+		return channel != null;
+	}
+
+	/**
+	 * Gets the number of records written to the open or the last log.
+	 *
+	 * @return the number of records
+	 */
+	public static long getRecords() {
+		return records;
+	}
+
+	/**
+	 * Records the current status of a Cloudlet at the current simulation time. Does nothing if no
+	 * log is open.
+	 *
+	 * @param cloudlet the Cloudlet whose status has changed
+	 */
+	public static void record(final Cloudlet cloudlet) {
+		if (channel == null) {
+			return;
+		}
+		if (buffer.remaining() < RECORD_SIZE) {
+			flush();
+		}
+		buffer.putInt(cloudlet.getCloudletId());
+		buffer.put((byte) cloudlet.getCloudletStatus());
+		buffer.putDouble(CloudSim.clock());
+		buffer.putInt(cloudlet.getResourceId());
+		records++;
+	}
+
+	/**
+	 * Writes the remaining records and closes the log. Does nothing if no log is open.
+	 *
+	 * @throws IOException if the records cannot be written
+	 */
+	public static void close() throws IOException {
+		if (channel == null) {
+			return;
+		}
+		try {
+			flush();
+		} finally {
+			channel.close();
+			channel = null;
+		}
+	}
+
+	private static void flush() {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Converts a log to CSV with the columns id, status, time and resource.
+	 * <p>
+	 * Usage: CloudletLifecycleLog log.bin [log.csv], the CSV is printed to stdout without a second
+	 * argument.
+	 *
+	 * @param args the log and optionally the CSV file
+	 * @throws IOException if a file cannot be read or written
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length < 1) {
+			throw new IllegalArgumentException("Need a lifecycle log");
+		}
+
+		PrintStream out = args.length >= 2 ? new PrintStream(args[1]) : System.out;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(args[0])))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(args[0] + " is not a lifecycle log");
+			}
+			out.println("id,status,time,resource");
+			StringBuilder row = new StringBuilder();
+			byte[] record = new byte[RECORD_SIZE];
+			ByteBuffer fields = ByteBuffer.wrap(record);
+			int read;
+			while ((read = in.read(record)) != -1) {
+				if (read < RECORD_SIZE) {
+					in.readFully(record, read, RECORD_SIZE - read);
+				}
+				fields.clear();
+				row.setLength(0);
+				row.append(fields.getInt()).append(',');
+				row.append(Cloudlet.getStatusString(fields.get())).append(',');
+				row.append(fields.getDouble()).append(',');
+				row.append(fields.getInt());
+				out.println(row);
+			}
+		} finally {
+			if (out != System.out) {
+				out.close();
+			}
+		}
+	}
+}
@@ -8,6 +8,7 @@
 package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import org.cloudbus.cloudsim.core.CloudSim;
@@ -22,6 +23,9 @@ import org.cloudbus.cloudsim.core.CloudSim;
  */
 public class CloudletSchedulerTimeShared extends CloudletScheduler {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The cloudlet exec list. */
 	private List<? extends ResCloudlet> cloudletExecList;
 
@@ -75,16 +79,15 @@ public class CloudletSchedulerTimeShared extends CloudletScheduler {
 
 		// check finished cloudlets
 		double nextEvent = Double.MAX_VALUE;
-		List<ResCloudlet> toRemove = new ArrayList<ResCloudlet>();
-		for (ResCloudlet rcl : getCloudletExecList()) {
+		Iterator<? extends ResCloudlet> iterator = getCloudletExecList().iterator();
+		while (iterator.hasNext()) {
+			ResCloudlet rcl = iterator.next();
 			long remainingLength = rcl.getRemainingCloudletLength();
 			if (remainingLength == 0) {// finished: remove from the list
-				toRemove.add(rcl);
+				iterator.remove();
 				cloudletFinish(rcl);
-				continue;
 			}
 		}
-		getCloudletExecList().removeAll(toRemove);
 
 		// estimate finish time of cloudlets
 		for (ResCloudlet rcl : getCloudletExecList()) {
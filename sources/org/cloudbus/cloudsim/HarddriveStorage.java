@@ -8,10 +8,12 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import org.cloudbus.cloudsim.core.metrics.Metrics;
 import org.cloudbus.cloudsim.distributions.ContinuousDistribution;
 
 /**
@@ -28,7 +30,10 @@ import org.cloudbus.cloudsim.distributions.ContinuousDistribution;
  * @author Anthony Sulistio
  * @since CloudSim Toolkit 1.0
  */
-public class HarddriveStorage implements Storage {
+public class HarddriveStorage implements Storage, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
 	/** a list storing the names of all the files on the harddrive. */
 	private List<String> nameList;
@@ -247,6 +252,16 @@ public class HarddriveStorage implements Storage {
 		return currentSize;
 	}
 
+	/**
+	 * Sets the current size of the stored files in MB, without changing the stored files. This
+	 * restores the used space of a recorded state, e.g., when a scheduling round is replayed.
+	 * 
+	 * @param currentSize the current size of the stored files in MB
+	 */
+	public void setCurrentSize(double currentSize) {
+		this.currentSize = currentSize;
+	}
+
 	/**
 	 * Gets the name of the storage.
 	 * 
@@ -495,6 +510,7 @@ public class HarddriveStorage implements Storage {
 			fileList.add(file);               // add the file into the HD
 			nameList.add(file.getName());     // add the name to the name list
 			currentSize += file.getSize();    // increment the current HD size
+			Metrics.recordStorageUsage(name, currentSize);
 			result = seekTime + transferTime;  // add total time
 		}
 		file.setTransactionTime(result);
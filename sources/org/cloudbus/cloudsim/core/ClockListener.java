@@ -0,0 +1,28 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * A listener that is told by {@link CloudSim} before the simulation clock advances. At that point,
+ * all events of the current time have been processed, so the state of the simulation is the state
+ * of the whole interval until the next event. This allows to sample the simulation at fixed points
+ * of simulated time without scheduling events, which would keep the simulation from finishing.
+ *
+ * @see CloudSim#setClockListener(ClockListener)
+ */
+public interface ClockListener {
+
+	/**
+	 * Called before the clock advances. The simulation state does not change in [from, to).
+	 *
+	 * @param from the current time
+	 * @param to the time of the next event
+	 */
+	void clockAdvancing(double from, double to);
+}
@@ -8,16 +8,32 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Calendar;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.metrics.Metrics;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
 import org.cloudbus.cloudsim.core.predicates.PredicateAny;
 import org.cloudbus.cloudsim.core.predicates.PredicateNone;
@@ -338,19 +354,70 @@ public class CloudSim {
 	/** The abrupt terminate. */
 	private static boolean abruptTerminate = false;
 
+	/** The pool the events are taken from. */
+	private static final EventPool eventPool = new EventPool();
+
+	/** The events processed in the current clock tick, reused across ticks. */
+	private static final List<SimEvent> processedEvents = new ArrayList<SimEvent>();
+
+	/** The number of events taken from the future queue since the last initialisation. */
+	private static long processedEventCount = 0;
+
+	/** The listener that is told before the clock advances, null if none. */
+	private static ClockListener clockListener = null;
+
+	/** The cutoffs that end the simulation early, null if none. */
+	private static RunBudget runBudget = null;
+
+	/**
+	 * The ids of the entities that may have work in the next entity sweep, i.e. entities with
+	 * deferred events or a buffered event.
+	 */
+	private static BitSet readyEntities;
+
+	/** The ids of the entities that override {@link SimEntity#run()}, they are always swept. */
+	private static BitSet sweptEntities;
+
+	/** The number of threads that run the logical processes, 1 runs the simulation sequentially. */
+	private static int parallelism = 1;
+
+	/** The minimum delay of events between entities of different logical processes. */
+	private static double lookahead = 0;
+
+	/** The logical processes of a parallel run, null if the simulation runs sequentially. */
+	private static LogicalProcess[] processes = null;
+
+	/** The index of the logical process of every entity id in a parallel run. */
+	private static int[] processOf = null;
+
+	/** The threads that run the logical processes. */
+	private static ExecutorService workers = null;
+
+	/** Whether the logical processes currently run a window. */
+	private static boolean inWindow = false;
+
 	/**
 	 * Initialise the simulation for stand alone simulations. This function should be called at the
 	 * start of the simulation.
 	 */
 	protected static void initialize() {
 		Log.printLine("Initialising...");
+		stopProcesses();
 		entities = new ArrayList<SimEntity>();
 		entitiesByName = new LinkedHashMap<String, SimEntity>();
 		future = new FutureQueue();
 		deferred = new DeferredQueue();
-		waitPredicates = new HashMap<Integer, Predicate>();
+		// entities of different logical processes wait concurrently in the parallel mode
+		waitPredicates = new ConcurrentHashMap<Integer, Predicate>();
+		readyEntities = new BitSet();
+		sweptEntities = new BitSet();
 		clock = 0;
 		running = false;
+		processedEventCount = 0;
+		clockListener = null;
+		runBudget = null;
+		parallelism = 1;
+		lookahead = 0;
 	}
 
 	// The two standard predicates
@@ -369,6 +436,12 @@ public class CloudSim {
 	 * @return the simulation time
 	 */
 	public static double clock() {
+		if (inWindow) {
+			LogicalProcess process = LogicalProcess.current();
+			if (process != null) {
+				return process.clock();
+			}
+		}
 		return clock;
 	}
 
@@ -472,9 +545,12 @@ public class CloudSim {
 	 */
 	public static void addEntity(SimEntity e) {
 		SimEvent evt;
+		if (inWindow) {
+			throw new IllegalStateException("Entities can't be added while logical processes run in parallel.");
+		}
 		if (running) {
 			// Post an event to make this entity
-			evt = new SimEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
+			evt = eventPool.acquire(SimEvent.CREATE, clock, 1, 0, 0, e);
 			future.addEvent(evt);
 		}
 		if (e.getId() == -1) { // Only add once!
@@ -482,6 +558,10 @@ public class CloudSim {
 			e.setId(id);
 			entities.add(e);
 			entitiesByName.put(e.getName(), e);
+			if (overridesRun(e)) {
+				sweptEntities.set(id);
+				readyEntities.set(id);
+			}
 		}
 	}
 
@@ -512,16 +592,21 @@ public class CloudSim {
 		
 		int entities_size = entities.size();
 
-		for (int i = 0; i < entities_size; i++) {
+		// only entities with pending events have work, they are run in the order of their ids
+		for (int i = readyEntities.nextSetBit(0); i >= 0 && i < entities_size; i = readyEntities
+				.nextSetBit(i + 1)) {
 			ent = entities.get(i);
 			if (ent.getState() == SimEntity.RUNNABLE) {
 				ent.run();
 			}
+			if (ent.getEventBuffer() == null && deferred.size(i) == 0 && !sweptEntities.get(i)) {
+				readyEntities.clear(i);
+			}
 		}
 				
 		// If there are more future events then deal with them
 		if (future.size() > 0) {
-			List<SimEvent> toRemove = new ArrayList<SimEvent>();
+			List<SimEvent> toRemove = processedEvents;
 			Iterator<SimEvent> fit = future.iterator();
 			queue_empty = false;
 			SimEvent first = fit.next();
@@ -545,6 +630,17 @@ public class CloudSim {
 
 			future.removeAll(toRemove);
 
+			// sent events are recycled once their destination processed them, see SimEntity.run()
+			if (first.getType() != SimEvent.SEND) {
+				eventPool.release(first);
+			}
+			for (SimEvent event : toRemove) {
+				if (event.getType() != SimEvent.SEND) {
+					eventPool.release(event);
+				}
+			}
+			toRemove.clear();
+
 		} else {
 			queue_empty = true;
 			running = false;
@@ -561,6 +657,171 @@ public class CloudSim {
 		printMessage("Simulation completed.");
 	}
 
+	/**
+	 * Enables or disables event pooling. If enabled, events are recycled after their destination
+	 * entity processed them, instead of being left to the garbage collector. Entities that keep a
+	 * reference to an event after {@link SimEntity#processEvent(SimEvent)} returned have to call
+	 * {@link SimEvent#retain()}.
+	 * 
+	 * @param pooling whether events are pooled
+	 */
+	public static void setEventPooling(boolean pooling) {
+		eventPool.setEnabled(pooling);
+	}
+
+	/**
+	 * Gets the event pool, which also provides the allocation counters of the simulation kernel.
+	 * 
+	 * @return the event pool
+	 */
+	public static EventPool getEventPool() {
+		return eventPool;
+	}
+
+	/**
+	 * Gets the number of events that were taken from the future queue since the simulation was
+	 * initialised.
+	 * 
+	 * @return the number of processed events
+	 */
+	public static long getProcessedEventCount() {
+		return processedEventCount;
+	}
+
+	/**
+	 * Sets the listener that is told before the simulation clock advances, e.g. to sample the
+	 * simulation state at fixed points of simulated time. The listener is removed by
+	 * {@link #init(int, Calendar, boolean)}.
+	 * 
+	 * @param listener the listener, null to remove it
+	 */
+	public static void setClockListener(ClockListener listener) {
+		clockListener = listener;
+	}
+
+	/**
+	 * Sets the cutoffs that end the simulation early, they are checked after every clock tick. The
+	 * budget is removed by {@link #init(int, Calendar, boolean)}.
+	 * 
+	 * @param budget the cutoffs, null to remove them
+	 */
+	public static void setRunBudget(RunBudget budget) {
+		runBudget = budget;
+	}
+
+	/**
+	 * Gets the cutoffs that end the simulation early.
+	 * 
+	 * @return the cutoffs, null if none
+	 */
+	public static RunBudget getRunBudget() {
+		return runBudget;
+	}
+
+	/**
+	 * Enables the parallel simulation mode. The entities are grouped into logical processes (see
+	 * {@link SimEntity#setLogicalProcess(int)}) that run on up to the given number of threads. They
+	 * are synchronized by a conservative window protocol: every window spans the lookahead (see
+	 * {@link #setLookahead(double)}) from the earliest pending event, so no process can receive an
+	 * event of another process within the window. The processes deliver their events of a window
+	 * in parallel; events between processes and the log output are merged at the end of every
+	 * window in the order of the sequential kernel, so both modes produce the same results.
+	 * <p>
+	 * Entities of different processes must not share state other than through events, must not
+	 * add entities while running and must not cancel events to other processes within the
+	 * lookahead. {@link #run()} falls back to the sequential kernel if the mode cannot be used,
+	 * e.g. if the lookahead is 0 (see {@link #getSequentialReason()}). The setting is reset by
+	 * {@link #init(int, Calendar, boolean)}.
+	 * 
+	 * @param threads the number of threads, 1 to run the simulation sequentially
+	 */
+	public static void setParallelism(int threads) {
+		parallelism = Math.max(threads, 1);
+	}
+
+	/**
+	 * Gets the number of threads that run the logical processes.
+	 * 
+	 * @return the number of threads, 1 if the simulation runs sequentially
+	 */
+	public static int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the lookahead of the parallel simulation mode, i.e. the minimum delay of all events
+	 * between entities of different logical processes. Sending such an event with a shorter delay
+	 * while the processes run in parallel is an error. The lookahead is reset by
+	 * {@link #init(int, Calendar, boolean)}.
+	 * 
+	 * @param delay the lookahead
+	 * @see #setParallelism(int)
+	 */
+	public static void setLookahead(double delay) {
+		lookahead = delay;
+	}
+
+	/**
+	 * Gets the lookahead of the parallel simulation mode.
+	 * 
+	 * @return the lookahead
+	 */
+	public static double getLookahead() {
+		return lookahead;
+	}
+
+	/**
+	 * Checks whether {@link #run()} can run the logical processes in parallel.
+	 * 
+	 * @return why the simulation runs sequentially, <tt>null</tt> if it runs in parallel
+	 * @see #setParallelism(int)
+	 */
+	public static String getSequentialReason() {
+		if (parallelism <= 1) {
+			return "a single thread is used";
+		}
+		if (lookahead <= 0) {
+			return "the lookahead is 0";
+		}
+		int firstProcess = entities.isEmpty() ? 0 : entities.get(0).getLogicalProcess();
+		boolean singleProcess = true;
+		for (SimEntity ent : entities) {
+			singleProcess &= ent.getLogicalProcess() == firstProcess;
+		}
+		if (singleProcess) {
+			return "all entities belong to one logical process";
+		}
+		if (!sweptEntities.isEmpty()) {
+			return "entities override run()";
+		}
+		if (clockListener != null) {
+			return "a clock listener is set";
+		}
+		if (runBudget != null) {
+			return "a run budget is set";
+		}
+		if (terminateAt > 0.0 || pauseAt != -1) {
+			return "the simulation is terminated or paused at a given time";
+		}
+		if (Metrics.isEnabled()) {
+			return "metrics are recorded";
+		}
+		return null;
+	}
+
+	/**
+	 * Returns an event that has been processed by its destination to the event pool.
+	 * 
+	 * @param e the event
+	 */
+	static void recycle(SimEvent e) {
+		if (inWindow) {
+			LogicalProcess.current().recycle(e);
+		} else {
+			eventPool.release(e);
+		}
+	}
+
 	/**
 	 * Used to hold an entity for some time.
 	 * 
@@ -568,8 +829,12 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void hold(int src, long delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
+		if (inWindow) {
+			LogicalProcess.current().send(SimEvent.HOLD_DONE, delay, src, -1, -1, null, false);
+		} else {
+			SimEvent e = eventPool.acquire(SimEvent.HOLD_DONE, clock + delay, src, -1, -1, null);
+			future.addEvent(e);
+		}
 		entities.get(src).setState(SimEntity.HOLDING);
 	}
 
@@ -580,8 +845,12 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void pause(int src, double delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
+		if (inWindow) {
+			LogicalProcess.current().send(SimEvent.HOLD_DONE, delay, src, -1, -1, null, false);
+		} else {
+			SimEvent e = eventPool.acquire(SimEvent.HOLD_DONE, clock + delay, src, -1, -1, null);
+			future.addEvent(e);
+		}
 		entities.get(src).setState(SimEntity.HOLDING);
 	}
 
@@ -598,8 +867,12 @@ public class CloudSim {
 		if (delay < 0) {
 			throw new IllegalArgumentException("Send delay can't be negative.");
 		}
+		if (inWindow) {
+			LogicalProcess.current().send(SimEvent.SEND, delay, src, dest, tag, data, false);
+			return;
+		}
 
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
+		SimEvent e = eventPool.acquire(SimEvent.SEND, clock + delay, src, dest, tag, data);
 		future.addEvent(e);
 	}
 
@@ -616,8 +889,12 @@ public class CloudSim {
 		if (delay < 0) {
 			throw new IllegalArgumentException("Send delay can't be negative.");
 		}
+		if (inWindow) {
+			LogicalProcess.current().send(SimEvent.SEND, delay, src, dest, tag, data, true);
+			return;
+		}
 
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
+		SimEvent e = eventPool.acquire(SimEvent.SEND, clock + delay, src, dest, tag, data);
 		future.addEventFirst(e);
 	}
 
@@ -645,12 +922,16 @@ public class CloudSim {
 	 * @return the int
 	 */
 	public static int waiting(int d, Predicate p) {
+		if (p instanceof PredicateAny) {
+			return deferred.size(d);
+		}
+
 		int count = 0;
 		SimEvent event;
-		Iterator<SimEvent> iterator = deferred.iterator();
+		Iterator<SimEvent> iterator = deferred.iterator(d);
 		while (iterator.hasNext()) {
 			event = iterator.next();
-			if ((event.getDestination() == d) && (p.match(event))) {
+			if (p.match(event)) {
 				count++;
 			}
 		}
@@ -662,19 +943,24 @@ public class CloudSim {
 	 * 
 	 * @param src the src
 	 * @param p the p
-	 * @return the sim event
+	 * @return the sim event, or <tt>null</tt> if no event matches
 	 */
 	public static SimEvent select(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
+		// usually the first event matches (always for PredicateAny)
+		SimEvent ev = deferred.peekFirst(src);
+		if (ev == null || p instanceof PredicateAny || p.match(ev)) {
+			return deferred.pollFirst(src);
+		}
+
+		Iterator<SimEvent> iterator = deferred.iterator(src);
 		while (iterator.hasNext()) {
 			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
+			if (p.match(ev)) {
 				iterator.remove();
-				break;
+				return ev;
 			}
 		}
-		return ev;
+		return null;
 	}
 
 	/**
@@ -682,18 +968,22 @@ public class CloudSim {
 	 * 
 	 * @param src the src
 	 * @param p the p
-	 * @return the sim event
+	 * @return the sim event, or <tt>null</tt> if no event matches
 	 */
 	public static SimEvent findFirstDeferred(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
+		SimEvent ev = deferred.peekFirst(src);
+		if (ev == null || p instanceof PredicateAny || p.match(ev)) {
+			return ev;
+		}
+
+		Iterator<SimEvent> iterator = deferred.iterator(src);
 		while (iterator.hasNext()) {
 			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				break;
+			if (p.match(ev)) {
+				return ev;
 			}
 		}
-		return ev;
+		return null;
 	}
 
 	/**
@@ -701,20 +991,23 @@ public class CloudSim {
 	 * 
 	 * @param src the src
 	 * @param p the p
-	 * @return the sim event
+	 * @return the sim event, or <tt>null</tt> if no event matches
 	 */
 	public static SimEvent cancel(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iter = future.iterator();
+		if (inWindow) {
+			return LogicalProcess.current().cancel(src, p, future);
+		}
+		SimEvent ev;
+		Iterator<SimEvent> iter = future.iterator(src);
 		while (iter.hasNext()) {
 			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
+			if (p.match(ev)) {
 				iter.remove();
-				break;
+				return ev;
 			}
 		}
 
-		return ev;
+		return null;
 	}
 
 	/**
@@ -726,16 +1019,19 @@ public class CloudSim {
 	 * @return true, if successful
 	 */
 	public static boolean cancelAll(int src, Predicate p) {
+		if (inWindow) {
+			return LogicalProcess.current().cancelAll(src, p, future);
+		}
 		SimEvent ev = null;
 		int previousSize = future.size();
-		Iterator<SimEvent> iter = future.iterator();
+		Iterator<SimEvent> iter = future.iterator(src);
 		while (iter.hasNext()) {
 			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
+			if (p.match(ev)) {
 				iter.remove();
 			}
 		}
-		return previousSize < future.size();
+		return previousSize > future.size();
 	}
 
 	//
@@ -748,24 +1044,38 @@ public class CloudSim {
 	 * @param e the e
 	 */
 	private static void processEvent(SimEvent e) {
-		int dest, src;
-		SimEntity dest_ent;
 		// Update the system's clock
 		if (e.eventTime() < clock) {
 			throw new IllegalArgumentException("Past event detected.");
 		}
+		if (clockListener != null && e.eventTime() > clock) {
+			clockListener.clockAdvancing(clock, e.eventTime());
+		}
 		clock = e.eventTime();
+		processedEventCount++;
 
 		// Ok now process it
+		if (e.getType() == SimEvent.CREATE) {
+			SimEntity newe = (SimEntity) e.getData();
+			addEntityDynamically(newe);
+		} else {
+			deliverEvent(e, readyEntities);
+		}
+	}
+
+	/**
+	 * Hands a sent event over to its destination entity, or wakes up the entity of a hold event.
+	 * 
+	 * @param e the event
+	 * @param ready the ids of the entities that may have work in the next entity sweep
+	 */
+	static void deliverEvent(SimEvent e, BitSet ready) {
+		int dest, src;
+		SimEntity dest_ent;
 		switch (e.getType()) {
 			case SimEvent.ENULL:
 				throw new IllegalArgumentException("Event has a null type.");
 
-			case SimEvent.CREATE:
-				SimEntity newe = (SimEntity) e.getData();
-				addEntityDynamically(newe);
-				break;
-
 			case SimEvent.SEND:
 				// Check for matching wait
 				dest = e.getDestination();
@@ -778,7 +1088,8 @@ public class CloudSim {
 						Integer destObj = Integer.valueOf(dest);
 						Predicate p = waitPredicates.get(destObj);
 						if ((p == null) || (tag == 9999) || (p.match(e))) {
-							dest_ent.setEventBuffer((SimEvent) e.clone());
+							// the event leaves the future queue, so it can be handed over as is
+							dest_ent.setEventBuffer(e);
 							dest_ent.setState(SimEntity.RUNNABLE);
 							waitPredicates.remove(destObj);
 						} else {
@@ -787,6 +1098,7 @@ public class CloudSim {
 					} else {
 						deferred.addEvent(e);
 					}
+					ready.set(dest);
 				}
 				break;
 
@@ -804,6 +1116,21 @@ public class CloudSim {
 		}
 	}
 
+	/**
+	 * Checks whether an entity replaces the default {@link SimEntity#run()}. Such entities may do
+	 * work without pending events, so they are run in every entity sweep.
+	 * 
+	 * @param e the entity
+	 * @return true, if the entity overrides run()
+	 */
+	private static boolean overridesRun(SimEntity e) {
+		try {
+			return e.getClass().getMethod("run").getDeclaringClass() != SimEntity.class;
+		} catch (NoSuchMethodException ex) {
+			return true;
+		}
+	}
+
 	/**
 	 * Internal method used to start the simulation. This method should <b>not</b> be used by user
 	 * simulations.
@@ -878,8 +1205,11 @@ public class CloudSim {
 		if (!running) {
 			runStart();
 		}
+		if (getSequentialReason() == null) {
+			startProcesses();
+		}
 		while (true) {
-			if (runClockTick() || abruptTerminate) {
+			if ((processes != null ? runWindow() : runClockTick()) || abruptTerminate) {
 				break;
 			}
 
@@ -890,6 +1220,13 @@ public class CloudSim {
 				break;
 			}
 
+			// this block allows termination of simulation when a cutoff is exceeded
+			if (runBudget != null && runBudget.check()) {
+				printMessage("Simulation: Run budget exceeded, " + runBudget.describeExceeded());
+				terminateSimulation();
+				break;
+			}
+
 			if (pauseAt != -1
 					&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.iterator().next()
 							.eventTime()) || future.size() == 0 && pauseAt <= clock)) {
@@ -905,6 +1242,7 @@ public class CloudSim {
 				}
 			}
 		}
+		stopProcesses();
 
 		double clock = clock();
 
@@ -914,6 +1252,287 @@ public class CloudSim {
 		return clock;
 	}
 
+	/**
+	 * Creates the logical processes of a parallel run and the threads that run them.
+	 */
+	private static void startProcesses() {
+		List<Integer> ids = new ArrayList<Integer>();
+		for (SimEntity ent : entities) {
+			if (!ids.contains(ent.getLogicalProcess())) {
+				ids.add(ent.getLogicalProcess());
+			}
+		}
+		Collections.sort(ids);
+		processOf = new int[entities.size()];
+		for (SimEntity ent : entities) {
+			processOf[ent.getId()] = ids.indexOf(ent.getLogicalProcess());
+		}
+		processes = new LogicalProcess[ids.size()];
+		for (int i = 0; i < processes.length; i++) {
+			processes[i] = new LogicalProcess(i, processOf, eventPool.isEnabled());
+		}
+		workers = Executors.newFixedThreadPool(Math.min(parallelism, processes.length), new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "LogicalProcess");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		// log output written within a window is held back by the process that wrote it
+		Log.setOutput(new WindowOutput(Log.getOutput()));
+		deferred.reserve(entities.size());
+	}
+
+	/**
+	 * Shuts down the threads of a parallel run.
+	 */
+	private static void stopProcesses() {
+		if (processes == null) {
+			return;
+		}
+		workers.shutdownNow();
+		workers = null;
+		processes = null;
+		processOf = null;
+		if (Log.getOutput() instanceof WindowOutput) {
+			Log.setOutput(((WindowOutput) Log.getOutput()).target);
+		}
+	}
+
+	/**
+	 * Runs the logical processes through the window that starts at the earliest pending event. The
+	 * window ends one lookahead later, or at the first event that creates an entity. If the window
+	 * is empty, a sequential clock tick is run instead.
+	 * 
+	 * @return true, if there are no more events
+	 */
+	private static boolean runWindow() {
+		if (future.size() == 0) {
+			return runClockTick();
+		}
+
+		double windowEnd = future.iterator().next().eventTime() + lookahead;
+		List<SimEvent> events = processedEvents;
+		Iterator<SimEvent> fit = future.iterator();
+		while (fit.hasNext()) {
+			SimEvent e = fit.next();
+			if (e.eventTime() >= windowEnd) {
+				break;
+			}
+			if (e.getType() == SimEvent.CREATE) {
+				windowEnd = e.eventTime();
+				break;
+			}
+			events.add(e);
+		}
+		while (!events.isEmpty() && events.get(events.size() - 1).eventTime() >= windowEnd) {
+			events.remove(events.size() - 1);
+		}
+		if (events.isEmpty()) {
+			return runClockTick();
+		}
+
+		for (LogicalProcess process : processes) {
+			process.openWindow(clock, windowEnd, lookahead, future.getSerial(), readyEntities);
+		}
+		future.removeAll(events);
+		for (SimEvent e : events) {
+			int process = LogicalProcess.processOf(e, processOf);
+			processes[process].enqueue(e);
+			if (e.getType() == SimEvent.SEND && e.getSource() >= 0 && processOf[e.getSource()] != process) {
+				processes[processOf[e.getSource()]].lend(e);
+			}
+		}
+		events.clear();
+
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (final LogicalProcess process : processes) {
+			if (process.hasWork()) {
+				tasks.add(new Callable<Object>() {
+
+					@Override
+					public Object call() {
+						process.run();
+						return null;
+					}
+				});
+			}
+		}
+		inWindow = true;
+		try {
+			if (tasks.size() == 1) {
+				tasks.get(0).call();
+			} else {
+				for (Future<Object> result : workers.invokeAll(tasks)) {
+					result.get();
+				}
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("A logical process failed.", e.getCause());
+		} catch (Exception e) {
+			if (e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			}
+			throw new IllegalStateException("The logical processes were interrupted.", e);
+		} finally {
+			inWindow = false;
+		}
+
+		// merge the processes in the order of the sequential kernel
+		List<LogicalProcess.Output> sent = new ArrayList<LogicalProcess.Output>();
+		List<LogicalProcess.Output> logs = new ArrayList<LogicalProcess.Output>();
+		for (LogicalProcess process : processes) {
+			processedEventCount += process.closeWindow(sent, logs, readyEntities, eventPool);
+			clock = Math.max(clock, process.clock());
+		}
+		Collections.sort(logs);
+		try {
+			for (LogicalProcess.Output log : logs) {
+				log.bytes.writeTo(Log.getOutput());
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		Collections.sort(sent);
+		for (LogicalProcess.Output output : sent) {
+			if (output.first) {
+				future.addEventFirst(output.event);
+			} else {
+				future.addEvent(output.event);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Runs the simulation until an event matching a predicate is about to be delivered to a given
+	 * entity. The matching event is left undelivered, so that the simulation can be checkpointed
+	 * with {@link #createSnapshot(Serializable)} right before the entity reacts to it. If the
+	 * simulation finishes before such an event shows up, it is finished as in {@link #run()}.
+	 * 
+	 * @param dest the id of the entity the event is addressed to
+	 * @param p the predicate the event has to match
+	 * @return true if the simulation stopped at a matching event, false if it finished
+	 */
+	public static boolean runUntil(int dest, Predicate p) {
+		if (!running) {
+			runStart();
+		}
+		while (true) {
+			// events of the coming entity sweep are either deferred or buffered in the entity
+			SimEvent buffered = entities.get(dest).getEventBuffer();
+			if ((buffered != null && p.match(buffered)) || waiting(dest, p) > 0) {
+				return true;
+			}
+
+			if (runClockTick() || abruptTerminate) {
+				break;
+			}
+
+			if (terminateAt > 0.0 && clock >= terminateAt) {
+				terminateSimulation();
+				clock = terminateAt;
+				break;
+			}
+
+			// this block allows termination of simulation when a cutoff is exceeded
+			if (runBudget != null && runBudget.check()) {
+				printMessage("Simulation: Run budget exceeded, " + runBudget.describeExceeded());
+				terminateSimulation();
+				break;
+			}
+		}
+
+		finishSimulation();
+		runStop();
+
+		return false;
+	}
+
+	/**
+	 * Takes a snapshot of the complete simulation state, i.e. all entities, both event queues and
+	 * the clock. State that lives outside of the kernel (e.g. static catalogs of the user code) can
+	 * be handed in as <code>attachment</code>; it is serialized within the same object graph, so
+	 * objects shared between the attachment and the entities stay shared in every restored copy.
+	 * The snapshot should be taken between two clock ticks, e.g. after
+	 * {@link #runUntil(int, Predicate)} returned.
+	 * 
+	 * @param attachment additional state to be stored with the snapshot, may be <tt>null</tt>
+	 * @return the snapshot
+	 * @throws IllegalStateException if the simulation state is not serializable
+	 */
+	public static SimulationSnapshot createSnapshot(Serializable attachment) {
+		Object[] state = new Object[] { entities, entitiesByName, future, deferred, waitPredicates,
+				calendar, cis, attachment,
+				new double[] { clock, terminateAt, minTimeBetweenEvents },
+				new long[] { cisId, shutdownId, pauseAt },
+				new boolean[] { running, traceFlag, paused, abruptTerminate },
+				readyEntities, sweptEntities };
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(state);
+			out.close();
+			return new SimulationSnapshot(bytes.toByteArray(), clock);
+		} catch (IOException e) {
+			throw new IllegalStateException("The simulation state cannot be serialized: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Replaces the current simulation state with an independent copy of the state stored in a
+	 * snapshot. A snapshot can be restored any number of times; every restore yields a fresh copy
+	 * that can be continued with {@link #startSimulation()}.
+	 * 
+	 * @param snapshot the snapshot to restore
+	 * @return the restored copy of the attachment handed to {@link #createSnapshot(Serializable)}
+	 */
+	@SuppressWarnings("unchecked")
+	public static Serializable restoreSnapshot(SimulationSnapshot snapshot) {
+		Object[] state;
+		try {
+			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(snapshot.getImage()));
+			state = (Object[]) in.readObject();
+			in.close();
+		} catch (IOException | ClassNotFoundException e) {
+			throw new IllegalStateException("The simulation snapshot cannot be restored: " + e.getMessage(), e);
+		}
+
+		entities = (List<SimEntity>) state[0];
+		entitiesByName = (Map<String, SimEntity>) state[1];
+		future = (FutureQueue) state[2];
+		deferred = (DeferredQueue) state[3];
+		waitPredicates = (Map<Integer, Predicate>) state[4];
+		calendar = (Calendar) state[5];
+		cis = (CloudInformationService) state[6];
+
+		double[] doubles = (double[]) state[8];
+		clock = doubles[0];
+		terminateAt = doubles[1];
+		minTimeBetweenEvents = doubles[2];
+
+		long[] longs = (long[]) state[9];
+		cisId = (int) longs[0];
+		shutdownId = (int) longs[1];
+		pauseAt = longs[2];
+
+		boolean[] flags = (boolean[]) state[10];
+		running = flags[0];
+		traceFlag = flags[1];
+		paused = flags[2];
+		abruptTerminate = flags[3];
+
+		readyEntities = (BitSet) state[11];
+		sweptEntities = (BitSet) state[12];
+
+		return (Serializable) state[7];
+	}
+
 	/**
 	 * Internal method that allows the entities to terminate. This method should <b>not</b> be used
 	 * in user simulations.
@@ -942,6 +1561,8 @@ public class CloudSim {
 		running = false;
 
 		waitPredicates = null;
+		readyEntities = null;
+		sweptEntities = null;
 		paused = false;
 		pauseAt = -1;
 		abruptTerminate = false;
@@ -954,6 +1575,46 @@ public class CloudSim {
 		abruptTerminate = true;
 	}
 
+	/**
+	 * The log output of a parallel run. Output written within a window is handed to the logical
+	 * process that wrote it, which holds it back until the end of the window.
+	 */
+	private static class WindowOutput extends OutputStream {
+
+		/** The output the log is written to. */
+		private final OutputStream target;
+
+		/**
+		 * Creates the log output of a parallel run.
+		 * 
+		 * @param target the output the log is written to
+		 */
+		public WindowOutput(OutputStream target) {
+			this.target = target;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			LogicalProcess process = inWindow ? LogicalProcess.current() : null;
+			if (process != null) {
+				process.log(b, off, len);
+			} else {
+				target.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			target.flush();
+		}
+
+	}
+
 	/**
 	 * Prints a message about the progress of the simulation.
 	 * 
@@ -8,27 +8,31 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
 
 /**
- * This class implements the deferred event queue used by {@link Simulation}. The event queue uses a
- * linked list to store the events.
+ * This class implements the deferred event queue used by {@link Simulation}. Deferred events are
+ * only ever looked up by their destination, so the queue keeps a separate FIFO buffer (an
+ * {@link ArrayDeque}) for every destination entity. Each buffer preserves the temporal order of
+ * the events addressed to its entity.
  * 
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
  * @see SimEvent
  */
-public class DeferredQueue {
+public class DeferredQueue implements Serializable {
 
-	/** The list. */
-	private final List<SimEvent> list = new LinkedList<SimEvent>();
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
-	/** The max time. */
-	private double maxTime = -1;
+	/** The event buffers, indexed by the id of the destination entity. */
+	private final List<ArrayDeque<SimEvent>> queues = new ArrayList<ArrayDeque<SimEvent>>();
 
 	/**
 	 * Adds a new event to the queue. Adding a new event to the queue preserves the temporal order
@@ -37,36 +41,99 @@ public class DeferredQueue {
 	 * @param newEvent The event to be added to the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
+		ArrayDeque<SimEvent> queue = getQueue(newEvent.getDestination());
+
 		// The event has to be inserted as the last of all events
 		// with the same event_time(). Yes, this matters.
 		double eventTime = newEvent.eventTime();
-		if (eventTime >= maxTime) {
-			list.add(newEvent);
-			maxTime = eventTime;
+		SimEvent last = queue.peekLast();
+		if (last == null || eventTime >= last.eventTime()) {
+			queue.addLast(newEvent);
 			return;
 		}
 
-		ListIterator<SimEvent> iterator = list.listIterator();
-		SimEvent event;
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if (event.eventTime() > eventTime) {
-				iterator.previous();
-				iterator.add(newEvent);
-				return;
-			}
+		// events are deferred while they are processed, so this only happens for events that are
+		// deferred out of order
+		ArrayDeque<SimEvent> later = new ArrayDeque<SimEvent>();
+		while (!queue.isEmpty() && queue.peekLast().eventTime() > eventTime) {
+			later.addFirst(queue.pollLast());
 		}
-
-		list.add(newEvent);
+		queue.addLast(newEvent);
+		queue.addAll(later);
 	}
 
 	/**
-	 * Returns an iterator to the events in the queue.
+	 * Returns an iterator to the events in the queue. The events are grouped by their destination,
+	 * the events of each destination are in temporal order.
 	 * 
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return list.iterator();
+		List<SimEvent> events = new ArrayList<SimEvent>(size());
+		for (ArrayDeque<SimEvent> queue : queues) {
+			if (queue != null) {
+				events.addAll(queue);
+			}
+		}
+		return Collections.unmodifiableList(events).iterator();
+	}
+
+	/**
+	 * Returns an iterator to the events addressed to an entity, in temporal order. The iterator
+	 * supports removing events.
+	 * 
+	 * @param destination the id of the destination entity
+	 * @return the iterator
+	 */
+	public Iterator<SimEvent> iterator(int destination) {
+		if (destination >= queues.size() || queues.get(destination) == null) {
+			return Collections.<SimEvent> emptyList().iterator();
+		}
+
+		final Iterator<SimEvent> iterator = queues.get(destination).iterator();
+		return new Iterator<SimEvent>() {
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public SimEvent next() {
+				return iterator.next();
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+			}
+		};
+	}
+
+	/**
+	 * Returns the first event addressed to an entity without removing it.
+	 * 
+	 * @param destination the id of the destination entity
+	 * @return the event, or <tt>null</tt> if there is none
+	 */
+	public SimEvent peekFirst(int destination) {
+		if (destination >= queues.size() || queues.get(destination) == null) {
+			return null;
+		}
+		return queues.get(destination).peekFirst();
+	}
+
+	/**
+	 * Removes and returns the first event addressed to an entity.
+	 * 
+	 * @param destination the id of the destination entity
+	 * @return the event, or <tt>null</tt> if there is none
+	 */
+	public SimEvent pollFirst(int destination) {
+		if (destination >= queues.size() || queues.get(destination) == null) {
+			return null;
+		}
+		return queues.get(destination).pollFirst();
 	}
 
 	/**
@@ -75,14 +142,63 @@ public class DeferredQueue {
 	 * @return the number of events in the queue.
 	 */
 	public int size() {
-		return list.size();
+		int size = 0;
+		for (ArrayDeque<SimEvent> queue : queues) {
+			if (queue != null) {
+				size += queue.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the number of events addressed to an entity.
+	 * 
+	 * @param destination the id of the destination entity
+	 * @return the number of events
+	 */
+	public int size(int destination) {
+		if (destination >= queues.size() || queues.get(destination) == null) {
+			return 0;
+		}
+		return queues.get(destination).size();
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		list.clear();
+		queues.clear();
+	}
+
+	/**
+	 * Creates the buffers of all destinations up to a given id. Afterwards, the events of different
+	 * destinations below that id can be queued and taken from different threads.
+	 * 
+	 * @param destinations the number of destinations
+	 */
+	public void reserve(int destinations) {
+		for (int destination = 0; destination < destinations; destination++) {
+			getQueue(destination);
+		}
+	}
+
+	/**
+	 * Gets the buffer of an entity, creates it if necessary.
+	 * 
+	 * @param destination the id of the destination entity
+	 * @return the buffer
+	 */
+	private ArrayDeque<SimEvent> getQueue(int destination) {
+		while (queues.size() <= destination) {
+			queues.add(null);
+		}
+		ArrayDeque<SimEvent> queue = queues.get(destination);
+		if (queue == null) {
+			queue = new ArrayDeque<SimEvent>();
+			queues.set(destination, queue);
+		}
+		return queue;
 	}
 
-}
\ No newline at end of file
+}
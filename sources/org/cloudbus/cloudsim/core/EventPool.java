@@ -0,0 +1,182 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayDeque;
+
+/**
+ * This class hands out the {@link SimEvent}s used by {@link CloudSim}. If pooling is enabled,
+ * events that have been processed are recycled and handed out again instead of allocating new
+ * ones. Events are recycled by the kernel once their destination entity returned from
+ * {@link SimEntity#processEvent(SimEvent)}, so entities that keep a reference to an event after
+ * that have to call {@link SimEvent#retain()}.
+ * <p>
+ * Independently of pooling, the pool counts allocated, reused, recycled and retained events, which
+ * allows to check the allocation behaviour of a simulation.
+ *
+ * @see CloudSim#setEventPooling(boolean)
+ * @see CloudSim#getEventPool()
+ */
+public class EventPool {
+
+	/** The maximum number of free events kept in the pool. */
+	private static final int MAX_FREE_EVENTS = 1 << 16;
+
+	/** The free events. */
+	private final ArrayDeque<SimEvent> freeEvents = new ArrayDeque<SimEvent>();
+
+	/** Whether processed events are recycled. */
+	private boolean enabled = false;
+
+	/** The number of events that have been allocated. */
+	private long allocated = 0;
+
+	/** The number of events that have been taken from the pool. */
+	private long reused = 0;
+
+	/** The number of events that have been returned to the pool. */
+	private long recycled = 0;
+
+	/** The number of processed events that were not recycled because user code retained them. */
+	private long retained = 0;
+
+	/**
+	 * Gets an initialized event, either from the pool or a new one.
+	 *
+	 * @param evtype the internal event type
+	 * @param time the time of the event
+	 * @param src the id of the source entity
+	 * @param dest the id of the destination entity
+	 * @param tag the user defined tag
+	 * @param edata the data the event is carrying
+	 * @return the event
+	 */
+	SimEvent acquire(int evtype, double time, int src, int dest, int tag, Object edata) {
+		SimEvent event = freeEvents.pollFirst();
+		if (event == null) {
+			allocated++;
+			return new SimEvent(evtype, time, src, dest, tag, edata);
+		}
+		reused++;
+		event.init(evtype, time, src, dest, tag, edata);
+		return event;
+	}
+
+	/**
+	 * Returns a processed event to the pool. Retained events and events returned while pooling is
+	 * disabled are left to the garbage collector.
+	 *
+	 * @param event the event
+	 */
+	void release(SimEvent event) {
+		if (!enabled) {
+			return;
+		}
+		if (event.isRetained()) {
+			retained++;
+			return;
+		}
+		if (freeEvents.size() < MAX_FREE_EVENTS) {
+			event.init(SimEvent.ENULL, -1, -1, -1, -1, null);
+			freeEvents.addFirst(event);
+			recycled++;
+		}
+	}
+
+	/**
+	 * Enables or disables recycling of processed events. Disabling drops all free events.
+	 *
+	 * @param enabled whether processed events are recycled
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		if (!enabled) {
+			freeEvents.clear();
+		}
+	}
+
+	/**
+	 * Checks if processed events are recycled.
+	 *
+	 * @return true, if pooling is enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Gets the number of events that have been allocated.
+	 *
+	 * @return the number of allocated events
+	 */
+	public long getAllocated() {
+		return allocated;
+	}
+
+	/**
+	 * Gets the number of events that have been taken from the pool instead of being allocated.
+	 *
+	 * @return the number of reused events
+	 */
+	public long getReused() {
+		return reused;
+	}
+
+	/**
+	 * Gets the number of events that have been returned to the pool.
+	 *
+	 * @return the number of recycled events
+	 */
+	public long getRecycled() {
+		return recycled;
+	}
+
+	/**
+	 * Gets the number of processed events that were not recycled because they were retained.
+	 *
+	 * @return the number of retained events
+	 */
+	public long getRetained() {
+		return retained;
+	}
+
+	/**
+	 * Gets the number of free events currently held by the pool.
+	 *
+	 * @return the number of free events
+	 */
+	public int getFreeEvents() {
+		return freeEvents.size();
+	}
+
+	/**
+	 * Adds the counters of another pool to the counters of this pool and resets them in the other
+	 * pool.
+	 *
+	 * @param other the other pool
+	 */
+	void addCounters(EventPool other) {
+		allocated += other.allocated;
+		reused += other.reused;
+		recycled += other.recycled;
+		retained += other.retained;
+		other.resetCounters();
+	}
+
+	/**
+	 * Resets all counters.
+	 */
+	public void resetCounters() {
+		allocated = 0;
+		reused = 0;
+		recycled = 0;
+		retained = 0;
+	}
+
+}
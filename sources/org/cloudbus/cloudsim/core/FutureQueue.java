@@ -8,25 +8,37 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
 /**
  * This class implements the future event queue used by {@link Simulation}. The event queue uses a
- * {@link TreeSet} in order to store the events.
+ * {@link TreeSet} in order to store the events. Once events are looked up by their source (see
+ * {@link #iterator(int)}), the queue additionally indexes the events by source, so that cancelling
+ * the events of an entity does not have to scan the whole queue.
  * 
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
  * @see java.util.TreeSet
  */
-public class FutureQueue {
+public class FutureQueue implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
 	/** The sorted set. */
 	private final SortedSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
 
+	/** The events of every source entity, <tt>null</tt> until the first lookup by source. */
+	private Map<Integer, SortedSet<SimEvent>> bySource = null;
+
 	/** The serial. */
 	private long serial = 0;
 
@@ -39,6 +51,7 @@ public class FutureQueue {
 	public void addEvent(SimEvent newEvent) {
 		newEvent.setSerial(serial++);
 		sortedSet.add(newEvent);
+		addToIndex(newEvent);
 	}
 
 	/**
@@ -49,6 +62,7 @@ public class FutureQueue {
 	public void addEventFirst(SimEvent newEvent) {
 		newEvent.setSerial(0);
 		sortedSet.add(newEvent);
+		addToIndex(newEvent);
 	}
 
 	/**
@@ -57,7 +71,64 @@ public class FutureQueue {
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return sortedSet.iterator();
+		if (bySource == null) {
+			return sortedSet.iterator();
+		}
+		return new IndexedIterator(sortedSet.iterator());
+	}
+
+	/**
+	 * Returns an iterator to the events sent by an entity, in temporal order. The iterator supports
+	 * removing events.
+	 * 
+	 * @param source the id of the source entity
+	 * @return the iterator
+	 */
+	public Iterator<SimEvent> iterator(int source) {
+		if (bySource == null) {
+			bySource = new HashMap<Integer, SortedSet<SimEvent>>();
+			for (SimEvent event : sortedSet) {
+				addToIndex(event);
+			}
+		}
+
+		SortedSet<SimEvent> events = bySource.get(source);
+		if (events == null) {
+			return Collections.<SimEvent> emptyList().iterator();
+		}
+
+		final Iterator<SimEvent> iterator = events.iterator();
+		return new Iterator<SimEvent>() {
+
+			private SimEvent current;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public SimEvent next() {
+				current = iterator.next();
+				return current;
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				sortedSet.remove(current);
+			}
+		};
+	}
+
+	/**
+	 * Gets the serial number the next added event gets, it is larger than the serial numbers of all
+	 * events added so far.
+	 * 
+	 * @return the next serial number
+	 */
+	long getSerial() {
+		return serial;
 	}
 
 	/**
@@ -76,6 +147,7 @@ public class FutureQueue {
 	 * @return true, if successful
 	 */
 	public boolean remove(SimEvent event) {
+		removeFromIndex(event);
 		return sortedSet.remove(event);
 	}
 
@@ -86,6 +158,11 @@ public class FutureQueue {
 	 * @return true, if successful
 	 */
 	public boolean removeAll(Collection<SimEvent> events) {
+		if (bySource != null) {
+			for (SimEvent event : events) {
+				removeFromIndex(event);
+			}
+		}
 		return sortedSet.removeAll(events);
 	}
 
@@ -94,6 +171,74 @@ public class FutureQueue {
 	 */
 	public void clear() {
 		sortedSet.clear();
+		if (bySource != null) {
+			bySource.clear();
+		}
+	}
+
+	/**
+	 * Adds an event to the source index, if the index is in use.
+	 * 
+	 * @param event the event
+	 */
+	private void addToIndex(SimEvent event) {
+		if (bySource == null) {
+			return;
+		}
+		SortedSet<SimEvent> events = bySource.get(event.getSource());
+		if (events == null) {
+			events = new TreeSet<SimEvent>();
+			bySource.put(event.getSource(), events);
+		}
+		events.add(event);
+	}
+
+	/**
+	 * Removes an event from the source index, if the index is in use.
+	 * 
+	 * @param event the event
+	 */
+	private void removeFromIndex(SimEvent event) {
+		if (bySource == null) {
+			return;
+		}
+		SortedSet<SimEvent> events = bySource.get(event.getSource());
+		if (events != null) {
+			events.remove(event);
+		}
+	}
+
+	/**
+	 * Iterator over the whole queue that keeps the source index up to date on removals.
+	 */
+	private class IndexedIterator implements Iterator<SimEvent> {
+
+		/** The iterator of the sorted set. */
+		private final Iterator<SimEvent> iterator;
+
+		/** The last returned event. */
+		private SimEvent current;
+
+		public IndexedIterator(Iterator<SimEvent> iterator) {
+			this.iterator = iterator;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return iterator.hasNext();
+		}
+
+		@Override
+		public SimEvent next() {
+			current = iterator.next();
+			return current;
+		}
+
+		@Override
+		public void remove() {
+			iterator.remove();
+			removeFromIndex(current);
+		}
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,496 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * A logical process of the parallel simulation mode, i.e. a group of entities that processes its
+ * events of a window on its own thread (see {@link CloudSim#setParallelism(int)}). Within a window
+ * the process behaves like the sequential kernel restricted to its entities: it sweeps its ready
+ * entities in the order of their ids and then delivers its next events of the same time.
+ * <p>
+ * Events the entities send to their own process within the window are queued locally. All other
+ * events are held back and handed to the kernel at the end of the window, together with the log
+ * output of the process. Both are keyed by the sweep (time and round within the time) and the
+ * entity that produced them, so the kernel can merge the processes in exactly the order of the
+ * sequential kernel, which keeps the results of both modes identical.
+ *
+ * @see CloudSim#setParallelism(int)
+ * @see CloudSim#setLookahead(double)
+ */
+class LogicalProcess {
+
+	/** The logical process run by the current thread, null outside of windows. */
+	private static final ThreadLocal<LogicalProcess> CURRENT = new ThreadLocal<LogicalProcess>();
+
+	/** The index of this process. */
+	private final int index;
+
+	/** The index of the process of every entity id. */
+	private final int[] processOf;
+
+	/** The ids of the entities of this process. */
+	private final BitSet members = new BitSet();
+
+	/** The ids of the entities that may have work in the next entity sweep. */
+	private final BitSet ready = new BitSet();
+
+	/** The events of this process that are due within the window. */
+	private final TreeSet<SimEvent> queue = new TreeSet<SimEvent>();
+
+	/** The events sent within the window that are due after it or belong to other processes. */
+	private final List<Output> held = new ArrayList<Output>();
+
+	/** The log output written within the window. */
+	private final List<Output> log = new ArrayList<Output>();
+
+	/**
+	 * Copies of the events sent by the entities of this process that are queued by other
+	 * processes within the window, they must not be cancelled.
+	 */
+	private final List<SimEvent> lent = new ArrayList<SimEvent>();
+
+	/** The pool the events sent within windows are taken from. */
+	private final EventPool pool = new EventPool();
+
+	/** The local simulation clock. */
+	private double clock;
+
+	/** The number of deliveries at the current time before the current sweep. */
+	private int round;
+
+	/** The id of the entity that is run, -1 between entity runs. */
+	private int current = -1;
+
+	/** The end of the window, exclusive. */
+	private double windowEnd;
+
+	/** The minimum delay of events to other processes. */
+	private double lookahead;
+
+	/** The serial number of the next locally queued event. */
+	private long serial;
+
+	/** The position of the next held back event or log output. */
+	private long order;
+
+	/** Whether events have been delivered in the window. */
+	private boolean delivered;
+
+	/** The number of events delivered since the last window was closed. */
+	private long processedEvents;
+
+	/**
+	 * Creates a logical process.
+	 *
+	 * @param index the index of the process
+	 * @param processOf the index of the process of every entity id
+	 * @param pooling whether processed events are recycled
+	 */
+	LogicalProcess(int index, int[] processOf, boolean pooling) {
+		this.index = index;
+		this.processOf = processOf;
+		pool.setEnabled(pooling);
+		for (int id = 0; id < processOf.length; id++) {
+			if (processOf[id] == index) {
+				members.set(id);
+			}
+		}
+	}
+
+	/**
+	 * Gets the logical process run by the current thread.
+	 *
+	 * @return the process, null if the current thread does not run a process
+	 */
+	static LogicalProcess current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Gets the local simulation clock.
+	 *
+	 * @return the clock
+	 */
+	double clock() {
+		return clock;
+	}
+
+	/**
+	 * Gets the index of the process an event is delivered by.
+	 *
+	 * @param e the event
+	 * @param processOf the index of the process of every entity id
+	 * @return the index of the process
+	 */
+	static int processOf(SimEvent e, int[] processOf) {
+		int entity = e.getType() == SimEvent.SEND ? e.getDestination() : e.getSource();
+		return entity >= 0 && entity < processOf.length ? processOf[entity] : 0;
+	}
+
+	/**
+	 * Prepares the process for a window.
+	 *
+	 * @param clock the clock of the kernel
+	 * @param windowEnd the end of the window, exclusive
+	 * @param lookahead the minimum delay of events to other processes
+	 * @param serial the serial number of the next event of the kernel
+	 * @param readyEntities the ids of the entities that may have work in the next entity sweep
+	 */
+	void openWindow(double clock, double windowEnd, double lookahead, long serial, BitSet readyEntities) {
+		this.clock = clock;
+		this.windowEnd = windowEnd;
+		this.lookahead = lookahead;
+		this.serial = serial;
+		round = 0;
+		order = 0;
+		delivered = false;
+		ready.clear();
+		ready.or(readyEntities);
+		ready.and(members);
+	}
+
+	/**
+	 * Queues an event of the kernel that is due within the window.
+	 *
+	 * @param e the event
+	 */
+	void enqueue(SimEvent e) {
+		queue.add(e);
+	}
+
+	/**
+	 * Remembers an event sent by an entity of this process that another process delivers within
+	 * the window.
+	 *
+	 * @param e the event
+	 */
+	void lend(SimEvent e) {
+		lent.add((SimEvent) e.clone());
+	}
+
+	/**
+	 * Checks if the process has work in the window.
+	 *
+	 * @return true, if there are events or ready entities
+	 */
+	boolean hasWork() {
+		return !queue.isEmpty() || !ready.isEmpty();
+	}
+
+	/**
+	 * Runs the window: sweeps the ready entities and delivers the events due within the window
+	 * until there are none left.
+	 */
+	void run() {
+		CURRENT.set(this);
+		try {
+			sweep();
+			while (!queue.isEmpty() && queue.first().eventTime() < windowEnd) {
+				double time = queue.first().eventTime();
+				round = time > clock ? 0 : round + 1;
+				clock = time;
+				delivered = true;
+				while (!queue.isEmpty() && queue.first().eventTime() == time) {
+					SimEvent e = queue.pollFirst();
+					processedEvents++;
+					CloudSim.deliverEvent(e, ready);
+					// sent events are recycled once their destination processed them
+					if (e.getType() != SimEvent.SEND) {
+						pool.release(e);
+					}
+				}
+				sweep();
+			}
+		} finally {
+			CURRENT.remove();
+		}
+	}
+
+	/**
+	 * Runs the ready entities in the order of their ids.
+	 */
+	private void sweep() {
+		for (int i = ready.nextSetBit(0); i >= 0; i = ready.nextSetBit(i + 1)) {
+			SimEntity ent = CloudSim.getEntity(i);
+			current = i;
+			if (ent.getState() == SimEntity.RUNNABLE) {
+				ent.run();
+			}
+			if (ent.getEventBuffer() == null && CloudSim.waiting(i, CloudSim.SIM_ANY) == 0) {
+				ready.clear(i);
+			}
+		}
+		current = -1;
+	}
+
+	/**
+	 * Sends an event from an entity of this process.
+	 *
+	 * @param type the internal event type
+	 * @param delay the delay
+	 * @param src the id of the source entity
+	 * @param dest the id of the destination entity
+	 * @param tag the user defined tag
+	 * @param data the data
+	 * @param first whether the event is sent with priority
+	 */
+	void send(int type, double delay, int src, int dest, int tag, Object data, boolean first) {
+		SimEvent e = pool.acquire(type, clock + delay, src, dest, tag, data);
+		boolean local = processOf(e, processOf) == index;
+		if (!local && delay < lookahead) {
+			throw new IllegalStateException("Entity #" + src + " sent an event to entity #" + dest
+					+ " of another logical process with a delay of " + delay + ", below the lookahead of "
+					+ lookahead + ".");
+		}
+
+		if (local && e.eventTime() < windowEnd) {
+			e.setSerial(first ? 0 : serial++);
+			queue.add(e);
+		} else {
+			held.add(new Output(clock, round, current, order++, e, first));
+		}
+	}
+
+	/**
+	 * Takes the first event sent by an entity that matches a predicate out of the queues.
+	 *
+	 * @param src the id of the source entity
+	 * @param p the predicate
+	 * @param future the future queue of the kernel
+	 * @return the event, or <tt>null</tt> if no event matches
+	 */
+	SimEvent cancel(int src, Predicate p, FutureQueue future) {
+		checkLent(src, p);
+		Iterator<SimEvent> iter = queue.iterator();
+		while (iter.hasNext()) {
+			SimEvent ev = iter.next();
+			if (ev.getSource() == src && p.match(ev)) {
+				iter.remove();
+				return ev;
+			}
+		}
+
+		// the remaining events are due after the window, either in the kernel queue or held back
+		Output firstHeld = null;
+		for (Output output : held) {
+			if (output.event.getSource() == src && p.match(output.event)
+					&& (firstHeld == null || output.isDueBefore(firstHeld))) {
+				firstHeld = output;
+			}
+		}
+		synchronized (future) {
+			iter = future.iterator(src);
+			while (iter.hasNext()) {
+				SimEvent ev = iter.next();
+				if (p.match(ev)) {
+					// held back events are queued after all events of the kernel with the same time
+					if (firstHeld == null || ev.eventTime() < firstHeld.event.eventTime()
+							|| ev.eventTime() == firstHeld.event.eventTime()
+							&& (!firstHeld.first || ev.getSerial() == 0)) {
+						iter.remove();
+						return ev;
+					}
+					break;
+				}
+			}
+		}
+		if (firstHeld != null) {
+			held.remove(firstHeld);
+			return firstHeld.event;
+		}
+		return null;
+	}
+
+	/**
+	 * Takes all events sent by an entity that match a predicate out of the queues.
+	 *
+	 * @param src the id of the source entity
+	 * @param p the predicate
+	 * @param future the future queue of the kernel
+	 * @return true, if at least one event has been cancelled
+	 */
+	boolean cancelAll(int src, Predicate p, FutureQueue future) {
+		checkLent(src, p);
+		boolean cancelled = false;
+		Iterator<SimEvent> iter = queue.iterator();
+		while (iter.hasNext()) {
+			SimEvent ev = iter.next();
+			if (ev.getSource() == src && p.match(ev)) {
+				iter.remove();
+				cancelled = true;
+			}
+		}
+		Iterator<Output> heldIter = held.iterator();
+		while (heldIter.hasNext()) {
+			SimEvent ev = heldIter.next().event;
+			if (ev.getSource() == src && p.match(ev)) {
+				heldIter.remove();
+				cancelled = true;
+			}
+		}
+		synchronized (future) {
+			iter = future.iterator(src);
+			while (iter.hasNext()) {
+				if (p.match(iter.next())) {
+					iter.remove();
+					cancelled = true;
+				}
+			}
+		}
+		return cancelled;
+	}
+
+	/**
+	 * Checks that an entity does not cancel an event another process delivers within the window,
+	 * that process may already have delivered it. Events the sequential kernel would have
+	 * delivered by now can't be cancelled anyway.
+	 *
+	 * @param src the id of the source entity
+	 * @param p the predicate
+	 */
+	private void checkLent(int src, Predicate p) {
+		for (SimEvent ev : lent) {
+			boolean pending = ev.eventTime() > clock || ev.eventTime() == clock && !delivered;
+			if (pending && ev.getSource() == src && p.match(ev)) {
+				throw new IllegalStateException("Entity #" + src + " cancelled an event to entity #"
+						+ ev.getDestination() + " of another logical process within the lookahead.");
+			}
+		}
+	}
+
+	/**
+	 * Returns a processed event to the pool of this process.
+	 *
+	 * @param e the event
+	 */
+	void recycle(SimEvent e) {
+		pool.release(e);
+	}
+
+	/**
+	 * Buffers log output written within the window.
+	 *
+	 * @param b the bytes
+	 * @param off the offset of the output in the bytes
+	 * @param len the length of the output
+	 */
+	void log(byte[] b, int off, int len) {
+		Output last = log.isEmpty() ? null : log.get(log.size() - 1);
+		if (last == null || last.clock != clock || last.round != round || last.entity != current) {
+			last = new Output(clock, round, current, order++, null, false);
+			log.add(last);
+		}
+		last.bytes.write(b, off, len);
+	}
+
+	/**
+	 * Ends the window: moves the held back events and the log output to the given lists and the
+	 * ready entities to the kernel.
+	 *
+	 * @param events the list of held back events of all processes
+	 * @param logs the list of log output of all processes
+	 * @param readyEntities the ids of the entities that may have work in the next entity sweep
+	 * @param eventPool the pool of the kernel, it takes over the allocation counters
+	 * @return the number of events delivered within the window
+	 */
+	long closeWindow(List<Output> events, List<Output> logs, BitSet readyEntities, EventPool eventPool) {
+		events.addAll(held);
+		held.clear();
+		logs.addAll(log);
+		log.clear();
+		lent.clear();
+		readyEntities.andNot(members);
+		readyEntities.or(ready);
+		eventPool.addCounters(pool);
+
+		long processed = processedEvents;
+		processedEvents = 0;
+		return processed;
+	}
+
+	/**
+	 * An event or a piece of log output produced within a window, ordered as the sequential kernel
+	 * would have produced it: by the sweep, the entity and the order within the process.
+	 */
+	static class Output implements Comparable<Output> {
+
+		/** The time of the sweep. */
+		final double clock;
+
+		/** The round of the sweep within its time. */
+		final int round;
+
+		/** The id of the entity, -1 if produced outside of entity runs. */
+		final int entity;
+
+		/** The order within the process. */
+		final long order;
+
+		/** The event, null for log output. */
+		final SimEvent event;
+
+		/** Whether the event is sent with priority. */
+		final boolean first;
+
+		/** The log output, null for events. */
+		final ByteArrayOutputStream bytes;
+
+		Output(double clock, int round, int entity, long order, SimEvent event, boolean first) {
+			this.clock = clock;
+			this.round = round;
+			this.entity = entity;
+			this.order = order;
+			this.event = event;
+			this.first = first;
+			bytes = event == null ? new ByteArrayOutputStream() : null;
+		}
+
+		/**
+		 * Checks if the event of this output is delivered before the event of another output of
+		 * the same process.
+		 *
+		 * @param other the other output
+		 * @return true, if this event is delivered first
+		 */
+		boolean isDueBefore(Output other) {
+			if (event.eventTime() != other.event.eventTime()) {
+				return event.eventTime() < other.event.eventTime();
+			}
+			if (first != other.first) {
+				return first;
+			}
+			return order < other.order;
+		}
+
+		@Override
+		public int compareTo(Output other) {
+			if (clock != other.clock) {
+				return clock < other.clock ? -1 : 1;
+			}
+			if (round != other.round) {
+				return round < other.round ? -1 : 1;
+			}
+			if (entity != other.entity) {
+				return entity < other.entity ? -1 : 1;
+			}
+			return order < other.order ? -1 : order > other.order ? 1 : 0;
+		}
+
+	}
+
+}
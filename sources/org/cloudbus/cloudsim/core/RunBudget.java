@@ -0,0 +1,119 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Cutoffs that end a simulation early, e.g. for a search over configurations that prunes runs which
+ * are already worse than the best known result. A cutoff is a named value that is observed between
+ * two clock ticks of {@link CloudSim#run()}; as soon as a value exceeds its limit, the simulation is
+ * terminated with {@link CloudSim#terminateSimulation()} and the entities are shut down as at the
+ * regular end of a simulation, so the state of the run up to that point can still be evaluated.
+ * <p>
+ * The values are read after every clock tick and should be cheap to compute.
+ *
+ * @see CloudSim#setRunBudget(RunBudget)
+ */
+public class RunBudget {
+
+	private final List<String> names = new ArrayList<String>();
+	private final List<DoubleSupplier> values = new ArrayList<DoubleSupplier>();
+	private final List<Double> limits = new ArrayList<Double>();
+
+	/** The index of the exceeded cutoff, -1 if none was exceeded. */
+	private int exceeded = -1;
+
+	/** The value of the exceeded cutoff when it was detected. */
+	private double exceededValue;
+
+	/**
+	 * Adds a cutoff.
+	 *
+	 * @param name the name of the cutoff, reported by {@link #getExceeded()}
+	 * @param value the observed value
+	 * @param limit the largest value that does not end the simulation
+	 */
+	public void addCutoff(String name, DoubleSupplier value, double limit) {
+		names.add(name);
+		values.add(value);
+		limits.add(limit);
+	}
+
+	/**
+	 * Adds a cutoff on the simulation clock.
+	 *
+	 * @param limit the last simulated time that does not end the simulation
+	 */
+	public void addSimulatedTimeCutoff(double limit) {
+		addCutoff("simulatedTime", CloudSim::clock, limit);
+	}
+
+	/**
+	 * Adds a cutoff on the wall-clock time from now on.
+	 *
+	 * @param seconds the wall-clock seconds the simulation may take
+	 */
+	public void addWallTimeCutoff(double seconds) {
+		final long start = System.nanoTime();
+		addCutoff("wallTime", () -> (System.nanoTime() - start) / 1e9, seconds);
+	}
+
+	/**
+	 * Checks all cutoffs. Once a cutoff is exceeded, it stays exceeded.
+	 *
+	 * @return true if a cutoff is exceeded
+	 */
+	public boolean check() {
+		if (exceeded >= 0) {
+			return true;
+		}
+		for (int i = 0; i < values.size(); i++) {
+			double value = values.get(i).getAsDouble();
+			if (value > limits.get(i)) {
+				exceeded = i;
+				exceededValue = value;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether a cutoff has been exceeded.
+	 *
+	 * @return true if the simulation was ended by a cutoff
+	 */
+	public boolean isExceeded() {
+		return exceeded >= 0;
+	}
+
+	/**
+	 * Gets the name of the exceeded cutoff.
+	 *
+	 * @return the name, null if no cutoff was exceeded
+	 */
+	public String getExceeded() {
+		return exceeded >= 0 ? names.get(exceeded) : null;
+	}
+
+	/**
+	 * Describes the exceeded cutoff with its value and limit.
+	 *
+	 * @return the description, null if no cutoff was exceeded
+	 */
+	public String describeExceeded() {
+		if (exceeded < 0) {
+			return null;
+		}
+		return names.get(exceeded) + " = " + exceededValue + " > " + limits.get(exceeded);
+	}
+}
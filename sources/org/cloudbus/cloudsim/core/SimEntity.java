@@ -8,8 +8,11 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.NetworkTopology;
+import org.cloudbus.cloudsim.core.metrics.Metrics;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
 
 /**
@@ -28,7 +31,10 @@ import org.cloudbus.cloudsim.core.predicates.Predicate;
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  */
-public abstract class SimEntity implements Cloneable {
+public abstract class SimEntity implements Cloneable, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
 	/** The name. */
 	private String name;
@@ -42,6 +48,9 @@ public abstract class SimEntity implements Cloneable {
 	/** The entity's current state. */
 	private int state;
 
+	/** The logical process the entity belongs to in the parallel simulation mode. */
+	private int logicalProcess = 0;
+
 	/**
 	 * Creates a new entity.
 	 * 
@@ -75,6 +84,29 @@ public abstract class SimEntity implements Cloneable {
 		return id;
 	}
 
+	/**
+	 * Gets the logical process this entity belongs to.
+	 * 
+	 * @return the id of the logical process
+	 * @see CloudSim#setParallelism(int)
+	 */
+	public int getLogicalProcess() {
+		return logicalProcess;
+	}
+
+	/**
+	 * Assigns this entity to a logical process. If the parallel simulation mode is enabled, the
+	 * entities of different logical processes run on different threads, so they may only interact
+	 * through events sent with at least the lookahead as delay (see
+	 * {@link CloudSim#setLookahead(double)}). All entities belong to process 0 by default.
+	 * 
+	 * @param logicalProcess the id of the logical process
+	 * @see CloudSim#setParallelism(int)
+	 */
+	public void setLogicalProcess(int logicalProcess) {
+		this.logicalProcess = logicalProcess;
+	}
+
 	// The schedule functions
 
 	/**
@@ -403,7 +435,14 @@ public abstract class SimEntity implements Cloneable {
 		SimEvent ev = evbuf != null ? evbuf : getNextEvent();
 
 		while (ev != null) {
-			processEvent(ev);
+			if (Metrics.isEnabled()) {
+				long start = System.nanoTime();
+				processEvent(ev);
+				Metrics.recordEvent(getId(), ev.getTag(), System.nanoTime() - start);
+			} else {
+				processEvent(ev);
+			}
+			CloudSim.recycle(ev);
 			if (state != RUNNABLE) {
 				break;
 			}
@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+
 /**
  * This class represents a simulation event which is passed between the entities in the simulation.
  * 
@@ -15,13 +17,16 @@ package org.cloudbus.cloudsim.core;
  * @see Simulation
  * @see SimEntity
  */
-public class SimEvent implements Cloneable, Comparable<SimEvent> {
+public class SimEvent implements Cloneable, Comparable<SimEvent>, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
 	/** internal event type **/
-	private final int etype;
+	private int etype;
 
 	/** time at which event should occur **/
-	private final double time;
+	private double time;
 
 	/** time that the event was removed from the queue for service **/
 	private double endWaitingTime;
@@ -33,13 +38,16 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	private int entDst;
 
 	/** the user defined type of the event **/
-	private final int tag;
+	private int tag;
 
 	/** any data the event is carrying **/
-	private final Object data;
+	private Object data;
 
 	private long serial = -1;
 
+	/** whether user code keeps a reference to the event, see {@link #retain()} **/
+	private boolean retained = false;
+
 	// Internal event types
 
 	public static final int ENULL = 0;
@@ -82,10 +90,34 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 		data = null;
 	}
 
+	/**
+	 * Re-initializes a recycled event, used by the {@link EventPool}.
+	 */
+	void init(int evtype, double time, int src, int dest, int tag, Object edata) {
+		etype = evtype;
+		this.time = time;
+		endWaitingTime = -1.0;
+		entSrc = src;
+		entDst = dest;
+		this.tag = tag;
+		data = edata;
+		serial = -1;
+		retained = false;
+	}
+
 	protected void setSerial(long serial) {
 		this.serial = serial;
 	}
 
+	/**
+	 * Gets the serial number that orders this event among the events of the same time.
+	 *
+	 * @return the serial number, 0 for events sent with priority
+	 */
+	long getSerial() {
+		return serial;
+	}
+
 	/**
 	 * Used to set the time at which this event finished waiting in the event
 	 * 
@@ -214,6 +246,25 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 		return new SimEvent(etype, time, entSrc, entDst, tag, data);
 	}
 
+	/**
+	 * Marks this event as retained. If event pooling is enabled (see
+	 * {@link CloudSim#setEventPooling(boolean)}), events are recycled after the destination entity
+	 * processed them. An entity that keeps a reference to an event beyond
+	 * {@link SimEntity#processEvent(SimEvent)} has to retain it, so that it is never recycled.
+	 */
+	public void retain() {
+		retained = true;
+	}
+
+	/**
+	 * Checks if this event has been retained by user code.
+	 * 
+	 * @return true, if the event is retained
+	 */
+	public boolean isRetained() {
+		return retained;
+	}
+
 	/**
 	 * Set the source entity of this event.
 	 * 
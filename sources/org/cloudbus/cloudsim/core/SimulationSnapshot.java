@@ -0,0 +1,97 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This class holds a serialized image of the complete simulation state. It is created by
+ * {@link CloudSim#createSnapshot(java.io.Serializable)} and can be restored any number of times by
+ * {@link CloudSim#restoreSnapshot(SimulationSnapshot)}, which allows forking several independent
+ * continuations from a common simulation prefix.
+ * 
+ * @see CloudSim
+ */
+public final class SimulationSnapshot {
+
+	/** The serialized simulation state. */
+	private final byte[] image;
+
+	/** The simulation time at which the snapshot was taken. */
+	private final double time;
+
+	/**
+	 * Creates a new snapshot.
+	 * 
+	 * @param image the serialized simulation state
+	 * @param time the simulation time at which the snapshot was taken
+	 */
+	SimulationSnapshot(byte[] image, double time) {
+		this.image = image;
+		this.time = time;
+	}
+
+	/**
+	 * Gets the serialized simulation state.
+	 * 
+	 * @return the image
+	 */
+	byte[] getImage() {
+		return image;
+	}
+
+	/**
+	 * Gets the simulation time at which the snapshot was taken.
+	 * 
+	 * @return the simulation time
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * Gets the size of the snapshot.
+	 * 
+	 * @return the size in bytes
+	 */
+	public int size() {
+		return image.length;
+	}
+
+	/**
+	 * Writes the snapshot to a stream, e.g. to keep it in a file.
+	 * 
+	 * @param out the stream
+	 * @throws IOException if the stream cannot be written
+	 * @see #read(DataInput)
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeDouble(time);
+		out.writeInt(image.length);
+		out.write(image);
+	}
+
+	/**
+	 * Reads a snapshot that was written by {@link #write(DataOutput)}. It can only be restored by
+	 * the same version of the simulation classes.
+	 * 
+	 * @param in the stream
+	 * @return the snapshot
+	 * @throws IOException if the stream cannot be read
+	 */
+	public static SimulationSnapshot read(DataInput in) throws IOException {
+		double time = in.readDouble();
+		byte[] image = new byte[in.readInt()];
+		in.readFully(image);
+		return new SimulationSnapshot(image, time);
+	}
+
+}
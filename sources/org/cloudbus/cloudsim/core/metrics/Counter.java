@@ -0,0 +1,47 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count, e.g. of moved jobs or transferred bytes.
+ *
+ * @see Metrics#counter(String)
+ */
+public class Counter {
+
+	/** The count. */
+	private final LongAdder value = new LongAdder();
+
+	/**
+	 * Increments the count by one.
+	 */
+	public void increment() {
+		value.increment();
+	}
+
+	/**
+	 * Adds to the count.
+	 *
+	 * @param delta the amount to add
+	 */
+	public void add(long delta) {
+		value.add(delta);
+	}
+
+	/**
+	 * Gets the count.
+	 *
+	 * @return the count
+	 */
+	public long get() {
+		return value.sum();
+	}
+}
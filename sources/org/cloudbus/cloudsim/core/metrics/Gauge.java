@@ -0,0 +1,54 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core.metrics;
+
+/**
+ * A value that goes up and down, e.g. the used space of a storage. The gauge keeps the last value
+ * and the highest value it was set to (the high-water mark).
+ *
+ * @see Metrics#gauge(String)
+ */
+public class Gauge {
+
+	/** The last value. */
+	private double value = 0.0;
+
+	/** The highest value. */
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Sets the value.
+	 *
+	 * @param value the value
+	 */
+	public void set(double value) {
+		this.value = value;
+		if (value > max) {
+			max = value;
+		}
+	}
+
+	/**
+	 * Gets the last value.
+	 *
+	 * @return the value
+	 */
+	public double get() {
+		return value;
+	}
+
+	/**
+	 * Gets the highest value, 0 if the gauge was never set.
+	 *
+	 * @return the high-water mark
+	 */
+	public double getMax() {
+		return max == Double.NEGATIVE_INFINITY ? 0.0 : max;
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core.metrics;
+
+/**
+ * The distribution of recorded values, e.g. of latencies in nanoseconds or of simulated transfer
+ * times in seconds. Besides count, sum, minimum and maximum, the values are counted in buckets of
+ * powers of two, so quantiles are estimated within a factor of two without keeping the values.
+ *
+ * @see Metrics#histogram(String)
+ */
+public class Histogram {
+
+	/** The smallest and the largest binary exponent with an own bucket. */
+	private static final int MIN_EXPONENT = -64;
+	private static final int MAX_EXPONENT = 63;
+
+	/** The number of values in [2^e, 2^(e+1)) at index e - MIN_EXPONENT, values <= 0 are in zeros. */
+	private final long[] buckets = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+
+	/** The number of values <= 0. */
+	private long zeros = 0;
+
+	private long count = 0;
+	private double sum = 0.0;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Records a value.
+	 *
+	 * @param value the value
+	 */
+	public void record(double value) {
+		count++;
+		sum += value;
+		if (value < min) {
+			min = value;
+		}
+		if (value > max) {
+			max = value;
+		}
+		if (value <= 0.0) {
+			zeros++;
+		} else {
+			int exponent = Math.max(MIN_EXPONENT, Math.min(MAX_EXPONENT, Math.getExponent(value)));
+			buckets[exponent - MIN_EXPONENT]++;
+		}
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getSum() {
+		return sum;
+	}
+
+	public double getMin() {
+		return count == 0 ? 0.0 : min;
+	}
+
+	public double getMax() {
+		return count == 0 ? 0.0 : max;
+	}
+
+	public double getMean() {
+		return count == 0 ? 0.0 : sum / count;
+	}
+
+	/**
+	 * Estimates a quantile as the upper bound of the bucket that contains it, capped at the maximum.
+	 *
+	 * @param q the quantile, between 0 and 1
+	 * @return the estimated quantile, 0 if nothing was recorded
+	 */
+	public double getQuantile(double q) {
+		if (count == 0) {
+			return 0.0;
+		}
+		long rank = (long) Math.ceil(q * count);
+		long seen = zeros;
+		if (seen >= rank) {
+			return Math.max(0.0, getMin());
+		}
+		for (int i = 0; i < buckets.length; i++) {
+			seen += buckets[i];
+			if (seen >= rank) {
+				return Math.min(getMax(), Math.scalb(1.0, i + MIN_EXPONENT + 1));
+			}
+		}
+		return getMax();
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core.metrics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts per small integer key, e.g. per event tag or per entity id, in a growing array, so that
+ * counting on the hot path of the simulation kernel needs neither a map lookup nor boxing. Keys
+ * outside of [0, {@value #MAX_ARRAY_KEY}) are counted in a map.
+ */
+public class KeyedCounter {
+
+	/** The largest key (exclusive) that is counted in the array. */
+	private static final int MAX_ARRAY_KEY = 1 << 16;
+
+	/** The counts of the keys in [0, MAX_ARRAY_KEY). */
+	private long[] counts = new long[64];
+
+	/** The counts of the other keys. */
+	private final Map<Integer, Long> otherCounts = new HashMap<Integer, Long>();
+
+	/**
+	 * Adds to the count of a key.
+	 *
+	 * @param key the key
+	 * @param delta the amount to add
+	 */
+	public void add(int key, long delta) {
+		if (key < 0 || key >= MAX_ARRAY_KEY) {
+			Long count = otherCounts.get(key);
+			otherCounts.put(key, (count == null ? 0L : count) + delta);
+			return;
+		}
+		if (key >= counts.length) {
+			counts = Arrays.copyOf(counts, Math.min(MAX_ARRAY_KEY, Math.max(key + 1, counts.length * 2)));
+		}
+		counts[key] += delta;
+	}
+
+	/**
+	 * Gets the count of a key.
+	 *
+	 * @param key the key
+	 * @return the count, 0 if nothing was added for the key
+	 */
+	public long get(int key) {
+		if (key >= 0 && key < counts.length) {
+			return counts[key];
+		}
+		Long count = otherCounts.get(key);
+		return count == null ? 0L : count;
+	}
+
+	/**
+	 * Gets the keys with a count other than 0 and their counts, sorted by key.
+	 *
+	 * @return the counts
+	 */
+	public Map<Integer, Long> getCounts() {
+		Map<Integer, Long> result = new TreeMap<Integer, Long>(otherCounts);
+		for (int key = 0; key < counts.length; key++) {
+			if (counts[key] != 0) {
+				result.put(key, counts[key]);
+			}
+		}
+		return result;
+	}
+}
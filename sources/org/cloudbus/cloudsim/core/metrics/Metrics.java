@@ -0,0 +1,344 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core.metrics;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * The metrics of a simulation run: named counters, gauges and histograms, and the number of events
+ * and the time spent in {@link org.cloudbus.cloudsim.core.SimEntity#processEvent} per event tag and
+ * per entity, which the kernel records itself.
+ * <p>
+ * Metrics are disabled by default. While disabled, the record methods return immediately, so call
+ * sites do not need to check {@link #isEnabled()} unless building the name of a metric is costly.
+ * Phases ({@link #beginPhase(String)}) are emitted as JDK Flight Recorder events independently of
+ * whether metrics are enabled.
+ * <p>
+ * The simulation runs in a single thread, the registry is not synchronized.
+ *
+ * @see #write(String)
+ */
+public final class Metrics {
+
+	/** Whether metrics are recorded. */
+	private static boolean enabled = false;
+
+	private static final Map<String, Counter> counters = new HashMap<String, Counter>();
+	private static final Map<String, Gauge> gauges = new HashMap<String, Gauge>();
+	private static final Map<String, Histogram> histograms = new HashMap<String, Histogram>();
+
+	/** The processed events per tag. */
+	private static KeyedCounter eventsByTag = new KeyedCounter();
+
+	/** The processed events per entity id. */
+	private static KeyedCounter eventsByEntity = new KeyedCounter();
+
+	/** The nanoseconds spent in processEvent per entity id. */
+	private static KeyedCounter nanosByEntity = new KeyedCounter();
+
+	/** The names of the entities, taken on their first event as the kernel drops its entities at the end. */
+	private static final Map<Integer, String> entityNames = new HashMap<Integer, String>();
+
+	/** The names of the tags, see {@link #registerTagNames(Class)}. */
+	private static final Map<Integer, String> tagNames = new HashMap<Integer, String>();
+
+	private Metrics() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables recording. Recorded metrics are kept, see {@link #reset()}.
+	 *
+	 * @param enabled whether metrics are recorded
+	 */
+	public static void setEnabled(boolean enabled) {
+		Metrics.enabled = enabled;
+	}
+
+	/**
+	 * Removes all recorded metrics, e.g. before the next simulation of the same JVM.
+	 */
+	public static void reset() {
+		counters.clear();
+		gauges.clear();
+		histograms.clear();
+		eventsByTag = new KeyedCounter();
+		eventsByEntity = new KeyedCounter();
+		nanosByEntity = new KeyedCounter();
+		entityNames.clear();
+	}
+
+	/**
+	 * Gets a counter, which is created on first use.
+	 *
+	 * @param name the name of the counter
+	 * @return the counter
+	 */
+	public static Counter counter(String name) {
+		Counter counter = counters.get(name);
+		if (counter == null) {
+			counter = new Counter();
+			counters.put(name, counter);
+		}
+		return counter;
+	}
+
+	/**
+	 * Gets a gauge, which is created on first use.
+	 *
+	 * @param name the name of the gauge
+	 * @return the gauge
+	 */
+	public static Gauge gauge(String name) {
+		Gauge gauge = gauges.get(name);
+		if (gauge == null) {
+			gauge = new Gauge();
+			gauges.put(name, gauge);
+		}
+		return gauge;
+	}
+
+	/**
+	 * Gets a histogram, which is created on first use.
+	 *
+	 * @param name the name of the histogram
+	 * @return the histogram
+	 */
+	public static Histogram histogram(String name) {
+		Histogram histogram = histograms.get(name);
+		if (histogram == null) {
+			histogram = new Histogram();
+			histograms.put(name, histogram);
+		}
+		return histogram;
+	}
+
+	/**
+	 * Increments a counter if metrics are enabled.
+	 *
+	 * @param name the name of the counter
+	 */
+	public static void increment(String name) {
+		if (enabled) {
+			counter(name).increment();
+		}
+	}
+
+	/**
+	 * Records a value in a histogram if metrics are enabled.
+	 *
+	 * @param name the name of the histogram
+	 * @param value the value
+	 */
+	public static void record(String name, double value) {
+		if (enabled) {
+			histogram(name).record(value);
+		}
+	}
+
+	/**
+	 * Records an event that an entity processed. Called by the kernel.
+	 *
+	 * @param entityId the id of the entity
+	 * @param tag the tag of the event
+	 * @param nanos the time the entity spent in processEvent
+	 */
+	public static void recordEvent(int entityId, int tag, long nanos) {
+		if (eventsByEntity.get(entityId) == 0) {
+			entityNames.put(entityId, CloudSim.getEntityName(entityId));
+		}
+		eventsByTag.add(tag, 1);
+		eventsByEntity.add(entityId, 1);
+		nanosByEntity.add(entityId, nanos);
+	}
+
+	/**
+	 * Records bytes sent over the link from one storage to another, if metrics are enabled.
+	 *
+	 * @param source the name of the source storage
+	 * @param destination the name of the destination storage
+	 * @param bytes the bytes
+	 */
+	public static void recordLinkBytes(String source, String destination, double bytes) {
+		if (enabled) {
+			counter("link." + source + "->" + destination + ".bytes").add(Math.round(bytes));
+		}
+	}
+
+	/**
+	 * Records the simulated time of a transfer over the link from one storage to another, if metrics
+	 * are enabled.
+	 *
+	 * @param source the name of the source storage
+	 * @param destination the name of the destination storage
+	 * @param time the transfer time in seconds
+	 */
+	public static void recordLinkTime(String source, String destination, double time) {
+		if (enabled) {
+			histogram("link." + source + "->" + destination + ".transferTime").record(time);
+		}
+	}
+
+	/**
+	 * Records the used space of a storage, if metrics are enabled. The gauge keeps the high-water mark.
+	 *
+	 * @param storage the name of the storage
+	 * @param used the used space
+	 */
+	public static void recordStorageUsage(String storage, double used) {
+		if (enabled) {
+			gauge("storage." + storage + ".used").set(used);
+		}
+	}
+
+	/**
+	 * Uses the names of the <code>public static final int</code> fields of a class, e.g. CloudSimTags,
+	 * for the event counts per tag. If several fields have the same value, the names are joined.
+	 *
+	 * @param tags the class with the tags
+	 */
+	public static void registerTagNames(Class<?> tags) {
+		for (Field field : tags.getFields()) {
+			int modifiers = field.getModifiers();
+			if (field.getType() != int.class || !Modifier.isStatic(modifiers) || !Modifier.isFinal(modifiers)) {
+				continue;
+			}
+			try {
+				int value = field.getInt(null);
+				String name = tagNames.get(value);
+				if (name == null) {
+					tagNames.put(value, field.getName());
+				} else if (!("/" + name + "/").contains("/" + field.getName() + "/")) {
+					tagNames.put(value, name + "/" + field.getName());
+				}
+			} catch (IllegalAccessException e) {
+				// not a tag
+			}
+		}
+	}
+
+	/**
+	 * Begins a phase of the simulator, which is emitted as a JDK Flight Recorder event by
+	 * {@link #endPhase(PhaseEvent, long)}.
+	 *
+	 * @param phase the name of the phase
+	 * @return the event of the phase
+	 */
+	public static PhaseEvent beginPhase(String phase) {
+		PhaseEvent event = new PhaseEvent();
+		event.phase = phase;
+		event.startNanos = System.nanoTime();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends a phase. If metrics are enabled, its wall-clock latency in nanoseconds is recorded in the
+	 * histogram <code>phase.&lt;name&gt;.nanos</code> and its size in <code>phase.&lt;name&gt;.size</code>.
+	 *
+	 * @param event the event of the phase
+	 * @param size the size of the work of the phase, -1 if none
+	 */
+	public static void endPhase(PhaseEvent event, long size) {
+		event.end();
+		if (enabled) {
+			histogram("phase." + event.phase + ".nanos").record(System.nanoTime() - event.startNanos);
+			if (size >= 0) {
+				histogram("phase." + event.phase + ".size").record(size);
+			}
+		}
+		if (event.shouldCommit()) {
+			event.size = size;
+			event.simulationTime = CloudSim.clock();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Gets all metrics as flat name-value pairs, sorted by name. Gauges contribute their last value
+	 * and <code>.max</code>, histograms <code>.count</code>, <code>.sum</code>, <code>.min</code>,
+	 * <code>.max</code>, <code>.mean</code>, <code>.p50</code>, <code>.p90</code> and
+	 * <code>.p99</code>.
+	 *
+	 * @return the metrics
+	 */
+	public static Map<String, Number> getSummary() {
+		Map<String, Number> summary = new TreeMap<String, Number>();
+		for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+			summary.put(entry.getKey(), entry.getValue().get());
+		}
+		for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+			summary.put(entry.getKey(), entry.getValue().get());
+			summary.put(entry.getKey() + ".max", entry.getValue().getMax());
+		}
+		for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+			Histogram histogram = entry.getValue();
+			summary.put(entry.getKey() + ".count", histogram.getCount());
+			summary.put(entry.getKey() + ".sum", histogram.getSum());
+			summary.put(entry.getKey() + ".min", histogram.getMin());
+			summary.put(entry.getKey() + ".max", histogram.getMax());
+			summary.put(entry.getKey() + ".mean", histogram.getMean());
+			summary.put(entry.getKey() + ".p50", histogram.getQuantile(0.5));
+			summary.put(entry.getKey() + ".p90", histogram.getQuantile(0.9));
+			summary.put(entry.getKey() + ".p99", histogram.getQuantile(0.99));
+		}
+		for (Map.Entry<Integer, Long> entry : eventsByTag.getCounts().entrySet()) {
+			String name = tagNames.get(entry.getKey());
+			summary.put("events.tag." + (name == null ? entry.getKey().toString() : name), entry.getValue());
+		}
+		for (Map.Entry<Integer, Long> entry : eventsByEntity.getCounts().entrySet()) {
+			String name = entityNames.get(entry.getKey());
+			String prefix = "events.entity." + (name == null ? entry.getKey().toString() : name);
+			summary.put(prefix + ".count", entry.getValue());
+			summary.put(prefix + ".nanos", nanosByEntity.get(entry.getKey()));
+		}
+		return summary;
+	}
+
+	/**
+	 * Writes the summary of the metrics, as JSON object if the path ends with <code>.json</code>,
+	 * otherwise as "name,value" rows.
+	 *
+	 * @param path the path of the file
+	 */
+	public static void write(String path) {
+		Map<String, Number> summary = getSummary();
+		boolean json = path.endsWith(".json");
+		try (PrintWriter writer = new PrintWriter(path)) {
+			if (json) {
+				writer.println("{");
+			}
+			int i = 0;
+			for (Map.Entry<String, Number> entry : summary.entrySet()) {
+				if (json) {
+					String separator = ++i < summary.size() ? "," : "";
+					writer.println("  \"" + entry.getKey().replace("\\", "\\\\").replace("\"", "\\\"") + "\": "
+							+ entry.getValue() + separator);
+				} else {
+					writer.println(entry.getKey() + "," + entry.getValue());
+				}
+			}
+			if (json) {
+				writer.println("}");
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JDK Flight Recorder event for a phase of the simulator, e.g. the setup or a scheduling round.
+ * With <code>-XX:StartFlightRecording</code>, the phases appear in the recording next to the CPU
+ * samples and allocations of the same threads. The events cost nothing but their allocation if no
+ * recording is running.
+ *
+ * @see Metrics#beginPhase(String)
+ */
+@Name("cloudsim.Phase")
+@Label("Simulation Phase")
+@Category("CloudSim")
+@Description("A phase of the simulator")
+public class PhaseEvent extends Event {
+
+	@Label("Phase")
+	String phase;
+
+	@Label("Simulation Time")
+	@Description("The simulation clock at the end of the phase")
+	double simulationTime;
+
+	@Label("Size")
+	@Description("The size of the work of the phase, e.g. the jobs of a scheduling round, -1 if none")
+	long size = -1;
+
+	/** The wall-clock start of the phase, for the latency histogram of the phase. */
+	transient long startNanos;
+}
@@ -28,6 +28,9 @@ import org.cloudbus.cloudsim.Vm;
  */
 public class NetworkVm extends Vm implements Comparable<Object> {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	public NetworkVm(
 			int id,
 			int userId,
@@ -15,10 +15,14 @@
  */
 package org.workflowsim;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import org.cloudbus.cloudsim.HarddriveStorage;
 import org.cloudbus.cloudsim.ParameterException;
+import org.cloudbus.cloudsim.core.metrics.Metrics;
 
 /**
  * ClusterStorage is an extention of HarddriveStorage and it is used as a local
@@ -30,11 +34,44 @@ import org.cloudbus.cloudsim.ParameterException;
  */
 public class ClusterStorage extends HarddriveStorage {
 
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
     /**
      * The map stores the bandwidth from this cluster-storage to others
      */
     Map bandwidthMap;
 
+    /**
+     * The map stores the latency of a transfer between this cluster-storage
+     * and others
+     */
+    Map<String, Double> latencyMap = new HashMap<>();
+
+    /**
+     * The map stores the routes from this cluster-storage to others, if a
+     * topology is used
+     */
+    Map<String, TransferRoute> routeMap = new HashMap<>();
+
+    /**
+     * The map stores the bytes transferred from this cluster-storage to others
+     */
+    Map<String, Double> transferredBytesMap = new HashMap<>();
+
+    /**
+     * The map stores the transfers from this cluster-storage to others that
+     * are not delivered completely, as {start, end, bytes}, null if the
+     * deliveries are not recorded
+     */
+    Map<String, List<double[]>> openTransfersMap = null;
+
+    /**
+     * The map stores the bytes of the transfers from this cluster-storage to
+     * others that are delivered completely, if the deliveries are recorded
+     */
+    Map<String, Double> deliveredBytesMap = new HashMap<>();
+
     /**
      * Initialize a ClusterStorage
      *
@@ -62,17 +99,150 @@ public class ClusterStorage extends HarddriveStorage {
     }
 
     /**
-     * Gets the bandwidth from this storage to the destination storage
+     * Sets the route of the transfers from this storage to the destination
+     * storage, which replaces the direct link
+     *
+     * @param destination the destination storage
+     * @param route the route
+     */
+    public void setRoute(String destination, TransferRoute route) {
+        routeMap.put(destination, route);
+    }
+
+    /**
+     * Gets the route of the transfers from this storage to the destination
+     * storage
+     *
+     * @param destination the destination storage
+     * @return the route, null if transfers use the direct link
+     */
+    public TransferRoute getRoute(String destination) {
+        return routeMap.get(destination);
+    }
+
+    /**
+     * Gets the bandwidth from this storage to the destination storage, 0 if
+     * the destination is another site without a link or route to it
      *
      * @param destination
      * @return bandwidth
      */
     public double getMaxTransferRate(String destination) {
-        if (bandwidthMap.containsKey(destination)) {
+        if (routeMap.containsKey(destination)) {
+            return routeMap.get(destination).getBandwidth();
+        } else if (bandwidthMap.containsKey(destination)) {
             return (Double) bandwidthMap.get(destination);
-        } else {
+        } else if (destination.equals(getName())) {
             //local bandwidth between vms
             return (Double) bandwidthMap.get("local");
+        } else {
+            //unreachable site
+            return 0.0;
+        }
+    }
+
+    /**
+     * Sets the latency of a transfer from this storage to the destination
+     * storage
+     *
+     * @param name the destination storage
+     * @param latency the latency in seconds
+     */
+    public void setLatency(String name, double latency) {
+        if (latency >= 0) {
+            latencyMap.put(name, latency);
+        }
+    }
+
+    /**
+     * Gets the latency of a transfer from this storage to the destination
+     * storage, 0 if none is set
+     *
+     * @param destination the destination storage
+     * @return latency
+     */
+    public double getLatency(String destination) {
+        if (routeMap.containsKey(destination)) {
+            return routeMap.get(destination).getLatency();
+        }
+        return latencyMap.getOrDefault(destination, 0.0);
+    }
+
+    /**
+     * Adds bytes that have been transferred from this storage to the
+     * destination storage
+     *
+     * @param destination the destination storage
+     * @param bytes the transferred bytes
+     */
+    public void addTransferredBytes(String destination, double bytes) {
+        transferredBytesMap.put(destination, transferredBytesMap.getOrDefault(destination, 0.0) + bytes);
+        Metrics.recordLinkBytes(getName(), destination, bytes);
+    }
+
+    /**
+     * Gets the bytes that have been transferred from this storage to the
+     * destination storage
+     *
+     * @param destination the destination storage
+     * @return transferred bytes
+     */
+    public double getTransferredBytes(String destination) {
+        return transferredBytesMap.getOrDefault(destination, 0.0);
+    }
+
+    /**
+     * Records from now on when the bytes of the transfers to other storages
+     * are delivered, see getDeliveredBytes
+     */
+    public void recordDeliveries() {
+        if (openTransfersMap == null) {
+            openTransfersMap = new HashMap<>();
+        }
+    }
+
+    /**
+     * Adds a transfer from this storage to the destination storage that
+     * delivers its bytes at a constant rate, does nothing unless deliveries
+     * are recorded
+     *
+     * @param destination the destination storage
+     * @param bytes the transferred bytes
+     * @param start the time the first byte arrives
+     * @param end the time the last byte arrives
+     */
+    public void addDelivery(String destination, double bytes, double start, double end) {
+        if (openTransfersMap != null) {
+            openTransfersMap.computeIfAbsent(destination, name -> new ArrayList<>()).add(new double[]{start, end, bytes});
+        }
+    }
+
+    /**
+     * Gets the bytes that have been delivered from this storage to the
+     * destination storage until a time, a transfer that is still running
+     * counts with the share of its bytes that has arrived. The times of
+     * consecutive calls must not decrease.
+     *
+     * @param destination the destination storage
+     * @param time the time
+     * @return delivered bytes
+     */
+    public double getDeliveredBytes(String destination, double time) {
+        double delivered = deliveredBytesMap.getOrDefault(destination, 0.0);
+        double arriving = 0.0;
+        List<double[]> transfers = openTransfersMap == null ? null : openTransfersMap.get(destination);
+        if (transfers != null) {
+            for (Iterator<double[]> it = transfers.iterator(); it.hasNext();) {
+                double[] transfer = it.next();
+                if (transfer[1] <= time) {
+                    delivered += transfer[2];
+                    it.remove();
+                } else if (transfer[0] < time) {
+                    arriving += transfer[2] * (time - transfer[0]) / (transfer[1] - transfer[0]);
+                }
+            }
+            deliveredBytesMap.put(destination, delivered);
         }
+        return delivered + arriving;
     }
 }
@@ -45,6 +45,9 @@ import org.workflowsim.utils.ReplicaCatalog;
 @SuppressWarnings("ALL")
 public final class ClusteringEngine extends SimEntity {
 
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
     /**
      * The task list
      */
@@ -30,6 +30,9 @@ import org.workflowsim.utils.ReplicaCatalog.FileSystem;
  */
 public class CondorVM extends Vm {
 
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
     /*
      * The local storage system a vm has if file.system=LOCAL
      */
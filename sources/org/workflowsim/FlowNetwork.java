@@ -0,0 +1,515 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.cloudbus.cloudsim.File;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+
+/**
+ * FlowNetwork is a flow-level model of the links between datacenters. Every
+ * file transfer between two datacenters is a flow over the link from the
+ * source to the destination, whose capacity is the bandwidth of the source's
+ * ClusterStorage to the destination, or over the links of the storage's
+ * TransferRoute to the destination. Concurrent flows share the capacity of
+ * the links they use max-min fairly, and the rates are recomputed whenever a
+ * flow starts or finishes. A flow only starts to use its links after the
+ * latency of its path. A finished flow is reported to its destination
+ * datacenter with a FILE_TRANSFER_DONE event.
+ */
+public class FlowNetwork extends SimEntity {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Remaining bytes below which a flow counts as finished, absorbs rounding
+     * errors of the rate updates
+     */
+    private static final double EPSILON = 1e-6;
+
+    /**
+     * The links that have been used so far, by "source->destination"
+     */
+    private final Map<String, Link> links = new LinkedHashMap<>();
+
+    /**
+     * The active flows
+     */
+    private final List<Flow> flows = new ArrayList<>();
+
+    /**
+     * The time until which the remaining bytes of the active flows have been
+     * updated
+     */
+    private double lastUpdate = 0.0;
+
+    /**
+     * The id of the next flow
+     */
+    private int nextFlowId = 0;
+
+    /**
+     * Only the latest scheduled FLOW_UPDATE event is valid, all earlier ones
+     * are outdated by rate changes
+     */
+    private int updateVersion = 0;
+
+    /**
+     * Flow counts that getLinkLoad reports instead of the active flows, set
+     * when a recorded scheduling round is replayed, null in a simulation
+     */
+    private Map<String, Integer> replayedLinkLoads = null;
+
+    /**
+     * A directed link between two datacenters or relay nodes
+     */
+    public static class Link implements Serializable {
+
+        /** The Constant serialVersionUID. */
+        private static final long serialVersionUID = 1L;
+
+        private final String source;
+        private final String destination;
+        private final double capacity;
+        private final double latency;
+        private final List<Flow> flows = new ArrayList<>();
+        private double sentBytes = 0.0;
+
+        Link(String source, String destination, double capacity, double latency) {
+            this.source = source;
+            this.destination = destination;
+            this.capacity = capacity;
+            this.latency = latency;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public String getDestination() {
+            return destination;
+        }
+
+        public double getCapacity() {
+            return capacity;
+        }
+
+        public double getLatency() {
+            return latency;
+        }
+
+        /**
+         * Gets the number of active flows on this link
+         *
+         * @return the number of flows
+         */
+        public int getFlowCount() {
+            return flows.size();
+        }
+    }
+
+    /**
+     * A transfer of a file, a stripe of a file or a batch of files over one or
+     * more links
+     */
+    public static class Flow implements Serializable {
+
+        /** The Constant serialVersionUID. */
+        private static final long serialVersionUID = 1L;
+
+        private final int id;
+        private final List<Link> path;
+        private final File file;
+        private final double size;
+        private final int destinationId;
+        private final List<Integer> cloudletIds;
+        private final double startTime;
+        private double remaining;
+        private double rate = 0.0;
+
+        Flow(int id, List<Link> path, File file, double size, int destinationId, List<Integer> cloudletIds) {
+            this.id = id;
+            this.path = path;
+            this.file = file;
+            this.size = size;
+            this.destinationId = destinationId;
+            this.cloudletIds = cloudletIds;
+            this.startTime = CloudSim.clock();
+            this.remaining = size;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Gets the transferred file, null for a batch of files
+         *
+         * @return the file
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Gets the bytes transferred by this flow, which is less than the
+         * file size for a stripe of a file and the total size for a batch
+         *
+         * @return the size of the flow
+         */
+        public double getSize() {
+            return size;
+        }
+
+        /**
+         * Gets the ids of the cloudlets that wait for this flow, empty if the
+         * flow is not part of a stage-in (e.g., a prefetch)
+         *
+         * @return the cloudlet ids
+         */
+        public List<Integer> getCloudletIds() {
+            return cloudletIds;
+        }
+
+        public double getStartTime() {
+            return startTime;
+        }
+
+        /**
+         * Gets the name of the datacenter the flow starts at
+         *
+         * @return the source of the first link of the path
+         */
+        public String getSource() {
+            return path.isEmpty() ? null : path.get(0).getSource();
+        }
+
+        public double getRate() {
+            return rate;
+        }
+    }
+
+    public FlowNetwork(String name) {
+        super(name);
+    }
+
+    /**
+     * Starts a flow from the storage of a datacenter to another datacenter.
+     * The flow finishes as a FILE_TRANSFER_DONE event at the destination.
+     *
+     * @param source the storage of the source datacenter
+     * @param destination the destination datacenter
+     * @param file the transferred file, null for a batch of files
+     * @param size the bytes to transfer
+     * @param cloudletIds the ids of the cloudlets waiting for the flow
+     * @return the flow
+     */
+    public Flow startFlow(ClusterStorage source, WorkflowDatacenter destination, File file, double size, List<Integer> cloudletIds) {
+        List<Link> path = getPath(source, destination.getName());
+
+        Flow flow = new Flow(nextFlowId++, path, file, size, destination.getId(), cloudletIds);
+
+        double latency = 0.0;
+        for (Link link : path) {
+            latency += link.latency;
+        }
+        if (latency > 0) {
+            schedule(getId(), latency, WorkflowSimTags.FLOW_START, flow);
+        } else {
+            activate(flow);
+        }
+        return flow;
+    }
+
+    /**
+     * Lets a flow compete for the bandwidth of its links
+     */
+    private void activate(Flow flow) {
+        advance();
+
+        flows.add(flow);
+        for (Link link : flow.path) {
+            link.flows.add(flow);
+        }
+
+        updateRates();
+    }
+
+    /**
+     * Gets the number of active flows from one datacenter to another
+     *
+     * @param source the source datacenter name
+     * @param destination the destination datacenter name
+     * @return the number of flows
+     */
+    public int getLinkLoad(String source, String destination) {
+        if (replayedLinkLoads != null) {
+            return replayedLinkLoads.getOrDefault(source + "->" + destination, 0);
+        }
+        Link link = links.get(source + "->" + destination);
+        return link == null ? 0 : link.getFlowCount();
+    }
+
+    /**
+     * Gets the number of active flows of every link that has any
+     *
+     * @return the number of flows by "source->destination"
+     */
+    public Map<String, Integer> getLinkLoads() {
+        Map<String, Integer> loads = new LinkedHashMap<>();
+        for (Map.Entry<String, Link> link : links.entrySet()) {
+            if (link.getValue().getFlowCount() > 0) {
+                loads.put(link.getKey(), link.getValue().getFlowCount());
+            }
+        }
+        return loads;
+    }
+
+    /**
+     * Replaces the flow counts that getLinkLoad reports with recorded ones,
+     * when a scheduling round is replayed
+     *
+     * @param loads the number of flows by "source->destination"
+     */
+    public void setReplayedLinkLoads(Map<String, Integer> loads) {
+        replayedLinkLoads = loads;
+    }
+
+    /**
+     * Gets the rate a new flow from a storage to a datacenter would start
+     * with, i.e., its fair share of the narrowest link next to the active
+     * flows
+     *
+     * @param source the storage of the source datacenter
+     * @param destination the destination datacenter name
+     * @return the expected rate
+     */
+    public double getExpectedRate(ClusterStorage source, String destination) {
+        TransferRoute route = source.getRoute(destination);
+        if (route == null) {
+            return source.getMaxTransferRate(destination) / (getLinkLoad(source.getName(), destination) + 1);
+        }
+        double rate = Double.MAX_VALUE;
+        for (int i = 0; i < route.getLinkCount(); i++) {
+            int load = getLinkLoad(route.getNodes().get(i), route.getNodes().get(i + 1));
+            rate = Math.min(rate, route.getLinkBandwidth(i) / (load + 1));
+        }
+        return rate;
+    }
+
+    /**
+     * Gets the number of active flows
+     *
+     * @return the number of flows
+     */
+    public int getFlowCount() {
+        return flows.size();
+    }
+
+    /**
+     * Gets the bytes a link has sent until a time, at the current rates of
+     * its flows since the last rate update
+     *
+     * @param source the datacenter or relay node the link starts at
+     * @param destination the datacenter or relay node the link ends at
+     * @param time the time, not before the last rate update
+     * @return the sent bytes, 0 if the link has not been used
+     */
+    public double getSentBytes(String source, String destination, double time) {
+        Link link = links.get(source + "->" + destination);
+        if (link == null) {
+            return 0.0;
+        }
+        double bytes = link.sentBytes;
+        for (Flow flow : link.flows) {
+            bytes += Math.min(flow.remaining, flow.rate * (time - lastUpdate));
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the links from a storage to a datacenter, which follow the route
+     * of the storage if it has one
+     */
+    private List<Link> getPath(ClusterStorage source, String destination) {
+        List<Link> path = new ArrayList<>();
+        TransferRoute route = source.getRoute(destination);
+        if (route == null) {
+            path.add(getLink(source.getName(), destination, source.getMaxTransferRate(destination), source.getLatency(destination)));
+            return path;
+        }
+        for (int i = 0; i < route.getLinkCount(); i++) {
+            path.add(getLink(route.getNodes().get(i), route.getNodes().get(i + 1), route.getLinkBandwidth(i), route.getLinkLatency(i)));
+        }
+        return path;
+    }
+
+    private Link getLink(String source, String destination, double capacity, double latency) {
+        String key = source + "->" + destination;
+        Link link = links.get(key);
+        if (link == null) {
+            link = new Link(source, destination, capacity, latency);
+            links.put(key, link);
+        }
+        return link;
+    }
+
+    /**
+     * Moves the remaining bytes of all active flows to the current time
+     */
+    private void advance() {
+        double elapsed = CloudSim.clock() - lastUpdate;
+        if (elapsed > 0) {
+            for (Flow flow : flows) {
+                double sent = Math.min(flow.remaining, flow.rate * elapsed);
+                flow.remaining -= sent;
+                for (Link link : flow.path) {
+                    link.sentBytes += sent;
+                }
+            }
+        }
+        lastUpdate = CloudSim.clock();
+    }
+
+    /**
+     * Computes max-min fair rates by progressive filling: the link with the
+     * smallest fair share fixes the rates of its unfixed flows, its capacity
+     * is removed from the other links of these flows, and so on. Afterwards
+     * the next flow completion is scheduled.
+     */
+    private void updateRates() {
+        Map<Link, Double> residual = new HashMap<>();
+        Map<Link, Integer> unfixed = new LinkedHashMap<>();
+        for (Link link : links.values()) {
+            if (!link.flows.isEmpty()) {
+                residual.put(link, link.capacity);
+                unfixed.put(link, link.flows.size());
+            }
+        }
+        for (Flow flow : flows) {
+            flow.rate = -1.0;
+        }
+
+        while (!unfixed.isEmpty()) {
+            // the bottleneck link has the smallest share per unfixed flow
+            Link bottleneck = null;
+            double share = Double.MAX_VALUE;
+            for (Map.Entry<Link, Integer> entry : unfixed.entrySet()) {
+                double linkShare = residual.get(entry.getKey()) / entry.getValue();
+                if (linkShare < share) {
+                    share = linkShare;
+                    bottleneck = entry.getKey();
+                }
+            }
+
+            for (Flow flow : bottleneck.flows) {
+                if (flow.rate >= 0.0) {
+                    continue;
+                }
+                flow.rate = share;
+                for (Link link : flow.path) {
+                    if (!unfixed.containsKey(link)) {
+                        continue;
+                    }
+                    residual.put(link, residual.get(link) - share);
+                    int count = unfixed.get(link) - 1;
+                    if (count == 0) {
+                        unfixed.remove(link);
+                    } else {
+                        unfixed.put(link, count);
+                    }
+                }
+            }
+            unfixed.remove(bottleneck);
+        }
+
+        scheduleNextCompletion();
+    }
+
+    private void scheduleNextCompletion() {
+        updateVersion++;
+        double next = Double.MAX_VALUE;
+        for (Flow flow : flows) {
+            next = Math.min(next, flow.remaining / flow.rate);
+        }
+        if (next != Double.MAX_VALUE) {
+            schedule(getId(), next, WorkflowSimTags.FLOW_UPDATE, updateVersion);
+        }
+    }
+
+    /**
+     * Finishes the flows that have transferred all their bytes and reports
+     * them to their destinations
+     */
+    private void processFlowUpdate(SimEvent ev) {
+        if ((Integer) ev.getData() != updateVersion) {
+            return;
+        }
+        advance();
+
+        List<Flow> finished = new ArrayList<>();
+        for (Iterator<Flow> it = flows.iterator(); it.hasNext();) {
+            Flow flow = it.next();
+            if (flow.remaining <= EPSILON * flow.size || flow.remaining <= flow.rate * EPSILON) {
+                it.remove();
+                for (Link link : flow.path) {
+                    link.flows.remove(flow);
+                }
+                finished.add(flow);
+            }
+        }
+
+        updateRates();
+
+        for (Flow flow : finished) {
+            sendNow(flow.destinationId, WorkflowSimTags.FILE_TRANSFER_DONE, flow);
+        }
+    }
+
+    @Override
+    public void processEvent(SimEvent ev) {
+        switch (ev.getTag()) {
+            case WorkflowSimTags.FLOW_UPDATE:
+                processFlowUpdate(ev);
+                break;
+            case WorkflowSimTags.FLOW_START:
+                activate((Flow) ev.getData());
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void startEntity() {
+        Log.printLine(getName() + " is starting...");
+    }
+
+    @Override
+    public void shutdownEntity() {
+        Log.printLine(getName() + " is shutting down...");
+    }
+}
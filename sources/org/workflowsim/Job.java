@@ -30,6 +30,9 @@ import java.util.List;
  */
 public class Job extends Task {
 
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
     public int getPreviousVmId() {
         return previousVmId;
     }
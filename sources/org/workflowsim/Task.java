@@ -35,6 +35,15 @@ import org.cloudbus.cloudsim.UtilizationModelFull;
  */
 public class Task extends Cloudlet {
 
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The utilization model of all tasks, it has no state and is shared to
+     * save memory in large workflows
+     */
+    private static final UtilizationModelFull UTILIZATION_FULL = new UtilizationModelFull();
+
     /*
      * The list of parent tasks. 
      */
@@ -94,7 +103,7 @@ public class Task extends Cloudlet {
          * and utilizationModelBw are just set to be the default mode. You can
          * change it for your own purpose.
          */
-        super(taskId, taskLength, 1, 0, 0, new UtilizationModelFull(), new UtilizationModelFull(), new UtilizationModelFull());
+        super(taskId, taskLength, 1, 0, 0, UTILIZATION_FULL, UTILIZATION_FULL, UTILIZATION_FULL);
 
 
         this.childList = new ArrayList<Task>();
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TransferRoute is the path of the transfers from one storage to another
+ * over the links of a topology. The first node is the source, the last node is
+ * the destination and the nodes in between relay the transfer. The bandwidth
+ * of a route is the bandwidth of its narrowest link, its latency is the sum of
+ * the latencies of its links.
+ */
+public class TransferRoute implements Serializable {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The nodes of the route, from the source to the destination
+     */
+    private final List<String> nodes = new ArrayList<>();
+
+    /**
+     * The bandwidth of the link from the node with the same index to the next
+     * node
+     */
+    private final List<Double> linkBandwidths = new ArrayList<>();
+
+    /**
+     * The latency of the link from the node with the same index to the next
+     * node
+     */
+    private final List<Double> linkLatencies = new ArrayList<>();
+
+    /**
+     * Initialize a TransferRoute that starts at the source
+     *
+     * @param source the name of the source node
+     */
+    public TransferRoute(String source) {
+        nodes.add(source);
+    }
+
+    /**
+     * Appends a link from the current last node to the next node
+     *
+     * @param node the name of the next node
+     * @param bandwidth the bandwidth of the link
+     * @param latency the latency of the link
+     */
+    public void addLink(String node, double bandwidth, double latency) {
+        nodes.add(node);
+        linkBandwidths.add(bandwidth);
+        linkLatencies.add(latency);
+    }
+
+    /**
+     * Gets the nodes of the route, including source and destination
+     *
+     * @return the node names
+     */
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the number of links of the route
+     *
+     * @return the number of links
+     */
+    public int getLinkCount() {
+        return linkBandwidths.size();
+    }
+
+    /**
+     * Gets the bandwidth of a link
+     *
+     * @param index the index of the link
+     * @return the bandwidth
+     */
+    public double getLinkBandwidth(int index) {
+        return linkBandwidths.get(index);
+    }
+
+    /**
+     * Gets the latency of a link
+     *
+     * @param index the index of the link
+     * @return the latency
+     */
+    public double getLinkLatency(int index) {
+        return linkLatencies.get(index);
+    }
+
+    /**
+     * Gets the bandwidth of the narrowest link
+     *
+     * @return the bandwidth
+     */
+    public double getBandwidth() {
+        double bandwidth = Double.MAX_VALUE;
+        for (double linkBandwidth : linkBandwidths) {
+            bandwidth = Math.min(bandwidth, linkBandwidth);
+        }
+        return bandwidth;
+    }
+
+    /**
+     * Gets the sum of the link latencies
+     *
+     * @return the latency
+     */
+    public double getLatency() {
+        double latency = 0.0;
+        for (double linkLatency : linkLatencies) {
+            latency += linkLatency;
+        }
+        return latency;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(" -> ", nodes);
+    }
+}
@@ -15,10 +15,18 @@
  */
 package org.workflowsim;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import federatedSim.ReplicationManager;
 import federatedSim.StorageException;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.CloudletScheduler;
@@ -34,6 +42,7 @@ import org.cloudbus.cloudsim.VmAllocationPolicy;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.metrics.Metrics;
 import org.workflowsim.utils.ReplicaCatalog;
 import org.workflowsim.utils.Parameters;
 import org.workflowsim.utils.Parameters.ClassType;
@@ -50,6 +59,9 @@ import org.workflowsim.utils.Parameters.FileType;
 @SuppressWarnings("ForLoopReplaceableByForEach")
 public class WorkflowDatacenter extends Datacenter {
 
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
     public WorkflowDatacenter(String name,
             DatacenterCharacteristics characteristics,
             VmAllocationPolicy vmAllocationPolicy,
@@ -61,6 +73,409 @@ public class WorkflowDatacenter extends Datacenter {
 
     @Override
     protected void processOtherEvent(SimEvent ev) {
+        switch (ev.getTag()) {
+            case WorkflowSimTags.FILE_PREFETCH:
+                processFilePrefetch(ev);
+                break;
+            case WorkflowSimTags.FILE_PREFETCH_DONE:
+                processFilePrefetchDone(ev);
+                break;
+            case WorkflowSimTags.FILE_TRANSFER_DONE:
+                processFileTransferDone(ev);
+                break;
+            case WorkflowSimTags.TRANSFER_BATCH_FLUSH:
+                processTransferBatchFlush();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * The flow-level network between datacenters, null if every transfer is
+     * computed in isolation
+     */
+    private FlowNetwork network;
+
+    /**
+     * Stage-ins of jobs whose input files are in transfer over the network,
+     * by cloudlet id. Only used with the network model.
+     */
+    private final Map<Integer, PendingStageIn> pendingStageIns = new HashMap<>();
+
+    /**
+     * Ids of the cloudlets that wait for a prefetch in transfer, by file name.
+     * Only used with the network model.
+     */
+    private final Map<String, List<Integer>> prefetchWaiters = new HashMap<>();
+
+    /**
+     * Replicas in transfer that a job took over, mapped to the time at which
+     * the job would have had the file if it had fetched it itself. Only used
+     * with the network model, where the arrival of a replica is known when
+     * its flow finishes.
+     */
+    private final Map<String, Double> takenOverReplicas = new HashMap<>();
+
+    /**
+     * Transfer batches of the current scheduling round, by source datacenter
+     * name. Only used if batching is enabled.
+     */
+    private final Map<String, TransferBatch> roundBatches = new LinkedHashMap<>();
+
+    /**
+     * A job that waits for the transfers of its input files
+     */
+    private static class PendingStageIn implements Serializable {
+
+        /** The Constant serialVersionUID. */
+        private static final long serialVersionUID = 1L;
+
+        private final Cloudlet cloudlet;
+        private boolean ack;
+        private int openTransfers = 0;
+        private double localTime = 0.0;
+        // time of the longest batch of the job, without the network model
+        private double batchTime = 0.0;
+
+        PendingStageIn(Cloudlet cloudlet) {
+            this.cloudlet = cloudlet;
+        }
+    }
+
+    /**
+     * The files that the jobs of one scheduling round need from one source
+     * datacenter, sent as one transfer with one latency
+     */
+    private static class TransferBatch implements Serializable {
+
+        /** The Constant serialVersionUID. */
+        private static final long serialVersionUID = 1L;
+
+        private final ClusterStorage source;
+        private final List<File> files = new ArrayList<>();
+        private final Set<Integer> cloudletIds = new LinkedHashSet<>();
+
+        TransferBatch(ClusterStorage source) {
+            this.source = source;
+        }
+    }
+
+    /**
+     * Sets the flow-level network that transfers files between datacenters
+     *
+     * @param network the network
+     */
+    public void setNetwork(FlowNetwork network) {
+        this.network = network;
+    }
+
+    /**
+     * Gets the flow-level network, null if it is not used
+     *
+     * @return the network
+     */
+    public FlowNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * Files that are being prefetched to this datacenter's storage, mapped to
+     * the time they arrive. Only used in federated partitioning. With the
+     * network model, the arrival is not known in advance and is infinite.
+     */
+    private final Map<String, Double> prefetchArrivals = new HashMap<>();
+
+    /**
+     * Total size of the files that are being prefetched to this datacenter
+     */
+    private double prefetchBytesInFlight = 0.0;
+
+    /**
+     * Maps the names of other datacenters to the time until which their link
+     * to this datacenter is busy with prefetches
+     */
+    private final Map<String, Double> prefetchLinkBusyUntil = new HashMap<>();
+
+    /**
+     * Files that are being replicated to this datacenter (prefetches of the
+     * replication manager), mapped to the name of their source datacenter
+     */
+    private final Map<String, String> pendingReplicas = new HashMap<>();
+
+    /**
+     * Replicas stored here that no job has read yet, mapped to the name of
+     * their source datacenter. The first job that reads a replica is credited
+     * with the stage-in time it saved.
+     */
+    private final Map<String, String> unreadReplicas = new HashMap<>();
+
+    /**
+     * Gets the total size of the files that are being prefetched to this
+     * datacenter and are not stored yet
+     *
+     * @return the size of the prefetched files in transfer
+     */
+    public double getPrefetchBytesInFlight() {
+        return prefetchBytesInFlight;
+    }
+
+    /**
+     * Sets the total size of the files in transfer to this datacenter, to
+     * restore a recorded state when a scheduling round is replayed
+     *
+     * @param bytes the size of the prefetched files in transfer
+     */
+    public void setPrefetchBytesInFlight(double bytes) {
+        prefetchBytesInFlight = bytes;
+    }
+
+    /**
+     * Starts to stream output files of a finished job from another datacenter
+     * to this datacenter's storage. The files of one source are transferred one
+     * after another over the link bandwidth of the ClusterStorages, or as
+     * concurrent flows if the network model is used. Files that are already
+     * stored here, already in transfer or do not fit into the storage are
+     * skipped.
+     *
+     * @param ev a SimEvent object, data is {source datacenter name, list of
+     * files} or {source datacenter name, list of files, true} for replicas
+     */
+    private void processFilePrefetch(SimEvent ev) {
+        Object[] data = (Object[]) ev.getData();
+        String sourceName = (String) data[0];
+        List<File> files = (List<File>) data[1];
+        boolean replication = data.length > 2 && (Boolean) data[2];
+
+        try {
+            ClusterStorage thisStorage = checkAndGetStorage(this);
+            ClusterStorage sourceStorage = checkAndGetStorage((WorkflowDatacenter) CloudSim.getEntity(sourceName));
+            double rate = sourceStorage.getMaxTransferRate(getName());
+            if (rate <= 0) {
+                // no link from the source to this site
+                return;
+            }
+
+            double start = Math.max(CloudSim.clock(), prefetchLinkBusyUntil.getOrDefault(sourceName, 0.0));
+            for (File file : files) {
+                if (thisStorage.contains(file.getName()) || prefetchArrivals.containsKey(file.getName())) {
+                    continue;
+                }
+                if (thisStorage.getAvailableSpace() - prefetchBytesInFlight < file.getSize()) {
+                    continue;
+                }
+
+                prefetchBytesInFlight += file.getSize();
+                sourceStorage.addTransferredBytes(getName(), file.getSize());
+                Parameters.setTotalTransferredData(Parameters.getTotalTransferredData() + file.getSize());
+                if (replication) {
+                    pendingReplicas.put(file.getName(), sourceName);
+                }
+
+                if (network != null) {
+                    prefetchArrivals.put(file.getName(), Double.POSITIVE_INFINITY);
+                    network.startFlow(sourceStorage, this, file, file.getSize(), new ArrayList<Integer>());
+                    continue;
+                }
+
+                double arrival = start + sourceStorage.getLatency(getName()) + file.getSize() / rate;
+                Metrics.recordLinkTime(sourceName, getName(), arrival - start);
+                sourceStorage.addDelivery(getName(), file.getSize(), start + sourceStorage.getLatency(getName()), arrival);
+                start = arrival;
+
+                prefetchArrivals.put(file.getName(), arrival);
+
+                schedule(getId(), arrival - CloudSim.clock(), WorkflowSimTags.FILE_PREFETCH_DONE, file);
+            }
+            prefetchLinkBusyUntil.put(sourceName, start);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Stores a prefetched file once its transfer finished, unless a job's
+     * stage-in already took it over
+     *
+     * @param ev a SimEvent object, data is the file
+     */
+    private void processFilePrefetchDone(SimEvent ev) {
+        storePrefetchedFile((File) ev.getData());
+    }
+
+    /**
+     * Gets the time a job would need to fetch a file from a datacenter
+     * itself, the latency and the transfer time at the full bandwidth or,
+     * with the network model, at the share a new flow would get
+     *
+     * @param sourceName the name of the datacenter
+     * @param file the file
+     * @return the fetch time
+     */
+    private double getDirectFetchTime(String sourceName, File file) throws Exception {
+        ClusterStorage sourceStorage = checkAndGetStorage((WorkflowDatacenter) CloudSim.getEntity(sourceName));
+        double rate = network == null ? sourceStorage.getMaxTransferRate(getName())
+                : network.getExpectedRate(sourceStorage, getName());
+        return sourceStorage.getLatency(getName()) + file.getSize() / rate;
+    }
+
+    private void storePrefetchedFile(File file) {
+        if (prefetchArrivals.remove(file.getName()) == null) {
+            return;
+        }
+        prefetchBytesInFlight -= file.getSize();
+        String replicaSource = pendingReplicas.remove(file.getName());
+
+        try {
+            ClusterStorage thisStorage = checkAndGetStorage(this);
+            if (thisStorage.getAvailableSpace() < file.getSize()) {
+                // storage was filled by jobs in the meantime, the prefetch is lost
+                return;
+            }
+            if (replicaSource != null && !ReplicationManager.fitsBudget(getName(), file)) {
+                // the site's replicas filled its budget in the meantime
+                return;
+            }
+            thisStorage.addFile(file);
+            ReplicaCatalog.addStorageList(file.getName(), getName());
+            if (replicaSource != null) {
+                unreadReplicas.put(file.getName(), replicaSource);
+                ReplicationManager.replicaStored(getName(), file);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Processes a file transfer that finished in the network. A stage-in
+     * transfer counts towards its job, which is submitted to its VM once all
+     * its transfers are done. A prefetch is stored and releases the jobs that
+     * wait for it.
+     *
+     * @param ev a SimEvent object, data is the finished FlowNetwork.Flow
+     */
+    private void processFileTransferDone(SimEvent ev) {
+        FlowNetwork.Flow flow = (FlowNetwork.Flow) ev.getData();
+        Metrics.recordLinkTime(flow.getSource(), getName(), CloudSim.clock() - flow.getStartTime());
+        if (flow.getCloudletIds().isEmpty()) {
+            List<Integer> waiters = prefetchWaiters.remove(flow.getFile().getName());
+            Double directArrival = takenOverReplicas.remove(flow.getFile().getName());
+            if (directArrival != null) {
+                Parameters.setReplicationSavedTime(Parameters.getReplicationSavedTime() + Math.max(0.0, directArrival - CloudSim.clock()));
+            }
+            storePrefetchedFile(flow.getFile());
+            if (waiters != null) {
+                for (int cloudletId : waiters) {
+                    finishTransfer(cloudletId);
+                }
+            }
+        } else {
+            Parameters.setTotalDataTransferTime(Parameters.getTotalDataTransferTime() + CloudSim.clock() - flow.getStartTime());
+            for (int cloudletId : flow.getCloudletIds()) {
+                finishTransfer(cloudletId);
+            }
+        }
+    }
+
+    /**
+     * Adds a file that a job needs from another datacenter to the transfer
+     * batch of the current scheduling round. The batches are sent once all
+     * jobs of the round have been submitted.
+     *
+     * @param source the storage of the source datacenter
+     * @param file the file
+     * @param cl the job
+     */
+    private void addToBatch(ClusterStorage source, File file, Cloudlet cl) {
+        if (roundBatches.isEmpty()) {
+            // the jobs of a round are submitted at the same time, this event comes after all of them
+            schedule(getId(), 0, WorkflowSimTags.TRANSFER_BATCH_FLUSH);
+        }
+        TransferBatch batch = roundBatches.get(source.getName());
+        if (batch == null) {
+            batch = new TransferBatch(source);
+            roundBatches.put(source.getName(), batch);
+        }
+        batch.files.add(file);
+        if (batch.cloudletIds.add(cl.getCloudletId())) {
+            getPendingStageIn(cl).openTransfers++;
+        }
+    }
+
+    /**
+     * Sends the transfer batches of the scheduling round. A batch pays the
+     * latency of its link once and transfers the sizes of all its files. The
+     * batches of different sources are transferred in parallel.
+     */
+    private void processTransferBatchFlush() {
+        List<TransferBatch> batches = new ArrayList<>(roundBatches.values());
+        roundBatches.clear();
+
+        for (TransferBatch batch : batches) {
+            double bytes = 0.0;
+            for (File file : batch.files) {
+                bytes += file.getSize();
+            }
+            batch.source.addTransferredBytes(getName(), bytes);
+
+            if (network != null) {
+                network.startFlow(batch.source, this, null, bytes, new ArrayList<>(batch.cloudletIds));
+                continue;
+            }
+
+            double time = batch.source.getLatency(getName()) + bytes / batch.source.getMaxTransferRate(getName());
+            Metrics.recordLinkTime(batch.source.getName(), getName(), time);
+            batch.source.addDelivery(getName(), bytes, CloudSim.clock() + batch.source.getLatency(getName()), CloudSim.clock() + time);
+            Parameters.setTotalDataTransferTime(Parameters.getTotalDataTransferTime() + time);
+            for (int cloudletId : batch.cloudletIds) {
+                PendingStageIn pending = pendingStageIns.get(cloudletId);
+                pending.batchTime = Math.max(pending.batchTime, time);
+                finishTransfer(cloudletId);
+            }
+        }
+    }
+
+    /**
+     * Counts a finished transfer of a job and submits the job to its VM if it
+     * was the last one
+     *
+     * @param cloudletId the id of the job
+     */
+    private void finishTransfer(int cloudletId) {
+        PendingStageIn pending = pendingStageIns.get(cloudletId);
+        if (--pending.openTransfers > 0) {
+            return;
+        }
+        pendingStageIns.remove(cloudletId);
+
+        updateCloudletProcessing();
+        try {
+            submitCloudlet(pending.cloudlet, pending.localTime + pending.batchTime, pending.ack);
+        } catch (Exception e) {
+            Log.printLine(getName() + ".finishTransfer(): " + "Exception error.");
+            e.printStackTrace();
+        }
+        checkCloudletCompletion();
+    }
+
+    /**
+     * Gets the stage-in of a job that waits for transfers, creates it if this
+     * is the first transfer of the job
+     *
+     * @param cl the job
+     * @return the pending stage-in
+     */
+    private PendingStageIn getPendingStageIn(Cloudlet cl) {
+        PendingStageIn pending = pendingStageIns.get(cl.getCloudletId());
+        if (pending == null) {
+            pending = new PendingStageIn(cl);
+            pendingStageIns.put(cl.getCloudletId(), pending);
+        }
+        return pending;
     }
 
     /**
@@ -151,26 +566,13 @@ public class WorkflowDatacenter extends Datacenter {
                 fileTransferTime = processDataStageIn(job.getFileList(), cl);
             }
 
-
-            CloudletScheduler scheduler = vm.getCloudletScheduler();
-            double estimatedFinishTime = scheduler.cloudletSubmit(cl, fileTransferTime);
-            updateTaskExecTime(job, vm);
-
-            // if this cloudlet is in the exec queue
-            if (estimatedFinishTime > 0.0 && !Double.isInfinite(estimatedFinishTime)) {
-                send(getId(), estimatedFinishTime, CloudSimTags.VM_DATACENTER_EVENT);
+            // with the network model, the job is submitted once its input files arrived
+            PendingStageIn pending = pendingStageIns.get(cl.getCloudletId());
+            if (pending != null) {
+                pending.ack = ack;
+                pending.localTime = fileTransferTime;
             } else {
-                Log.printLine("Warning: You schedule cloudlet to a busy VM");
-            }
-
-            if (ack) {
-                int[] data = new int[3];
-                data[0] = getId();
-                data[1] = cl.getCloudletId();
-                data[2] = CloudSimTags.TRUE;
-
-                int tag = CloudSimTags.CLOUDLET_SUBMIT_ACK;
-                sendNow(cl.getUserId(), tag, data);
+                submitCloudlet(cl, fileTransferTime, ack);
             }
         } catch (ClassCastException c) {
             Log.printLine(getName() + ".processCloudletSubmit(): " + "ClassCastException error.");
@@ -184,6 +586,40 @@ public class WorkflowDatacenter extends Datacenter {
         checkCloudletCompletion();
     }
 
+    /**
+     * Submits a job whose input files are available to its VM
+     *
+     * @param cl the job
+     * @param fileTransferTime the time the job still needs to read its input files
+     * @param ack an acknowledgement
+     */
+    private void submitCloudlet(Cloudlet cl, double fileTransferTime, boolean ack) {
+        Host host = getVmAllocationPolicy().getHost(cl.getVmId(), cl.getUserId());
+        CondorVM vm = (CondorVM) host.getVm(cl.getVmId(), cl.getUserId());
+        Job job = (Job) cl;
+
+        CloudletScheduler scheduler = vm.getCloudletScheduler();
+        double estimatedFinishTime = scheduler.cloudletSubmit(cl, fileTransferTime);
+        updateTaskExecTime(job, vm);
+
+        // if this cloudlet is in the exec queue
+        if (estimatedFinishTime > 0.0 && !Double.isInfinite(estimatedFinishTime)) {
+            send(getId(), estimatedFinishTime, CloudSimTags.VM_DATACENTER_EVENT);
+        } else {
+            Log.printLine("Warning: You schedule cloudlet to a busy VM");
+        }
+
+        if (ack) {
+            int[] data = new int[3];
+            data[0] = getId();
+            data[1] = cl.getCloudletId();
+            data[2] = CloudSimTags.TRUE;
+
+            int tag = CloudSimTags.CLOUDLET_SUBMIT_ACK;
+            sendNow(cl.getUserId(), tag, data);
+        }
+    }
+
     /**
      * Update the submission time/exec time of a task
      *
@@ -295,6 +731,8 @@ public class WorkflowDatacenter extends Datacenter {
 
     protected double processDataStageIn(List<File> requiredFiles, Cloudlet cl) throws Exception {
         double time = 0.0;
+        // time until the last prefetched input file arrives
+        double prefetchWait = 0.0;
         Iterator<File> iter = requiredFiles.iterator();
         while (iter.hasNext()) {
             File file = iter.next();
@@ -318,9 +756,52 @@ public class WorkflowDatacenter extends Datacenter {
                             ClusterStorage thisStorage = (ClusterStorage) this.getStorageList().get(0);
                             maxRate = thisStorage.getMaxTransferRate("local");
                             time += file.getSize() / maxRate;
+
+                            // first reader of a replica, it would have fetched the file from the replica's source
+                            String replicaSource = unreadReplicas.remove(file.getName());
+                            if (replicaSource != null) {
+                                Parameters.setReplicationSavedTime(Parameters.getReplicationSavedTime() + getDirectFetchTime(replicaSource, file));
+                            }
                             break;
                         }
 
+                        // check if the file is already being prefetched to this site, then only wait for its arrival
+                        if (prefetchArrivals.containsKey(file.getName())) {
+                            double arrival = prefetchArrivals.remove(file.getName());
+                            prefetchBytesInFlight -= file.getSize();
+                            String replicaSource = pendingReplicas.remove(file.getName());
+                            if (replicaSource != null) {
+                                // the job takes over the replica, it is stored with the job's inputs
+                                ReplicationManager.replicaStored(getName(), file);
+
+                                // it saves the time of a fetch of its own minus the remaining wait for the replica,
+                                // nothing if the replica arrives later than a fetch started now
+                                double directArrival = CloudSim.clock() + getDirectFetchTime(replicaSource, file);
+                                if (network != null) {
+                                    takenOverReplicas.put(file.getName(), directArrival);
+                                } else {
+                                    Parameters.setReplicationSavedTime(Parameters.getReplicationSavedTime() + Math.max(0.0, directArrival - arrival));
+                                }
+                            }
+                            if (network != null) {
+                                // the network decides the arrival, wait for the prefetch flow
+                                prefetchWaiters.computeIfAbsent(file.getName(), name -> new ArrayList<>()).add(cl.getCloudletId());
+                                getPendingStageIn(cl).openTransfers++;
+                            } else {
+                                prefetchWait = Math.max(prefetchWait, arrival - CloudSim.clock());
+                            }
+
+                            ReplicaCatalog.addStorageList(file.getName(), getName());
+                            checkAndGetStorage(this).addFile(file);
+                            break;
+                        }
+
+
+                        // replica holders and their rates to this site, for striped transfers
+                        List<ClusterStorage> holders = new ArrayList<>();
+                        List<Double> holderRates = new ArrayList<>();
+                        ClusterStorage bestStorage = null;
+                        int unreachableHolders = 0;
 
                         for (Iterator it = siteList.iterator(); it.hasNext();) {
 
@@ -340,19 +821,79 @@ public class WorkflowDatacenter extends Datacenter {
                         	
                         	// get transfer time from other datacenter to this (defined through ClusterStorages)
                         	double rate = storage.getMaxTransferRate(this.getName()); 
+                            if (rate <= 0) {
+                                // no link from this holder to this site
+                                unreachableHolders++;
+                                continue;
+                            }
                             if (rate > maxRate) {
                                 maxRate = rate;
+                                bestStorage = storage;
                             }
+                            holders.add(storage);
+                            holderRates.add(rate);
+                        }
+                        if (bestStorage == null && unreachableHolders > 0) {
+                            throw new Exception("No replica of " + file.getName() + " is reachable from " + getName());
                         }
                         // add the file to this datacenter's cluster storage 
                         ReplicaCatalog.addStorageList(file.getName(), getName());
                         ClusterStorage thisStorage = checkAndGetStorage(this);
                         thisStorage.addFile(file);
                         
-                        time += file.getSize() / maxRate;
+                        if (Parameters.batching_enabled() && bestStorage != null) {
+                            // the file is sent with the other files of this round from its best holder
+                            addToBatch(bestStorage, file, cl);
+                        } else if (Parameters.striping_enabled() && holders.size() > 1 && file.getSize() >= Parameters.getStripingMinSize()) {
+                            // every holder sends a stripe proportional to its bandwidth to this site
+                            double rateSum = 0.0;
+                            for (double rate : holderRates) {
+                                rateSum += rate;
+                            }
+                            double stripeTime = 0.0;
+                            for (int i = 0; i < holders.size(); i++) {
+                                double stripeSize = file.getSize() * holderRates.get(i) / rateSum;
+                                holders.get(i).addTransferredBytes(getName(), stripeSize);
+                                if (network != null) {
+                                    network.startFlow(holders.get(i), this, file, stripeSize, Collections.singletonList(cl.getCloudletId()));
+                                    getPendingStageIn(cl).openTransfers++;
+                                }
+                                if (network == null) {
+                                    Metrics.recordLinkTime(holders.get(i).getName(), getName(),
+                                            holders.get(i).getLatency(getName()) + stripeSize / holderRates.get(i));
+                                    // the stripes are sent in parallel after the job's earlier files
+                                    double stripeStart = CloudSim.clock() + time + holders.get(i).getLatency(getName());
+                                    holders.get(i).addDelivery(getName(), stripeSize, stripeStart, stripeStart + stripeSize / holderRates.get(i));
+                                }
+                                stripeTime = Math.max(stripeTime, holders.get(i).getLatency(getName()) + stripeSize / holderRates.get(i));
+                            }
+                            if (network == null) {
+                                time += stripeTime;
+                            }
+                        } else {
+                            if (bestStorage != null) {
+                                bestStorage.addTransferredBytes(getName(), file.getSize());
+                            }
+                            if (network != null && bestStorage != null) {
+                                network.startFlow(bestStorage, this, file, file.getSize(), Collections.singletonList(cl.getCloudletId()));
+                                getPendingStageIn(cl).openTransfers++;
+                            } else {
+                                double latency = bestStorage == null ? 0.0 : bestStorage.getLatency(getName());
+                                if (bestStorage != null) {
+                                    Metrics.recordLinkTime(bestStorage.getName(), getName(), latency + file.getSize() / maxRate);
+                                    // the file is sent after the job's earlier files
+                                    double deliveryStart = CloudSim.clock() + time + latency;
+                                    bestStorage.addDelivery(getName(), file.getSize(), deliveryStart, deliveryStart + file.getSize() / maxRate);
+                                }
+                                time += latency + file.getSize() / maxRate;
+                            }
+                        }
 
                         Parameters.setTotalTransferredData(Parameters.getTotalTransferredData() + file.getSize());
-                        Parameters.setTotalDataTransferTime(Parameters.getTotalDataTransferTime() + time);
+                        // with the network model or batching, the transfer time is accounted when the transfers finish
+                        if (network == null && !Parameters.batching_enabled()) {
+                            Parameters.setTotalDataTransferTime(Parameters.getTotalDataTransferTime() + time);
+                        }
 
                         break;
                     case LOCAL:
@@ -408,6 +949,10 @@ public class WorkflowDatacenter extends Datacenter {
                 }
             }
         }
+        if (prefetchWait > 0.0) {
+            time += prefetchWait;
+            Parameters.setTotalDataTransferTime(Parameters.getTotalDataTransferTime() + prefetchWait);
+        }
         return time;
     }
 
@@ -26,6 +26,7 @@ import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.metrics.Metrics;
 import org.workflowsim.reclustering.ReclusteringEngine;
 import org.workflowsim.utils.Parameters;
 import federatedSim.utils.DisjointSetUnion;
@@ -41,6 +42,9 @@ import federatedSim.utils.DisjointSetUnion;
  */
 public class WorkflowEngine extends SimEntity {
 
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
     /**
      * The job list.
      */
@@ -256,9 +260,15 @@ public class WorkflowEngine extends SimEntity {
 
             // create retry job
             List<Job> newJob = ReclusteringEngine.process(job, newId);
+            Metrics.increment("jobs.retries");
             newJob.get(0).setPreviousVmId(job.getVmId());
             getJobsList().addAll(newJob);
 
+            // a replay of the scheduling rounds recreates the retry from the failed job
+            if (WorkflowScheduler.getTrace() != null) {
+                WorkflowScheduler.getTrace().recordRetry(job.getCloudletId(), newId);
+            }
+
             // remember which job id's are retries of the other job
             int oldId = job.getCloudletId();
             if (!retriedJobsSetUnion.contains(oldId)){
@@ -444,6 +454,17 @@ public class WorkflowEngine extends SimEntity {
         return (List<T>) jobsList;
     }
 
+    /**
+     * Gets the number of jobs that have not returned, waiting or submitted.
+     * A job that is lost on the way (e.g., dropped by a failed stage-in)
+     * never returns, so the simulation ends without it.
+     *
+     * @return the number of unfinished jobs
+     */
+    public int getUnfinishedJobs() {
+        return getJobsList().size() + jobsSubmitted;
+    }
+
     /**
      * Sets the job list.
      *
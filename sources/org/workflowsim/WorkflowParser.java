@@ -15,21 +15,24 @@
  */
 package org.workflowsim;
 
+import java.io.BufferedInputStream;
+import java.io.Serializable;
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.cloudbus.cloudsim.Log;
-import org.jdom2.Document;
-import org.jdom2.Element;
-import org.jdom2.JDOMException;
-import org.jdom2.input.SAXBuilder;
-import org.workflowsim.failure.FailureParameters;
 import org.workflowsim.utils.Parameters;
 import org.workflowsim.utils.ReplicaCatalog;
 
@@ -42,7 +45,10 @@ import federatedSim.DynamicAbstractDag;
  * @since WorkflowSim Toolkit 1.0
  * @date Aug 23, 2013
  */
-public class WorkflowParser {
+public class WorkflowParser implements Serializable {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
 
     /**
      * The path to data size file.
@@ -83,10 +89,6 @@ public class WorkflowParser {
     protected void setTaskList(List<Task> taskList) {
         this.taskList = taskList;
     }
-    /**
-     * Map from task name to task.
-     */
-    protected Map<String, Task> mName2Task;
     /**
      * Map from task name to task runtime.
      */
@@ -96,6 +98,41 @@ public class WorkflowParser {
      */
     protected Map<String, Double> mName2Size;
 
+    /**
+     * The default number of workflows whose structure is kept.
+     */
+    public static final int DEFAULT_CACHE_CAPACITY = 32;
+
+    /**
+     * The number of workflows whose structure is kept, 0 disables the cache.
+     */
+    private static int cacheCapacity = DEFAULT_CACHE_CAPACITY;
+
+    /**
+     * The structures of the recently parsed workflows, see cacheKey(), least
+     * recently used first. Several simulations in the same JVM (e.g. a batch
+     * of runs) parse each workflow only once.
+     */
+    private static final Map<String, WorkflowStructure> structureCache
+            = new LinkedHashMap<String, WorkflowStructure>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, WorkflowStructure> eldest) {
+                    return size() > cacheCapacity;
+                }
+            };
+
+    /**
+     * Sets the number of workflows whose structure is kept
+     *
+     * @param capacity the capacity, 0 disables the cache
+     */
+    public static void setCacheCapacity(int capacity) {
+        cacheCapacity = capacity;
+        if (capacity == 0) {
+            structureCache.clear();
+        }
+    }
+
     /**
      * Initialize a WorkflowParser
      *
@@ -104,7 +141,6 @@ public class WorkflowParser {
      */
     public WorkflowParser(int userId) {
         this.userId = userId;
-        this.mName2Task = new HashMap<String, Task>();
         this.mName2Runtime = new HashMap<String, Double>();
         this.mName2Size = new HashMap<String, Double>();
 
@@ -129,10 +165,44 @@ public class WorkflowParser {
      * Start to parse a workflow which includes text files and xml files.
      */
     public void parse() {
-        parseTextFile();
-        parseXmlFile();
+        String key = cacheKey();
+        WorkflowStructure structure = key == null ? null : structureCache.get(key);
+        if (structure == null) {
+            parseTextFile();
+            structure = parseXmlFile();
+            if (key != null && structure.isComplete()) {
+                structureCache.put(key, structure);
+            }
+        }
+        try {
+            setTaskList(structure.createTasks(userId));
+        } catch (Exception e) {
+            e.printStackTrace();
+            Log.printLine("Parsing Exception");
+        }
         DynamicAbstractDag.init(taskList);
     }
+
+    /**
+     * Gets the key of the workflow in the structure cache: the paths and
+     * modification times of the DAX and the text files, and the runtime scale
+     *
+     * @return the key, or null if the cache is disabled
+     */
+    private String cacheKey() {
+        if (cacheCapacity == 0 || daxPath == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder();
+        for (String path : new String[]{daxPath, fileSizePath, runtimePath}) {
+            if (path != null) {
+                File file = new File(path);
+                key.append(file.getAbsolutePath()).append('@').append(file.lastModified());
+            }
+            key.append('|');
+        }
+        return key.append(Parameters.getRuntimeScale()).toString();
+    }
     
     
     private void getAbstractDag() {
@@ -178,57 +248,67 @@ public class WorkflowParser {
     }
 
     /**
-     * Sets the depth of a task
+     * Parse a DAX file with a streaming XML reader, directly into the
+     * structure of the workflow. Jobs and dependencies are read in the order
+     * of the DAX, the document is never held in memory as a whole.
      *
-     * @param task the task
-     * @param depth the depth
+     * @return the structure, empty if the DAX cannot be read and incomplete
+     * (with depths 0) if it contains an invalid job
      */
-    private void setDepth(Task task, int depth) {
-        if (depth > task.getDepth()) {
-            task.setDepth(depth);
-        }
-        for (Iterator it = task.getChildList().iterator(); it.hasNext();) {
-            Task cTask = (Task) it.next();
-            setDepth(cTask, task.getDepth() + 1);
-        }
-        /*
-        if (FailureParameters.getAlpha()!=null && ! FailureParameters.getAlpha().containsKey(task.getDepth() )) {
-            FailureParameters.getAlpha().put(task.getDepth(), 0.0);
-        }
-        */ 
-    }
+    private WorkflowStructure parseXmlFile() {
 
-    /**
-     * Parse a DAX file with jdom
-     */
-    private void parseXmlFile() {
+        WorkflowStructure.Builder builder = new WorkflowStructure.Builder();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(daxPath))) {
 
-        try {
+            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
 
-            SAXBuilder builder = new SAXBuilder();
-            //parse using builder to get DOM representation of the XML file
-            Document dom = builder.build(new File(daxPath));
-            Element root = dom.getRootElement();
-            List list = root.getChildren();
-            int idIndex = 1;
-            for (Iterator it = list.iterator(); it.hasNext();) {
-                Element node = (Element) it.next();
-                if (node.getName().toLowerCase().equals("job")) {
+            /**
+             * The root is at depth 1, jobs and dependencies at depth 2, the
+             * files of a job and the parents of a dependency at depth 3.
+             */
+            int depth = 0;
+            boolean inJob = false;
+            boolean inChild = false;
+            String nodeName = null;
+            String nodeType = null;
+            long length = 0;
+            String childName = null;
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 2 && inJob) {
+                        builder.addTask(nodeName, nodeType, length);
+                    }
+                    if (depth == 2) {
+                        inJob = false;
+                        inChild = false;
+                    }
+                    depth--;
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                depth++;
+                String element = reader.getLocalName().toLowerCase();
 
-                    long length = 0;
-                    String nodeName = node.getAttributeValue("id");
-                    String nodeType = node.getAttributeValue("name");
+                if (depth == 2 && element.equals("job")) {
+                    inJob = true;
+                    nodeName = reader.getAttributeValue(null, "id");
+                    nodeType = reader.getAttributeValue(null, "name");
 
                     /**
                      * capture runtime. If not exist, by default the runtime is
                      * 0
                      */
+                    length = 0;
                     double runtime = 0.0;
                     if (this.mName2Runtime.containsKey(nodeName)) {
                         runtime = 1000 * (Double) this.mName2Runtime.get(nodeName);
                         length = (long) runtime;
-                    } else if (node.getAttributeValue("runtime") != null) {
-                        String nodeTime = node.getAttributeValue("runtime");
+                    } else if (reader.getAttributeValue(null, "runtime") != null) {
+                        String nodeTime = reader.getAttributeValue(null, "runtime");
                         runtime = 1000 * Double.parseDouble(nodeTime);
                         length = (long) runtime;
                     } else {
@@ -236,158 +316,84 @@ public class WorkflowParser {
                     }
                     //multiple the scale, by default it is 1.0
                     length *= Parameters.getRuntimeScale();
-                    
-                    List fileList = node.getChildren();
-
-                    List mFileList = new ArrayList<org.cloudbus.cloudsim.File>();
 
+                } else if (depth == 3 && inJob && element.equals("uses")) {
                     /**
                      * capture file.
                      */
-                    for (Iterator itf = fileList.iterator(); itf.hasNext();) {
-                        Element file = (Element) itf.next();
-                        if (file.getName().toLowerCase().equals("uses")) {
-                            String fileName = file.getAttributeValue("name");//DAX version 3.3
-                            if (fileName == null) {
-                                fileName = file.getAttributeValue("file");//DAX version 3.0
-                            }
-                            if (fileName == null) {
-                                Log.print("Error in parsing xml");
-                            }
-
-                            String inout = file.getAttributeValue("link");
-                            double size = 0.0;
-                            if (this.mName2Size.containsKey(fileName)) {
-                                size = (Double) this.mName2Size.get(fileName) /*/ 1024*/;//now it is KB
-                            } else {
-                                String fileSize = file.getAttributeValue("size");
-                                if (fileSize != null) {
-                                    size = Double.parseDouble(fileSize) /*/ 1024*/;
-                                } else {
-                                    Log.printLine("File Size not found for " + fileName);
-                                }
-                            }
-                            /**
-                             * a bug of cloudsim, size 0 causes a problem. 1 is
-                             * ok.
-                             */
-                            if (size == 0) {
-                                size++;
-                            }
-                            /**
-                             * Sets the file type 1 is input 2 is output
-                             */
-                            int type = 0;
-                            if (inout.equals("input")) {
-                                type = Parameters.FileType.INPUT.value;
-                            } else if (inout.equals("output")) {
-                                type = Parameters.FileType.OUTPUT.value;
-                            } else {
-                                Log.printLine("Parsing Error");
-                            }
-                            org.cloudbus.cloudsim.File tFile;
-                            /*
-                             * Already exists an input file (forget output file)
-                             */
-                            if (size < 0) {
-                                /*
-                                 * Assuming it is a parsing error
-                                 */
-                                size = 0 - size;
-                                Log.printLine("Size is negative, I assume it is a parser error");
-                            }
-                            if (type == Parameters.FileType.OUTPUT.value) {
-                                /**
-                                 * It is good that CloudSim does tell whether a
-                                 * size is zero
-                                 */
-                                tFile = new org.cloudbus.cloudsim.File(fileName, (int) size);
-                            } else if (ReplicaCatalog.containsFile(fileName)) {
-                                tFile = ReplicaCatalog.getFile(fileName);
-                            } else {
-
-                                tFile = new org.cloudbus.cloudsim.File(fileName, (int) size);
-                                ReplicaCatalog.setFile(fileName, tFile);
-                            }
-
-                            tFile.setType(type);
-                            mFileList.add(tFile);
+                    String fileName = reader.getAttributeValue(null, "name");//DAX version 3.3
+                    if (fileName == null) {
+                        fileName = reader.getAttributeValue(null, "file");//DAX version 3.0
+                    }
+                    if (fileName == null) {
+                        Log.print("Error in parsing xml");
+                    }
 
+                    String inout = reader.getAttributeValue(null, "link");
+                    double size = 0.0;
+                    if (this.mName2Size.containsKey(fileName)) {
+                        size = (Double) this.mName2Size.get(fileName) /*/ 1024*/;//now it is KB
+                    } else {
+                        String fileSize = reader.getAttributeValue(null, "size");
+                        if (fileSize != null) {
+                            size = Double.parseDouble(fileSize) /*/ 1024*/;
+                        } else {
+                            Log.printLine("File Size not found for " + fileName);
                         }
-
                     }
-
-
-                    Task task = new Task(idIndex, length);
-
-                    task.setType(nodeType);
-
-                    task.setUserId(userId);
-                    idIndex++;
-                    mName2Task.put(nodeName, task);
-
-
-                    for (Iterator itm = mFileList.iterator(); itm.hasNext();) {
-                        org.cloudbus.cloudsim.File file = (org.cloudbus.cloudsim.File) itm.next();
-                        task.addRequiredFile(file.getName());
+                    /**
+                     * a bug of cloudsim, size 0 causes a problem. 1 is ok.
+                     */
+                    if (size == 0) {
+                        size++;
                     }
-
-                    task.setFileList(mFileList);
-                    this.getTaskList().add(task);
+                    /**
+                     * Sets the file type 1 is input 2 is output
+                     */
+                    int type = 0;
+                    if (inout.equals("input")) {
+                        type = Parameters.FileType.INPUT.value;
+                    } else if (inout.equals("output")) {
+                        type = Parameters.FileType.OUTPUT.value;
+                    } else {
+                        Log.printLine("Parsing Error");
+                    }
+                    if (size < 0) {
+                        /*
+                         * Assuming it is a parsing error
+                         */
+                        size = 0 - size;
+                        Log.printLine("Size is negative, I assume it is a parser error");
+                    }
+                    /**
+                     * Output files are new for every job, input files are
+                     * shared by the replica catalog when the tasks are created
+                     */
+                    builder.addFileUse(fileName, (int) size, type);
 
                     /**
                      * Add dependencies info.
                      */
-                } else if (node.getName().toLowerCase().equals("child")) {
-                    List pList = node.getChildren();
-                    String childName = node.getAttributeValue("ref");
-                    if (mName2Task.containsKey(childName)) {
-
-                        Task childTask = (Task) mName2Task.get(childName);
-
-                        for (Iterator itc = pList.iterator(); itc.hasNext();) {
-                            Element parent = (Element) itc.next();
-                            String parentName = parent.getAttributeValue("ref");
-                            if (mName2Task.containsKey(parentName)) {
-                                Task parentTask = (Task) mName2Task.get(parentName);
-                                parentTask.addChild(childTask);
-                                childTask.addParent(parentTask);
-                            }
-
-                        }
-                    }
-                }
+                } else if (depth == 2 && element.equals("child")) {
+                    childName = reader.getAttributeValue(null, "ref");
+                    inChild = builder.containsTask(childName);
 
-            }
-            /**
-             * If a task has no parent, then it is root task.
-             */
-            ArrayList roots = new ArrayList<Task>();
-            for (Iterator it = mName2Task.values().iterator(); it.hasNext();) {
-                Task task = (Task) it.next();
-                task.setDepth(0);
-                if (task.getParentList().isEmpty()) {
-                    roots.add(task);
+                } else if (depth == 3 && inChild) {
+                    String parentName = reader.getAttributeValue(null, "ref");
+                    builder.addEdge(parentName, childName);
                 }
             }
+            reader.close();
 
-            /**
-             * Add depth from top to bottom.
-             */
-            for (Iterator it = roots.iterator(); it.hasNext();) {
-                Task task = (Task) it.next();
-                setDepth(task, 1);
-            }
             /**
              * Clean them so as to save memory. Parsing workflow may take much memory
              */
             this.mName2Runtime.clear();
             this.mName2Size.clear();
-            this.mName2Task.clear();//?
+            return builder.build(true);
 
-
-        } catch (JDOMException jde) {
-            Log.printLine("JDOM Exception;Please make sure your dax file is valid");
+        } catch (XMLStreamException xse) {
+            Log.printLine("XML Exception;Please make sure your dax file is valid");
 
         } catch (IOException ioe) {
             Log.printLine("IO Exception;Please make sure dax.path is correctly set in your config file");
@@ -395,7 +401,8 @@ public class WorkflowParser {
         } catch (Exception e) {
             e.printStackTrace();
             Log.printLine("Parsing Exception");
-
+            return builder.build(false);
         }
+        return new WorkflowStructure.Builder().build(false);
     }
 }
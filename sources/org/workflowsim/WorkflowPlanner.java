@@ -40,6 +40,9 @@ import org.workflowsim.utils.Parameters.PlanningAlgorithm;
  */
 public class WorkflowPlanner extends SimEntity {
 
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
     /**
      * The task list.
      */
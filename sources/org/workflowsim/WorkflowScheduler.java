@@ -24,6 +24,8 @@ import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.metrics.Metrics;
+import org.cloudbus.cloudsim.core.metrics.PhaseEvent;
 import org.cloudbus.cloudsim.lists.VmList;
 import org.workflowsim.failure.FailureGenerator;
 import org.workflowsim.scheduling.DataAwareSchedulingAlgorithm;
@@ -37,11 +39,21 @@ import org.workflowsim.scheduling.StaticSchedulingAlgorithm;
 import org.workflowsim.utils.Parameters;
 import org.workflowsim.utils.Parameters.SchedulingAlgorithm;
 
+import federatedSim.AdaptiveThresholds;
+import federatedSim.CriticalPathPartitioningScheduler;
+import federatedSim.MinCostFlowPartitioningScheduler;
+import federatedSim.OfflinePartitioningScheduler;
+import federatedSim.OutputPrefetcher;
 import federatedSim.PartitioningScheduler;
 import federatedSim.RandomPartitioningScheduler;
+import federatedSim.ReplicationManager;
+import federatedSim.SchedulerTrace;
 import federatedSim.ThresholdException;
 import federatedSim.utils.DisjointSetUnion;
 
+import static org.workflowsim.utils.Parameters.SchedulingAlgorithm.DYNAMIC_CP;
+import static org.workflowsim.utils.Parameters.SchedulingAlgorithm.DYNAMIC_MCF;
+import static org.workflowsim.utils.Parameters.SchedulingAlgorithm.DYNAMIC_OFFLINE;
 import static org.workflowsim.utils.Parameters.SchedulingAlgorithm.DYNAMIC_PART;
 import static org.workflowsim.utils.Parameters.SchedulingAlgorithm.DYNAMIC_RND;
 
@@ -57,6 +69,9 @@ import static org.workflowsim.utils.Parameters.SchedulingAlgorithm.DYNAMIC_RND;
  */
 public class WorkflowScheduler extends DatacenterBroker {
 
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
     /**
      * The workflow engine id associated with this workflow algorithm.
      */
@@ -150,7 +165,7 @@ public class WorkflowScheduler extends DatacenterBroker {
      * @param name the SchedulingAlgorithm name
      * @return the algorithm that extends BaseSchedulingAlgorithm
      */
-    private BaseSchedulingAlgorithm getScheduler(SchedulingAlgorithm name) {
+    public BaseSchedulingAlgorithm getScheduler(SchedulingAlgorithm name) {
         BaseSchedulingAlgorithm algorithm = null;
 
         // choose which algorithm to use. Make sure you have add related enum in
@@ -184,6 +199,15 @@ public class WorkflowScheduler extends DatacenterBroker {
             case DYNAMIC_PART:
                 algorithm = new PartitioningScheduler();
                 break;
+            case DYNAMIC_MCF:
+                algorithm = new MinCostFlowPartitioningScheduler();
+                break;
+            case DYNAMIC_OFFLINE:
+                algorithm = new OfflinePartitioningScheduler();
+                break;
+            case DYNAMIC_CP:
+                algorithm = new CriticalPathPartitioningScheduler();
+                break;
             default:
                 algorithm = new StaticSchedulingAlgorithm();
                 break;
@@ -255,16 +279,50 @@ public class WorkflowScheduler extends DatacenterBroker {
     
     // Bookkeeping for threshold checks, stores the last time we partitioned
     private double lastPartitioningTime = 0.0;
-    
+
+    // adapts the thresholds during the simulation instead of the fixed ones of Parameters, null if not adaptive
+    private AdaptiveThresholds adaptiveThresholds = null;
+
+    // number of jobs of this scheduler that exceeded the storage of their site
+    private long storageRetries = 0;
+
+    public void setAdaptiveThresholds(AdaptiveThresholds thresholds) {
+        adaptiveThresholds = thresholds;
+    }
+
+    public AdaptiveThresholds getAdaptiveThresholds() {
+        return adaptiveThresholds;
+    }
+
+    public long getStorageRetries() {
+        return storageRetries;
+    }
+
+    // number of scheduling rounds that passed the thresholds, of all schedulers of the simulation
+    private static long schedulingRounds = 0;
+
+    public static long getSchedulingRounds() {
+        return schedulingRounds;
+    }
+
+    // records the inputs and decisions of every scheduling round, null if no trace is recorded
+    private static SchedulerTrace trace = null;
+
+    public static void setTrace(SchedulerTrace schedulerTrace) {
+        trace = schedulerTrace;
+    }
+
+    public static SchedulerTrace getTrace() {
+        return trace;
+    }
 
     /**
-     * Update a cloudlet (job)
+     * Hands the jobs, the vms and the federated bookkeeping of this scheduler
+     * to a scheduling algorithm, like at the start of a scheduling round
      *
-     * @param ev a simEvent object
+     * @param scheduler the algorithm
      */
-    protected void processCloudletUpdate(SimEvent ev) {
-
-        BaseSchedulingAlgorithm scheduler = getScheduler(Parameters.getSchedulingAlgorithm());
+    public void prepareScheduler(BaseSchedulingAlgorithm scheduler) {
         scheduler.setCloudletList(getCloudletList());
         scheduler.setVmList(getVmsCreatedList());
         scheduler.setReceivedList(getCloudletReceivedList());
@@ -272,23 +330,37 @@ public class WorkflowScheduler extends DatacenterBroker {
         // federated partitioning related options - add more if applicable
 
         // dynamic random
-        if (Parameters.getSchedulingAlgorithm() == DYNAMIC_RND) {
+        if (scheduler instanceof RandomPartitioningScheduler) {
             // let scheduling algo know which task exceeded which storage
             ((RandomPartitioningScheduler) scheduler).addExceededMap(exceededStorageMap);
             ((RandomPartitioningScheduler) scheduler).addRetriedJobsSetUnion(retriedJobIdsSetUnion);
 
-        // dynamic partitioning
-        } else if (Parameters.getSchedulingAlgorithm() == DYNAMIC_PART){
+        // dynamic partitioning, greedy, min-cost flow, offline or critical-path aware
+        } else if (scheduler instanceof PartitioningScheduler) {
             // let scheduling algo know which task exceeded which storage
             ((PartitioningScheduler) scheduler).addExceededMap(exceededStorageMap);
             ((PartitioningScheduler) scheduler).addRetriedJobsSetUnion(retriedJobIdsSetUnion);
         }
+    }
+    
+
+    /**
+     * Update a cloudlet (job)
+     *
+     * @param ev a simEvent object
+     */
+    protected void processCloudletUpdate(SimEvent ev) {
+
+        BaseSchedulingAlgorithm scheduler = getScheduler(Parameters.getSchedulingAlgorithm());
+        prepareScheduler(scheduler);
 
 
         try {
         	if (Parameters.thresholds_enabled()) { // Threshold-based Scheduling
-        		if (getCloudletList().size() < Parameters.getTASK_THRESHOLD()) { // check task threshold
-        			if (CloudSim.clock() - lastPartitioningTime < Parameters.getSEC_THRESHOLD()) { // check time threshold
+        		int taskThreshold = adaptiveThresholds != null ? adaptiveThresholds.getTaskThreshold() : Parameters.getTASK_THRESHOLD();
+        		int secThreshold  = adaptiveThresholds != null ? adaptiveThresholds.getSecThreshold() : Parameters.getSEC_THRESHOLD();
+        		if (getCloudletList().size() < taskThreshold) { // check task threshold
+        			if (CloudSim.clock() - lastPartitioningTime < secThreshold) { // check time threshold
                         // send message to check thresholds again with delay defined in Parameters
                         schedule(
                             this.getId(), 
@@ -300,14 +372,32 @@ public class WorkflowScheduler extends DatacenterBroker {
                     }
                 }
             }
+            // the trace's snapshot and decisions are taken outside of the phase, so they do not count as scheduling time
+            if (trace != null) {
+                trace.beginRound(getId());
+            }
+            PhaseEvent round = Metrics.beginPhase("schedulingRound");
+            int batchSize = getCloudletList().size();
             scheduler.run();
+            Metrics.endPhase(round, batchSize);
+            if (trace != null) {
+                trace.endRound(scheduler.getScheduledList());
+            }
             lastPartitioningTime = CloudSim.clock();
+            schedulingRounds++;
+            if (adaptiveThresholds != null) {
+                adaptiveThresholds.roundFinished(CloudSim.clock(), batchSize, scheduler.getScheduledList().size(), storageRetries);
+            }
             
         } catch (ThresholdException e) {
         	//Log.printLine(e.getMessage());
         } catch (Exception e) {
             Log.printLine("Error in configuring scheduler_method");
             e.printStackTrace();
+            // the jobs scheduled before the failure are submitted as well, the trace keeps them as the round's decisions
+            if (trace != null) {
+                trace.endRound(scheduler.getScheduledList());
+            }
         } 
         List scheduledList = scheduler.getScheduledList();
         for (Iterator it = scheduledList.iterator(); it.hasNext();) {
@@ -324,6 +414,13 @@ public class WorkflowScheduler extends DatacenterBroker {
         getCloudletSubmittedList().addAll(scheduledList);
         cloudletsSubmitted += scheduledList.size();
 
+        // federated partitioning: replicate the hot initial files once the start jobs are placed
+        if (Parameters.replication_enabled() && !replicationStarted
+                && scheduler instanceof PartitioningScheduler && !scheduledList.isEmpty()) {
+            replicationStarted = true;
+            replicate(ReplicationManager.init((List<Job>) scheduledList));
+        }
+
     }
 
     /**
@@ -351,6 +448,18 @@ public class WorkflowScheduler extends DatacenterBroker {
         //so that this resource is released
         vm.setState(WorkflowSimTags.VM_STATUS_IDLE);
 
+        // federated partitioning: start streaming outputs to the sites where the children are predicted to run
+        if (Parameters.prefetching_enabled()
+                && (Parameters.getSchedulingAlgorithm() == DYNAMIC_PART || Parameters.getSchedulingAlgorithm() == DYNAMIC_MCF)
+                && job.getCloudletStatus() == Cloudlet.SUCCESS) {
+            prefetchOutputs(job);
+        }
+
+        // federated partitioning: replicate hot outputs to the sites where their consumers are expected
+        if (replicationStarted && job.getCloudletStatus() == Cloudlet.SUCCESS) {
+            replicate(ReplicationManager.getReplicas(job));
+        }
+
         double delay = 0.0;
         if(Parameters.getOverheadParams().getPostDelay()!=null){
             delay = Parameters.getOverheadParams().getPostDelay(job);
@@ -364,6 +473,43 @@ public class WorkflowScheduler extends DatacenterBroker {
 
     }
 
+    /**
+     * Asks the datacenters of the predicted child sites to prefetch the
+     * outputs of a finished job. Only applicable in federated partitioning
+     *
+     * @param job the finished job
+     */
+    private void prefetchOutputs(Job job) {
+        String sourceName = CloudSim.getEntityName(getVmsToDatacentersMap().get(job.getVmId()));
+
+        for (Map.Entry<Integer, List<org.cloudbus.cloudsim.File>> prefetch : OutputPrefetcher.getPrefetches(job).entrySet()) {
+            int targetId = getVmsToDatacentersMap().get(prefetch.getKey());
+            sendNow(targetId, WorkflowSimTags.FILE_PREFETCH, new Object[]{sourceName, prefetch.getValue()});
+        }
+    }
+
+    /**
+     * Whether the replication manager has been initialized with the start
+     * jobs
+     */
+    private boolean replicationStarted = false;
+
+    /**
+     * Asks the datacenters of the target sites to replicate files from the
+     * source sites. Only applicable in federated partitioning
+     *
+     * @param replicas the files by source vm id and target vm id
+     */
+    private void replicate(Map<Integer, Map<Integer, List<org.cloudbus.cloudsim.File>>> replicas) {
+        for (Map.Entry<Integer, Map<Integer, List<org.cloudbus.cloudsim.File>>> source : replicas.entrySet()) {
+            String sourceName = CloudSim.getEntityName(getVmsToDatacentersMap().get(source.getKey()));
+            for (Map.Entry<Integer, List<org.cloudbus.cloudsim.File>> target : source.getValue().entrySet()) {
+                int targetId = getVmsToDatacentersMap().get(target.getKey());
+                sendNow(targetId, WorkflowSimTags.FILE_PREFETCH, new Object[]{sourceName, target.getValue(), true});
+            }
+        }
+    }
+
     /**
      * process cloudlet (job) check (not supported yet)
      *
@@ -384,6 +530,10 @@ public class WorkflowScheduler extends DatacenterBroker {
         retriedJobIdsSetUnion = dsu;
     }
 
+    public DisjointSetUnion getRetriedJobIdsSetUnion() {
+        return retriedJobIdsSetUnion;
+    }
+
 
 
     /**
@@ -393,6 +543,14 @@ public class WorkflowScheduler extends DatacenterBroker {
      */
     Map<Integer, Set<Integer>> exceededStorageMap = new HashMap<Integer, Set<Integer>>();
 
+    public Map<Integer, Set<Integer>> getExceededStorageMap() {
+        return exceededStorageMap;
+    }
+
+    public void setExceededStorageMap(Map<Integer, Set<Integer>> map) {
+        exceededStorageMap = map;
+    }
+
     /**
      * process the event that a cloudlet finished, but the output files exceeded the site's storage capacity
      * only applicable in federated partitioning context
@@ -405,6 +563,7 @@ public class WorkflowScheduler extends DatacenterBroker {
         Job job = (Job) ev.getData();
 
         Log.printLine("Job " + job.getTaskList().get(0).getType() + " exceeded output storage, resubmitting ");
+        Metrics.increment("jobs.storageExceeded");
 
         // get ID's of datacenter with exceeded storage and the cloudlet
         int senderId   = ev.getSource();
@@ -419,6 +578,7 @@ public class WorkflowScheduler extends DatacenterBroker {
 
         // bookkeeping for exceeded storages
         exceededStorageMap.computeIfAbsent(cloudletId, cl -> new HashSet<>()).add(senderId);
+        storageRetries++;
 
         try {
             job.setCloudletStatus(Cloudlet.FAILED);
@@ -49,6 +49,26 @@ public class WorkflowSimTags {
      * Tag for federated partitioning that signals that a cloudlet exceeded the datacenters local storage
      */
     public static final int CLOUDLET_STORAGE_EXCEEDED = BASE + 7;
+
+    /**
+     * Tag for federated partitioning that asks a datacenter to prefetch output
+     * files of a finished job, and that signals the arrival of a prefetched file
+     */
+    public static final int FILE_PREFETCH = BASE + 8;
+    public static final int FILE_PREFETCH_DONE = BASE + 9;
+
+    /**
+     * Tags of the flow-level network model, for the next flow completion in
+     * the network and for a finished flow at its destination datacenter
+     */
+    public static final int FLOW_UPDATE = BASE + 10;
+    public static final int FILE_TRANSFER_DONE = BASE + 11;
+    public static final int FLOW_START = BASE + 12;
+
+    /**
+     * Tag for a datacenter to send the transfer batches of a scheduling round
+     */
+    public static final int TRANSFER_BATCH_FLUSH = BASE + 13;
     /**
      * Private Constructor
      */
@@ -0,0 +1,405 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.cloudbus.cloudsim.File;
+import org.workflowsim.utils.Parameters;
+import org.workflowsim.utils.ReplicaCatalog;
+
+/**
+ * WorkflowStructure is the immutable part of a parsed workflow in a compact
+ * form: the types, lengths and depths of the tasks in primitive arrays, the
+ * file uses and the edges as adjacency arrays (the entries of task i are at
+ * offsets[i] to offsets[i + 1] - 1) and every distinct file once in a file
+ * table. It takes some tens of bytes per task, where the tasks and files of a
+ * simulation take about a kilobyte per task, and it is built while the DAX is
+ * read, so a workflow never exists as XML document and task graph at once.
+ * <p>
+ * Tasks and files are mutable and change while a simulation runs, so they
+ * cannot be shared by several simulations. The structure can, and every
+ * simulation creates its own tasks and files from it without parsing the DAX
+ * again. The id of a task is its index + 1.
+ *
+ * @see WorkflowParser
+ */
+public final class WorkflowStructure {
+
+    /**
+     * The names of the task types, indexed by the types of the tasks
+     */
+    private final String[] typeNames;
+
+    /**
+     * The type, length and depth of every task
+     */
+    private final int[] types;
+    private final long[] lengths;
+    private final int[] depths;
+
+    /**
+     * The file uses of every task: an index into the file table and the file
+     * type
+     */
+    private final int[] useOffsets;
+    private final int[] useFiles;
+    private final byte[] useTypes;
+
+    /**
+     * The file table, one entry per distinct name and size
+     */
+    private final String[] fileNames;
+    private final int[] fileSizes;
+
+    /**
+     * The parents and children of every task, in the order of their lists
+     */
+    private final int[] parentOffsets;
+    private final int[] parents;
+    private final int[] childOffsets;
+    private final int[] children;
+
+    /**
+     * Whether the whole DAX was read
+     */
+    private final boolean complete;
+
+    private WorkflowStructure(Builder builder, boolean complete) {
+        this.complete = complete;
+        int size = builder.numTasks;
+        typeNames = builder.typeNames.toArray(new String[0]);
+        types = Arrays.copyOf(builder.types, size);
+        lengths = Arrays.copyOf(builder.lengths, size);
+
+        useOffsets = Arrays.copyOf(builder.useOffsets, size + 1);
+        useOffsets[size] = builder.numUses;
+        useFiles = Arrays.copyOf(builder.useFiles, builder.numUses);
+        useTypes = Arrays.copyOf(builder.useTypes, builder.numUses);
+
+        fileNames = builder.fileNames.toArray(new String[0]);
+        fileSizes = Arrays.copyOf(builder.fileSizes, fileNames.length);
+
+        // edges in the order of the DAX, a stable counting sort keeps that order within every list
+        int numEdges = builder.numEdges;
+        parentOffsets = new int[size + 1];
+        childOffsets = new int[size + 1];
+        for (int e = 0; e < numEdges; e++) {
+            parentOffsets[builder.edgeChildren[e] + 1]++;
+            childOffsets[builder.edgeParents[e] + 1]++;
+        }
+        for (int i = 0; i < size; i++) {
+            parentOffsets[i + 1] += parentOffsets[i];
+            childOffsets[i + 1] += childOffsets[i];
+        }
+        parents = new int[numEdges];
+        children = new int[numEdges];
+        int[] nextParent = Arrays.copyOf(parentOffsets, size);
+        int[] nextChild = Arrays.copyOf(childOffsets, size);
+        for (int e = 0; e < numEdges; e++) {
+            parents[nextParent[builder.edgeChildren[e]]++] = builder.edgeParents[e];
+            children[nextChild[builder.edgeParents[e]]++] = builder.edgeChildren[e];
+        }
+
+        depths = new int[size];
+        if (complete) {
+            computeDepths(builder.named);
+        }
+    }
+
+    /**
+     * Sets the depth of every task that is named in the DAX to the length of
+     * the longest path from a root task (1 for a root task). A task whose id
+     * was taken by a later task of the DAX has no edges and keeps depth 0.
+     *
+     * @param named whether the task is the one with its id
+     */
+    private void computeDepths(boolean[] named) {
+        int size = types.length;
+        int[] missingParents = new int[size];
+        int[] queue = new int[size];
+        int tail = 0;
+        for (int i = 0; i < size; i++) {
+            missingParents[i] = parentOffsets[i + 1] - parentOffsets[i];
+            if (missingParents[i] == 0 && named[i]) {
+                depths[i] = 1;
+                queue[tail++] = i;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int task = queue[head];
+            for (int c = childOffsets[task]; c < childOffsets[task + 1]; c++) {
+                int child = children[c];
+                depths[child] = Math.max(depths[child], depths[task] + 1);
+                if (--missingParents[child] == 0) {
+                    queue[tail++] = child;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of tasks
+     *
+     * @return the number of tasks
+     */
+    public int size() {
+        return types.length;
+    }
+
+    /**
+     * Checks whether the whole DAX was read. An incomplete structure has the
+     * jobs before the first invalid job of the DAX.
+     *
+     * @return whether the structure is complete
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Creates the tasks and files of a simulation, like the parser did: an
+     * output file is a new file for every task that writes it, an input file
+     * is shared by all tasks that read it through the replica catalog. The
+     * lists of the tasks are allocated with their final size.
+     *
+     * @param userId the user id of the tasks
+     * @return the tasks, in the order of the DAX
+     * @throws Exception if a file cannot be created
+     */
+    public List<Task> createTasks(int userId) throws Exception {
+        int size = types.length;
+        Task[] tasks = new Task[size];
+        for (int i = 0; i < size; i++) {
+            Task task = new Task(i + 1, lengths[i]);
+            task.setType(typeNames[types[i]]);
+            task.setUserId(userId);
+            task.setDepth(depths[i]);
+
+            List<File> fileList = new ArrayList<>(useOffsets[i + 1] - useOffsets[i]);
+            for (int u = useOffsets[i]; u < useOffsets[i + 1]; u++) {
+                String name = fileNames[useFiles[u]];
+                File file;
+                if (useTypes[u] == Parameters.FileType.OUTPUT.value) {
+                    file = new File(name, fileSizes[useFiles[u]]);
+                } else if (ReplicaCatalog.containsFile(name)) {
+                    file = ReplicaCatalog.getFile(name);
+                } else {
+                    file = new File(name, fileSizes[useFiles[u]]);
+                    ReplicaCatalog.setFile(name, file);
+                }
+                file.setType(useTypes[u]);
+                fileList.add(file);
+                task.addRequiredFile(name);
+            }
+            task.setFileList(fileList);
+            tasks[i] = task;
+        }
+
+        for (int i = 0; i < size; i++) {
+            List<Task> parentList = new ArrayList<>(parentOffsets[i + 1] - parentOffsets[i]);
+            for (int p = parentOffsets[i]; p < parentOffsets[i + 1]; p++) {
+                parentList.add(tasks[parents[p]]);
+            }
+            tasks[i].setParentList(parentList);
+            List<Task> childList = new ArrayList<>(childOffsets[i + 1] - childOffsets[i]);
+            for (int c = childOffsets[i]; c < childOffsets[i + 1]; c++) {
+                childList.add(tasks[children[c]]);
+            }
+            tasks[i].setChildList(childList);
+        }
+
+        return new ArrayList<>(Arrays.asList(tasks));
+    }
+
+    /**
+     * Builds a WorkflowStructure from the jobs, file uses and dependencies of
+     * a DAX, in the order of the DAX. Task ids are resolved like the parser
+     * did: if several jobs have the same id, the last one gets the
+     * dependencies that follow it.
+     */
+    public static class Builder {
+
+        private final List<String> typeNames = new ArrayList<>();
+        private final Map<String, Integer> typeIndices = new HashMap<>();
+
+        private int numTasks = 0;
+        private int[] types = new int[64];
+        private long[] lengths = new long[64];
+        private boolean[] named = new boolean[64];
+        private final Map<String, Integer> taskIndices = new HashMap<>();
+
+        private int numUses = 0;
+        private int[] useOffsets = new int[65];
+        private int[] useFiles = new int[128];
+        private byte[] useTypes = new byte[128];
+
+        private final List<String> fileNames = new ArrayList<>();
+        private int[] fileSizes = new int[128];
+        private final Map<String, Integer> fileIndices = new HashMap<>();
+
+        /**
+         * The names that are read (not written) by a task, whose file comes
+         * from the replica catalog after its first use
+         */
+        private final Set<String> catalogNames = new HashSet<>();
+
+        /**
+         * The file uses of the job that is added
+         */
+        private int pendingUses = 0;
+
+        private int numEdges = 0;
+        private int[] edgeParents = new int[64];
+        private int[] edgeChildren = new int[64];
+
+        /**
+         * Adds a file use to the job that is added next
+         *
+         * @param name the file name
+         * @param size the size
+         * @param type the file type
+         * @throws IllegalArgumentException if the use creates a file with an
+         * empty name or a size of 0
+         */
+        public void addFileUse(String name, int size, int type) {
+            boolean created = type == Parameters.FileType.OUTPUT.value || !catalogNames.contains(name);
+            if (created && (name == null || name.isEmpty() || size <= 0)) {
+                throw new IllegalArgumentException("Invalid file " + name + " of size " + size);
+            }
+            if (type != Parameters.FileType.OUTPUT.value) {
+                catalogNames.add(name);
+            }
+
+            if (numUses == useFiles.length) {
+                useFiles = Arrays.copyOf(useFiles, 2 * numUses);
+                useTypes = Arrays.copyOf(useTypes, 2 * numUses);
+            }
+            useFiles[numUses] = fileIndex(name, size);
+            useTypes[numUses] = (byte) type;
+            numUses++;
+            pendingUses++;
+        }
+
+        /**
+         * Adds a job with the file uses that were added since the last job
+         *
+         * @param name the id of the job in the DAX
+         * @param type the type (name) of the job
+         * @param length the length
+         */
+        public void addTask(String name, String type, long length) {
+            if (numTasks == types.length) {
+                types = Arrays.copyOf(types, 2 * numTasks);
+                lengths = Arrays.copyOf(lengths, 2 * numTasks);
+                named = Arrays.copyOf(named, 2 * numTasks);
+                useOffsets = Arrays.copyOf(useOffsets, 2 * numTasks + 1);
+            }
+            Integer typeIndex = typeIndices.get(type);
+            if (typeIndex == null) {
+                typeIndex = typeNames.size();
+                typeNames.add(type);
+                typeIndices.put(type, typeIndex);
+            }
+            types[numTasks] = typeIndex;
+            lengths[numTasks] = length;
+            useOffsets[numTasks] = numUses - pendingUses;
+            pendingUses = 0;
+
+            Integer previous = taskIndices.put(name, numTasks);
+            if (previous != null) {
+                named[previous] = false;
+            }
+            named[numTasks] = true;
+            numTasks++;
+        }
+
+        /**
+         * Adds a dependency between two jobs that were added, dependencies of
+         * unknown jobs are ignored
+         *
+         * @param parent the id of the parent job in the DAX
+         * @param child the id of the child job in the DAX
+         */
+        public void addEdge(String parent, String child) {
+            Integer parentIndex = taskIndices.get(parent);
+            Integer childIndex = taskIndices.get(child);
+            if (parentIndex == null || childIndex == null) {
+                return;
+            }
+            if (numEdges == edgeParents.length) {
+                edgeParents = Arrays.copyOf(edgeParents, 2 * numEdges);
+                edgeChildren = Arrays.copyOf(edgeChildren, 2 * numEdges);
+            }
+            edgeParents[numEdges] = parentIndex;
+            edgeChildren[numEdges] = childIndex;
+            numEdges++;
+        }
+
+        /**
+         * Checks whether a job id was added
+         *
+         * @param name the id of the job in the DAX
+         * @return whether a job has the id
+         */
+        public boolean containsTask(String name) {
+            return taskIndices.containsKey(name);
+        }
+
+        /**
+         * Builds the structure of the jobs that were added
+         *
+         * @param complete whether the whole DAX was read, the depths of an
+         * incomplete workflow are 0
+         * @return the structure
+         */
+        public WorkflowStructure build(boolean complete) {
+            // uses of a job that was not added
+            numUses -= pendingUses;
+            pendingUses = 0;
+            return new WorkflowStructure(this, complete);
+        }
+
+        /**
+         * The index of a file in the file table, files of the same name and
+         * size share an entry
+         */
+        private int fileIndex(String name, int size) {
+            String key = name;
+            Integer index = fileIndices.get(key);
+            if (index != null && fileSizes[index] != size) {
+                // rare, a file with different sizes in different uses
+                key = name + '\n' + size;
+                index = fileIndices.get(key);
+            }
+            if (index == null) {
+                index = fileNames.size();
+                if (index == fileSizes.length) {
+                    fileSizes = Arrays.copyOf(fileSizes, 2 * index);
+                }
+                fileNames.add(name);
+                fileSizes[index] = size;
+                fileIndices.put(key, index);
+            }
+            return index;
+        }
+    }
+}
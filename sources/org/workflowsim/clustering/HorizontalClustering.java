@@ -33,6 +33,9 @@ import org.workflowsim.Task;
  */
 public class HorizontalClustering extends BasicClustering {
 
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
     /**
      * The number of clustered jobs per level.
      */
@@ -33,6 +33,9 @@ import org.workflowsim.utils.Parameters;
  */
 public class VerticalClustering extends BasicClustering {
 
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
     /* The maximum depth to explore. */
     private int mDepth;
     /* The checkpoint map. */
@@ -47,6 +47,9 @@ import org.workflowsim.utils.Parameters;
  */
 public class BalancedClustering extends BasicClustering {
 
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
     /**
      * Number of clustered jobs per level.
      */
@@ -85,20 +85,33 @@ public class HEFTPlanningAlgorithm extends BasePlanningAlgorithm {
         Log.printLine("HEFT planner running with " + getTaskList().size()
                 + " tasks.");
 
-        averageBandwidth = calculateAverageBandwidth();
-
         for (Object vmObject : getVmList()) {
             CondorVM vm = (CondorVM) vmObject;
             schedules.put(vm, new ArrayList<Event>());
         }
 
         // Prioritization phase
+        computeRanks();
+
+        // Selection phase
+        allocateTasks();
+    }
+
+    /**
+     * Computes the upward rank of every task of the task list on the vms of
+     * the vm list, without allocating the tasks. Also used by schedulers that
+     * only need the prioritization phase of HEFT.
+     *
+     * @return the rank of every task
+     */
+    public Map<Task, Double> computeRanks() {
+        averageBandwidth = calculateAverageBandwidth();
+
         calculateComputationCosts();
         calculateTransferCosts();
         calculateRanks();
 
-        // Selection phase
-        allocateTasks();
+        return rank;
     }
 
     /**
@@ -35,7 +35,7 @@ public class Parameters {
 
         MAXMIN, MINMIN, MCT, DATA, 
         STATIC, FCFS, ROUNDROBIN, INVALID,
-        DYNAMIC_RND, DYNAMIC_PART
+        DYNAMIC_RND, DYNAMIC_PART, DYNAMIC_MCF, DYNAMIC_OFFLINE, DYNAMIC_CP
     }
     
     /**
@@ -120,6 +120,98 @@ public class Parameters {
 		SEC_THRESHOLD = sec_threshold;
 	}
 
+	// stream outputs of finished jobs to the predicted sites of their children
+	private static boolean use_prefetching = false;
+
+	public static void setPrefetching(boolean prefetching) {
+		use_prefetching = prefetching;
+	}
+
+	public static boolean prefetching_enabled() {
+		return use_prefetching;
+	}
+
+	// split stage-in transfers across all sites holding a replica
+	private static boolean use_striping = false;
+
+	public static void setStriping(boolean striping) {
+		use_striping = striping;
+	}
+
+	public static boolean striping_enabled() {
+		return use_striping;
+	}
+
+	// smaller files are sent by their best holder alone, the latency of every stripe outweighs the shared bandwidth
+	private static double striping_min_size = 64.0 * 1024 * 1024;
+
+	public static void setStripingMinSize(double minSize) {
+		striping_min_size = minSize;
+	}
+
+	public static double getStripingMinSize() {
+		return striping_min_size;
+	}
+
+	// coalesce the files that jobs of one scheduling round need from the same site into one transfer
+	private static boolean use_batching = false;
+
+	public static void setBatching(boolean batching) {
+		use_batching = batching;
+	}
+
+	public static boolean batching_enabled() {
+		return use_batching;
+	}
+
+	// place jobs of a batch that share input files on the same site
+	private static boolean use_colocation = false;
+
+	public static void setColocation(boolean colocation) {
+		use_colocation = colocation;
+	}
+
+	public static boolean colocation_enabled() {
+		return use_colocation;
+	}
+
+	// bytes per site that hot files may be replicated to ahead of their consumers, 0 = no replication
+	private static double replication_budget = 0.0;
+
+	public static void setReplicationBudget(double budget) {
+		replication_budget = budget;
+	}
+
+	public static double getReplicationBudget() {
+		return replication_budget;
+	}
+
+	public static boolean replication_enabled() {
+		return replication_budget > 0;
+	}
+
+	// a file is hot and replicated if at least this many jobs read it
+	private static int hot_fan_out = 3;
+
+	public static void setHotFanOut(int fanOut) {
+		hot_fan_out = fanOut;
+	}
+
+	public static int getHotFanOut() {
+		return hot_fan_out;
+	}
+
+	// weight of the estimated finish time against the transferred bytes in the critical-path strategy, 0 = bytes only
+	private static double makespan_weight = 0.5;
+
+	public static void setMakespanWeight(double weight) {
+		makespan_weight = weight;
+	}
+
+	public static double getMakespanWeight() {
+		return makespan_weight;
+	}
+
 
 	/** 
      * Source Host (submit host)
@@ -245,6 +337,9 @@ public class Parameters {
         reduceMethod = rMethod;
         deadline = dl;
         maxDepth = 0;
+
+        // the transfer totals of a previous simulation in the same JVM
+        setRunState(new double[5]);
     }
 
     /**
@@ -297,6 +392,62 @@ public class Parameters {
         Parameters.totalDataTransferTime = totalDataTransferTime;
     }
 
+    // bytes of duplicate transfers that co-locating jobs with shared inputs avoided
+    public static double colocationSavedBytes;
+
+    public static double getColocationSavedBytes() {
+        return colocationSavedBytes;
+    }
+
+    public static void setColocationSavedBytes(double colocationSavedBytes) {
+        Parameters.colocationSavedBytes = colocationSavedBytes;
+    }
+
+    // bytes transferred by the replication of hot files
+    public static double replicatedBytes;
+
+    public static double getReplicatedBytes() {
+        return replicatedBytes;
+    }
+
+    public static void setReplicatedBytes(double replicatedBytes) {
+        Parameters.replicatedBytes = replicatedBytes;
+    }
+
+    // stage-in time that the first readers of replicas did not spend on transfers
+    public static double replicationSavedTime;
+
+    public static double getReplicationSavedTime() {
+        return replicationSavedTime;
+    }
+
+    public static void setReplicationSavedTime(double replicationSavedTime) {
+        Parameters.replicationSavedTime = replicationSavedTime;
+    }
+
+    /**
+     * Gets the state that changes while a simulation is running (the transfer
+     * totals), so that it can be stored in a simulation snapshot
+     *
+     * @return the run state
+     */
+    public static double[] getRunState() {
+        return new double[]{totalTransferredData, totalDataTransferTime, colocationSavedBytes, replicatedBytes, replicationSavedTime};
+    }
+
+    /**
+     * Restores the state returned by getRunState()
+     *
+     * @param state the run state
+     */
+    public static void setRunState(double[] state) {
+        totalTransferredData = state[0];
+        totalDataTransferTime = state[1];
+        colocationSavedBytes = state[2];
+        replicatedBytes = state[3];
+        replicationSavedTime = state[4];
+    }
+
     /**
      * Gets the DAX path
      *
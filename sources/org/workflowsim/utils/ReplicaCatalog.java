@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * ReplicaCatalog stores all the data information and where (site) there are
@@ -62,6 +63,27 @@ public class ReplicaCatalog {
         FileName2File = new HashMap<String, org.cloudbus.cloudsim.File>();
     }
 
+    /**
+     * Gets the complete catalog (file system, file objects and replica
+     * locations), so that it can be stored in a simulation snapshot
+     *
+     * @return the catalog state
+     */
+    public static Object[] getState() {
+        return new Object[]{fileSystem, FileName2File, dataReplicaCatalog};
+    }
+
+    /**
+     * Replaces the catalog with a state returned by getState()
+     *
+     * @param state the catalog state
+     */
+    public static void setState(Object[] state) {
+        fileSystem = (FileSystem) state[0];
+        FileName2File = (Map) state[1];
+        dataReplicaCatalog = (Map) state[2];
+    }
+
     /**
      * Gets the file system
      *
@@ -111,6 +133,15 @@ public class ReplicaCatalog {
         return (List) dataReplicaCatalog.get(file);
     }
 
+    /**
+     * Gets the names of the files that are stored on any storage
+     *
+     * @return the file names
+     */
+    public static Set<String> getStoredFileNames() {
+        return dataReplicaCatalog.keySet();
+    }
+
     /**
      * Adds a file to a storage
      *